@@ -1,17 +1,45 @@
 package org.acme;
 
-import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import org.acme.search.SearchIndexListener;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 
+// Índices (coluna, id) para a paginação keyset das buscas ordenadas
+// Cardápio: lido muito mais do que escrito, fica no cache de segundo nível
 @Entity
-public class Bebida extends PanacheEntity {
+@Cacheable
+@EntityListeners(SearchIndexListener.class)
+@Table(indexes = {
+        @Index(name = "idx_bebida_nome", columnList = "nome, id"),
+        @Index(name = "idx_bebida_preco", columnList = "preco, id"),
+        @Index(name = "idx_bebida_volume", columnList = "volumeMl, id")
+})
+public class Bebida extends PanacheEntityBase implements Versioned {
+
+    // Bloco maior que bulk.batch-size: um lote de /bebidas/bulk não volta à sequence a cada item
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bebida_seq")
+    @SequenceGenerator(name = "bebida_seq", sequenceName = "bebida_seq", allocationSize = 100)
+    public Long id;
 
     @NotNull
     @Size(min = 2, max = 80, message = "O nome da bebida deve ter entre 2 a 80 letras")
@@ -28,7 +56,23 @@ public class Bebida extends PanacheEntity {
     @NotNull
     public boolean alcoolica;
 
+    @Version
+    @JsonIgnore
+    public long versao;
+
+    @UpdateTimestamp
+    @JsonIgnore
+    public Instant atualizadoEm;
 
+    @Override
+    public long versao() {
+        return versao;
+    }
+
+    @Override
+    public Instant atualizadoEm() {
+        return atualizadoEm;
+    }
 
     public Bebida() {
     }
@@ -1,5 +1,7 @@
 package org.acme;
 
+import io.quarkus.hibernate.orm.panache.common.ProjectedFieldName;
+
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
@@ -13,23 +15,29 @@ public class BebidaRepresentation {
     public boolean alcoolica;
     public Map<String, String> _links;
 
-    public BebidaRepresentation() {
+    /**
+     * Único construtor, usado nas projeções (Bebida.find(...).project(BebidaRepresentation.class)):
+     * a consulta seleciona só estas colunas, sem carregar a entidade
+     */
+    public BebidaRepresentation(@ProjectedFieldName("id") Long id,
+                                @ProjectedFieldName("nome") String nome,
+                                @ProjectedFieldName("preco") BigDecimal preco,
+                                @ProjectedFieldName("volumeMl") int volumeMl,
+                                @ProjectedFieldName("alcoolica") boolean alcoolica) {
+        this.id = id;
+        this.nome = nome;
+        this.preco = preco;
+        this.volumeMl = volumeMl;
+        this.alcoolica = alcoolica;
+
+        this._links = new HashMap<>();
+        this._links.put("self", "/api/v1/bebidas/" + id);
+        this._links.put("all", "/api/v1/bebidas");
+        this._links.put("delete", "/api/v1/bebidas/" + id);
+        this._links.put("update", "/api/v1/bebidas/" + id);
     }
 
     public static BebidaRepresentation from(Bebida bebida) {
-        BebidaRepresentation rep = new BebidaRepresentation();
-        rep.id = bebida.id;
-        rep.nome = bebida.nome;
-        rep.preco = bebida.preco;
-        rep.volumeMl = bebida.volumeMl;
-        rep.alcoolica = bebida.alcoolica;
-
-        rep._links = new HashMap<>();
-        rep._links.put("self", "/api/v1/bebidas/" + bebida.id);
-        rep._links.put("all", "/api/v1/bebidas");
-        rep._links.put("delete", "/api/v1/bebidas/" + bebida.id);
-        rep._links.put("update", "/api/v1/bebidas/" + bebida.id);
-
-        return rep;
+        return new BebidaRepresentation(bebida.id, bebida.nome, bebida.preco, bebida.volumeMl, bebida.alcoolica);
     }
 }
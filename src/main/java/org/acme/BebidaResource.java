@@ -1,11 +1,21 @@
 package org.acme;
 
 import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import io.quarkus.panache.common.Parameters;
 import io.quarkus.panache.common.Sort;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import org.acme.bulk.BulkResult;
+import org.acme.bulk.BulkService;
+import org.acme.search.SearchIndex;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.enums.ParameterIn;
@@ -14,18 +24,45 @@ import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.headers.Header;
+import org.hibernate.jpa.HibernateHints;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
+@RunOnVirtualThread
 @Path("/bebidas")
 public class BebidaResource {
 
+    @Inject
+    SearchCounts counts;
+
+    @Inject
+    SearchIndex searchIndex;
+
+    @Inject
+    ListStreamer listStreamer;
+
+    @Inject
+    ResourceVersions versions;
+
+    @Inject
+    BulkService bulk;
+
     private BebidaRepresentation rep(Bebida b) {
         return BebidaRepresentation.from(b);
     }
 
+    // Campos alteráveis pelo PUT, individual ou em lote
+    private static void apply(Bebida entity, Bebida changes) {
+        entity.nome = changes.nome;
+        entity.preco = changes.preco;
+        entity.volumeMl = changes.volumeMl;
+        entity.alcoolica = changes.alcoolica;
+    }
+
     private List<BebidaRepresentation> repList(List<Bebida> bebidas) {
         return bebidas.stream().map(this::rep).collect(Collectors.toList());
     }
@@ -90,8 +127,15 @@ public class BebidaResource {
                     example = "{\"error\": \"Too Many Requests\", \"message\": \"Rate limit exceeded. Try again later.\"}"
             )
     )
-    public Response getAll() {
-        return Response.ok(repList(Bebida.listAll())).build();
+    @Produces({MediaType.APPLICATION_JSON, ListStreamer.APPLICATION_NDJSON})
+    public Response getAll(@Context HttpHeaders headers, @Context Request request) {
+        ResourceVersion version = versions.ofAll(Bebida.class, headers);
+        Response notModified = version.evaluate(request);
+        if (notModified != null) {
+            return notModified;
+        }
+        return version.tag(listStreamer.stream(headers, "select new org.acme.BebidaRepresentation(id, nome, preco, volumeMl, alcoolica) from Bebida",
+                BebidaRepresentation.class, rep -> rep.id, UnaryOperator.identity())).build();
     }
 
     @GET
@@ -136,12 +180,17 @@ public class BebidaResource {
                     @Header(name = "Retry-After", schema = @Schema(implementation = Long.class, example = "3540"))
             }
     )
-    public Response getById(@PathParam("id") long id) {
+    public Response getById(@PathParam("id") long id, @Context Request request) {
         Bebida entity = Bebida.findById(id);
         if (entity == null) {
             return Response.status(404).build();
         }
-        return Response.ok(rep(entity)).build();
+        ResourceVersion version = ResourceVersion.of(entity);
+        Response notModified = version.evaluate(request);
+        if (notModified != null) {
+            return notModified;
+        }
+        return version.tag(Response.ok(rep(entity))).build();
     }
 
     @GET
@@ -175,23 +224,55 @@ public class BebidaResource {
             @QueryParam("sort") @DefaultValue("id") @Parameter(description = "Campo para ordenação", example = "nome") String sort,
             @QueryParam("direction") @DefaultValue("asc") @Parameter(description = "Direção da ordenação", example = "asc") String direction,
             @QueryParam("page") @DefaultValue("1") @Parameter(description = "Número da página", example = "1") int page,
-            @QueryParam("size") @DefaultValue("10") @Parameter(description = "Tamanho da página", example = "10") int size
+            @QueryParam("size") @DefaultValue("10") @Parameter(description = "Tamanho da página", example = "10") int size,
+            @QueryParam("cursor") @Parameter(description = "Cursor opaco dos links next/prev (paginação keyset)") String cursor,
+            @QueryParam("count") @DefaultValue("exact") @Parameter(description = "Total da busca: exact, estimate ou none", example = "estimate") String count
     ) {
-        Set<String> allowed = Set.of("id", "nome", "preco", "volumeMl");
+        Set<String> allowed = Set.of("id", "nome", "preco", "volumeMl", SearchCursor.RELEVANCE);
+        SearchCursor seek = SearchCursor.decode(cursor, allowed);
+        CountMode countMode = CountMode.parse(count);
+        if (seek != null) {
+            sort = seek.sort;
+            direction = seek.direction();
+            page = seek.page;
+        }
         if (!allowed.contains(sort)) sort = "id";
+        boolean descending = "desc".equalsIgnoreCase(direction);
 
-        Sort sortObj = Sort.by(sort, "desc".equalsIgnoreCase(direction) ? Sort.Direction.Descending : Sort.Direction.Ascending);
-        int effectivePage = page <= 1 ? 0 : page - 1;
+        Parameters params = new Parameters();
+        String filter = searchIndex.filter(Bebida.class, q, "lower(nome) like :q", params);
+        // Ordenar por relevância só é possível quando o índice de texto respondeu a busca
+        List<Long> ranked = SearchCursor.RELEVANCE.equals(sort) ? searchIndex.ranked(Bebida.class, q) : null;
+        if (SearchCursor.RELEVANCE.equals(sort) && ranked == null) {
+            sort = "id";
+            seek = null;
+        }
 
-        PanacheQuery<Bebida> query = (q == null || q.isBlank())
-                ? Bebida.findAll(sortObj)
-                : Bebida.find("lower(nome) like ?1", sortObj, "%" + q.toLowerCase() + "%");
+        Long totalElements = counts.count(countMode, Bebida.class, filter, params,
+                () -> filter == null ? Bebida.count() : Bebida.count(filter, params));
+        Long totalPages = totalElements == null ? null : (long) Math.ceil((double) totalElements / size);
 
-        long totalElements = query.count();
-        long totalPages = (long) Math.ceil((double) totalElements / size);
-        List<Bebida> bebidas = query.page(effectivePage, size).list();
+        // Com cursor a página é buscada por seek (custo constante); sem ele, OFFSET como antes.
+        // Nos dois casos vem uma linha a mais, para saber se há próxima página sem depender do total.
+        // As consultas projetam direto na representação: nada de entidade gerenciada nem dirty checking.
+        // O resultado fica no cache de consultas até a próxima escrita em bebidas.
+        List<BebidaRepresentation> bebidas;
+        if (ranked != null) {
+            bebidas = repList(searchIndex.page(Bebida.class, ranked, (page <= 1 ? 0 : page - 1) * size, size + 1));
+        } else if (seek != null) {
+            bebidas = seek.list(Bebida.find(seek.where(filter), seek.sort(), seek.bind(params, Bebida.class)).project(BebidaRepresentation.class)
+                    .withHint(HibernateHints.HINT_CACHEABLE, true), size);
+        } else {
+            Sort sortObj = SearchCursor.sort(sort, descending);
+            PanacheQuery<BebidaRepresentation> query = (filter == null ? Bebida.findAll(sortObj) : Bebida.find(filter, sortObj, params)).project(BebidaRepresentation.class)
+                    .withHint(HibernateHints.HINT_CACHEABLE, true);
+            int first = (page <= 1 ? 0 : page - 1) * size;
+            bebidas = query.range(first, first + size).list();
+        }
+        boolean hasNext = SearchCursor.trim(bebidas, size, ranked != null ? null : seek);
 
-        SearchBebidaResponse response = SearchBebidaResponse.from(bebidas, q, sort, direction, page, size, totalElements, totalPages);
+        SearchBebidaResponse response = SearchBebidaResponse.from(bebidas, q, sort, direction, page, size, totalElements, totalPages,
+                countMode == CountMode.ESTIMATE, cursor, SearchCursor.next(bebidas, sort, descending, page, hasNext), SearchCursor.prev(bebidas, sort, descending, page));
         return Response.ok(response).build();
     }
 
@@ -286,11 +367,18 @@ public class BebidaResource {
                     @Header(name = "Retry-After", schema = @Schema(implementation = Long.class))
             }
     )
-    public Response delete(@PathParam("id") long id) {
-        if (Bebida.deleteById(id)) {
-            return Response.noContent().build();
+    public Response delete(@PathParam("id") long id, @Context Request request) {
+        Bebida entity = Bebida.findById(id);
+        if (entity == null) {
+            return Response.status(404).build();
+        }
+        Response precondition = versions.precondition(entity, request);
+        if (precondition != null) {
+            return precondition;
         }
-        return Response.status(404).build();
+        entity.delete();
+        Bebida.flush();
+        return Response.noContent().build();
     }
 
     @PUT
@@ -328,15 +416,45 @@ public class BebidaResource {
                     @Header(name = "Retry-After", schema = @Schema(implementation = Long.class))
             }
     )
-    public Response update(@PathParam("id") long id, @Valid Bebida newBebida) {
+    public Response update(@PathParam("id") long id, @Valid Bebida newBebida, @Context Request request) {
         Bebida entity = Bebida.findById(id);
         if (entity == null) {
             return Response.status(404).build();
         }
-        entity.nome = newBebida.nome;
-        entity.preco = newBebida.preco;
-        entity.volumeMl = newBebida.volumeMl;
-        entity.alcoolica = newBebida.alcoolica;
-        return Response.ok(rep(entity)).build();
+        Response precondition = versions.precondition(entity, request);
+        if (precondition != null) {
+            return precondition;
+        }
+        apply(entity, newBebida);
+        return versions.written(entity, Response.ok(rep(entity)));
+    }
+
+    // --- Operações em lote ---
+
+    @POST
+    @Path("/bulk")
+    @Consumes({MediaType.APPLICATION_JSON, ListStreamer.APPLICATION_NDJSON})
+    @Operation(summary = "Cria bebidas em lote", description = "Corpo em array JSON ou NDJSON. Itens inválidos voltam com 422 e não impedem os demais. Aceita Idempotency-Key.")
+    @APIResponse(responseCode = "200", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkResult.class)))
+    public Response bulkInsert(InputStream body) {
+        return Response.ok(bulk.create(bulk.read(body, Bebida.class), Bebida.class)).build();
+    }
+
+    @POST
+    @Path("/bulk/update")
+    @Consumes({MediaType.APPLICATION_JSON, ListStreamer.APPLICATION_NDJSON})
+    @Operation(summary = "Atualiza bebidas em lote", description = "Cada item leva o id e os campos do PUT individual; com \"versao\", o item só é alterado se ainda estiver nessa versão (412 se não).")
+    @APIResponse(responseCode = "200", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkResult.class)))
+    public Response bulkUpdate(InputStream body) {
+        return Response.ok(bulk.update(bulk.readChanges(body, Bebida.class), Bebida.class, BebidaResource::apply)).build();
+    }
+
+    @POST
+    @Path("/bulk/delete")
+    @Consumes({MediaType.APPLICATION_JSON, ListStreamer.APPLICATION_NDJSON})
+    @Operation(summary = "Exclui bebidas em lote", description = "Corpo com os ids a excluir.")
+    @APIResponse(responseCode = "200", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkResult.class)))
+    public Response bulkDelete(InputStream body) {
+        return Response.ok(bulk.delete(bulk.read(body, Long.class), Bebida.class)).build();
     }
 }
@@ -0,0 +1,36 @@
+package org.acme;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.jboss.logging.Logger;
+
+/**
+ * Validade máxima das entradas do cache de segundo nível do cardápio (expire-after-write).
+ *
+ * As regiões do Quarkus só expiram por ociosidade (max-idle), e o cache é local a cada réplica:
+ * um prato lido o tempo todo ficaria para sempre com o valor anterior a uma escrita feita em
+ * outra instância. A cada catalog.cache.lifespan as regiões de Prato, Chef e Bebida e o cache de
+ * consultas são esvaziados; nenhuma entrada vive mais que isso, e a leitura seguinte volta ao banco.
+ */
+@ApplicationScoped
+public class CatalogCacheExpiry {
+
+    private static final Logger LOG = Logger.getLogger(CatalogCacheExpiry.class);
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Scheduled(every = "${catalog.cache.lifespan:30s}", delayed = "${catalog.cache.lifespan:30s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void expire() {
+        Cache cache = sessionFactory.getCache();
+        cache.evictEntityData(Prato.class);
+        cache.evictEntityData(Chef.class);
+        cache.evictEntityData(Bebida.class);
+        cache.evictDefaultQueryRegion();
+        LOG.debug("Cache do cardápio esvaziado");
+    }
+}
@@ -0,0 +1,64 @@
+package org.acme;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Métricas do cache de segundo nível do cardápio (pratos, chefs, bebidas) e do cache
+ * de consultas das buscas, por região:
+ *
+ * - catalog.cache.hits / catalog.cache.misses: contadores, para taxa por janela no Prometheus
+ * - catalog.cache.hit.ratio: acertos / (acertos + faltas) desde o início
+ *
+ * Os números vêm das estatísticas do Hibernate (quarkus.hibernate-orm.metrics.enabled).
+ */
+@ApplicationScoped
+public class CatalogCacheMetrics {
+
+    // Regiões de entidade levam o nome da classe; a de consultas é a padrão do Hibernate
+    static final String QUERY_REGION = "default-query-results-region";
+    static final List<String> REGIONS = List.of(
+            Prato.class.getName(), Chef.class.getName(), Bebida.class.getName(), QUERY_REGION);
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Inject
+    MeterRegistry registry;
+
+    void onStart(@Observes StartupEvent event) {
+        for (String region : REGIONS) {
+            FunctionCounter.builder("catalog.cache.hits", this, metrics -> metrics.read(region, CacheRegionStatistics::getHitCount))
+                    .tag("region", region)
+                    .register(registry);
+            FunctionCounter.builder("catalog.cache.misses", this, metrics -> metrics.read(region, CacheRegionStatistics::getMissCount))
+                    .tag("region", region)
+                    .register(registry);
+            Gauge.builder("catalog.cache.hit.ratio", this, metrics -> metrics.hitRatio(region))
+                    .tag("region", region)
+                    .register(registry);
+        }
+    }
+
+    double hitRatio(String region) {
+        double hits = read(region, CacheRegionStatistics::getHitCount);
+        double misses = read(region, CacheRegionStatistics::getMissCount);
+        return hits + misses == 0 ? Double.NaN : hits / (hits + misses);
+    }
+
+    private double read(String region, ToDoubleFunction<CacheRegionStatistics> value) {
+        CacheRegionStatistics statistics = sessionFactory.getStatistics().getCacheRegionStatistics(region);
+        // Região ainda não criada (nenhum acesso) ou estatísticas desligadas
+        return statistics == null ? 0 : value.applyAsDouble(statistics);
+    }
+}
@@ -1,14 +1,44 @@
 package org.acme;
 
-import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import org.acme.search.SearchIndexListener;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.Instant;
+
+// Índices (coluna, id) para a paginação keyset das buscas ordenadas
+// Cardápio: lido muito mais do que escrito, fica no cache de segundo nível
 @Entity
-public class Chef extends PanacheEntity {
+@Cacheable
+@EntityListeners(SearchIndexListener.class)
+@Table(indexes = {
+        @Index(name = "idx_chef_nome", columnList = "nome, id"),
+        @Index(name = "idx_chef_especialidade", columnList = "especialidade, id"),
+        @Index(name = "idx_chef_anos_experiencia", columnList = "anosDeExperiencia, id")
+})
+public class Chef extends PanacheEntityBase implements Versioned {
+
+    // Poucas inclusões: bloco menor para não desperdiçar ids a cada reinício
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chef_seq")
+    @SequenceGenerator(name = "chef_seq", sequenceName = "chef_seq", allocationSize = 20)
+    public Long id;
 
     @NotNull
     @Size(min = 2, max = 100, message = "O nome do chef deve ter entre 2 a 100 letras")
@@ -21,10 +51,28 @@ public class Chef extends PanacheEntity {
     @Min(value = 0, message = "Os anos de experiência não podem ser negativos")
     public int anosDeExperiencia;
 
-    
-    @OneToOne(mappedBy = "chefResponsavel")
+    // Lado inverso: sem o bytecode enhancement do Quarkus não haveria como deixá-lo lazy
+    @OneToOne(mappedBy = "chefResponsavel", fetch = FetchType.LAZY)
     public Prato pratoAssinado;
 
+    @Version
+    @JsonIgnore
+    public long versao;
+
+    @UpdateTimestamp
+    @JsonIgnore
+    public Instant atualizadoEm;
+
+    @Override
+    public long versao() {
+        return versao;
+    }
+
+    @Override
+    public Instant atualizadoEm() {
+        return atualizadoEm;
+    }
+
     public Chef() {
     }
 
@@ -33,4 +81,5 @@ public class Chef extends PanacheEntity {
         this.especialidade = especialidade;
         this.anosDeExperiencia = anosDeExperiencia;
     }
+
 }
\ No newline at end of file
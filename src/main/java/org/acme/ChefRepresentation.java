@@ -1,5 +1,6 @@
 package org.acme;
 
+import io.quarkus.hibernate.orm.panache.common.ProjectedFieldName;
 import jakarta.ws.rs.core.UriInfo;
 import java.net.URI;
 import java.util.HashMap;
@@ -12,25 +13,31 @@ public class ChefRepresentation {
     public int anosDeExperiencia;
     public Map<String, String> _links;
 
-    public ChefRepresentation() {
+    /**
+     * Único construtor, usado nas projeções (Chef.find(...).project(ChefRepresentation.class)):
+     * a consulta seleciona só estas colunas, sem carregar a entidade. Os links vêm de {@link #withLinks}.
+     */
+    public ChefRepresentation(@ProjectedFieldName("id") Long id,
+                              @ProjectedFieldName("nome") String nome,
+                              @ProjectedFieldName("especialidade") String especialidade,
+                              @ProjectedFieldName("anosDeExperiencia") int anosDeExperiencia) {
+        this.id = id;
+        this.nome = nome;
+        this.especialidade = especialidade;
+        this.anosDeExperiencia = anosDeExperiencia;
     }
 
     public static ChefRepresentation from(Chef chef, UriInfo uriInfo) {
-        ChefRepresentation rep = new ChefRepresentation();
-        rep.id = chef.id; 
-        rep.nome = chef.nome;
-        rep.especialidade = chef.especialidade;
-        rep.anosDeExperiencia = chef.anosDeExperiencia;
+        return new ChefRepresentation(chef.id, chef.nome, chef.especialidade, chef.anosDeExperiencia).withLinks(uriInfo);
+    }
 
+    public ChefRepresentation withLinks(UriInfo uriInfo) {
         URI baseUri = uriInfo.getBaseUri();
-        rep._links = new HashMap<>();
-        rep._links.put("self", baseUri + "chefs/" + chef.id);
-        rep._links.put("all", baseUri + "chefs");
-        rep._links.put("delete", baseUri + "chefs/" + chef.id);
-        rep._links.put("update", baseUri + "chefs/" + chef.id);
-        
-        
-
-        return rep;
+        _links = new HashMap<>();
+        _links.put("self", baseUri + "chefs/" + id);
+        _links.put("all", baseUri + "chefs");
+        _links.put("delete", baseUri + "chefs/" + id);
+        _links.put("update", baseUri + "chefs/" + id);
+        return this;
     }
-}
\ No newline at end of file
+}
@@ -1,30 +1,51 @@
 package org.acme;
 
 import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import io.quarkus.panache.common.Parameters;
 import io.quarkus.panache.common.Sort;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
+import org.acme.search.SearchIndex;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.hibernate.jpa.HibernateHints;
 
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+@RunOnVirtualThread
 @Path("/chefs")
 public class ChefResource {
 
     @Context
     UriInfo uriInfo;
 
+    @Inject
+    SearchCounts counts;
+
+    @Inject
+    SearchIndex searchIndex;
+
+    @Inject
+    ListStreamer listStreamer;
+
+    @Inject
+    ResourceVersions versions;
+
     private ChefRepresentation rep(Chef c) {
         return ChefRepresentation.from(c, uriInfo);
     }
@@ -36,8 +57,15 @@ public class ChefResource {
     @GET
     @Operation(summary = "Retorna todos os chefs")
     @APIResponse(responseCode = "200", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ChefRepresentation.class, type = SchemaType.ARRAY)))
-    public Response getAll() {
-        return Response.ok(repList(Chef.listAll())).build();
+    @Produces({MediaType.APPLICATION_JSON, ListStreamer.APPLICATION_NDJSON})
+    public Response getAll(@Context HttpHeaders headers, @Context Request request) {
+        ResourceVersion version = versions.ofAll(Chef.class, headers);
+        Response notModified = version.evaluate(request);
+        if (notModified != null) {
+            return notModified;
+        }
+        return version.tag(listStreamer.stream(headers, "select new org.acme.ChefRepresentation(id, nome, especialidade, anosDeExperiencia) from Chef",
+                ChefRepresentation.class, rep -> rep.id, rep -> rep.withLinks(uriInfo))).build();
     }
 
     @GET
@@ -45,12 +73,17 @@ public class ChefResource {
     @Operation(summary = "Retorna um chef específico pelo ID")
     @APIResponse(responseCode = "200", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ChefRepresentation.class)))
     @APIResponse(responseCode = "404", description = "Chef não encontrado")
-    public Response getById(@PathParam("id") long id) {
+    public Response getById(@PathParam("id") long id, @Context Request request) {
         Chef entity = Chef.findById(id);
         if (entity == null) {
             return Response.status(404).build();
         }
-        return Response.ok(rep(entity)).build();
+        ResourceVersion version = ResourceVersion.of(entity);
+        Response notModified = version.evaluate(request);
+        if (notModified != null) {
+            return notModified;
+        }
+        return version.tag(Response.ok(rep(entity))).build();
     }
 
     @GET
@@ -62,23 +95,55 @@ public class ChefResource {
             @QueryParam("sort") @DefaultValue("id") String sort,
             @QueryParam("direction") @DefaultValue("asc") String direction,
             @QueryParam("page") @DefaultValue("1") int page,
-            @QueryParam("size") @DefaultValue("10") int size
+            @QueryParam("size") @DefaultValue("10") int size,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("count") @DefaultValue("exact") String count
     ) {
-        Set<String> allowed = Set.of("id", "nome", "especialidade", "anosDeExperiencia");
+        Set<String> allowed = Set.of("id", "nome", "especialidade", "anosDeExperiencia", SearchCursor.RELEVANCE);
+        SearchCursor seek = SearchCursor.decode(cursor, allowed);
+        CountMode countMode = CountMode.parse(count);
+        if (seek != null) {
+            sort = seek.sort;
+            direction = seek.direction();
+            page = seek.page;
+        }
         if (!allowed.contains(sort)) sort = "id";
+        boolean descending = "desc".equalsIgnoreCase(direction);
+
+        Parameters params = new Parameters();
+        String filter = searchIndex.filter(Chef.class, q, "lower(nome) like :q or lower(especialidade) like :q", params);
+        // Ordenar por relevância só é possível quando o índice de texto respondeu a busca
+        List<Long> ranked = SearchCursor.RELEVANCE.equals(sort) ? searchIndex.ranked(Chef.class, q) : null;
+        if (SearchCursor.RELEVANCE.equals(sort) && ranked == null) {
+            sort = "id";
+            seek = null;
+        }
 
-        Sort sortObj = Sort.by(sort, "desc".equalsIgnoreCase(direction) ? Sort.Direction.Descending : Sort.Direction.Ascending);
-        int effectivePage = page <= 1 ? 0 : page - 1;
-
-        PanacheQuery<Chef> query = (q == null || q.isBlank())
-                ? Chef.findAll(sortObj)
-                : Chef.find("lower(nome) like ?1 or lower(especialidade) like ?1", sortObj, "%" + q.toLowerCase() + "%");
-
-        long totalElements = query.count();
-        long totalPages = (long) Math.ceil((double) totalElements / size);
-        List<Chef> chefs = query.page(effectivePage, size).list();
+        Long totalElements = counts.count(countMode, Chef.class, filter, params,
+                () -> filter == null ? Chef.count() : Chef.count(filter, params));
+        Long totalPages = totalElements == null ? null : (long) Math.ceil((double) totalElements / size);
+
+        // Com cursor a página é buscada por seek (custo constante); sem ele, OFFSET como antes.
+        // Nos dois casos vem uma linha a mais, para saber se há próxima página sem depender do total.
+        // As consultas projetam direto na representação: nada de entidade gerenciada nem dirty checking.
+        // O resultado fica no cache de consultas até a próxima escrita em chefs.
+        List<ChefRepresentation> chefs;
+        if (ranked != null) {
+            chefs = repList(searchIndex.page(Chef.class, ranked, (page <= 1 ? 0 : page - 1) * size, size + 1));
+        } else if (seek != null) {
+            chefs = seek.list(Chef.find(seek.where(filter), seek.sort(), seek.bind(params, Chef.class)).project(ChefRepresentation.class)
+                    .withHint(HibernateHints.HINT_CACHEABLE, true), size);
+        } else {
+            Sort sortObj = SearchCursor.sort(sort, descending);
+            PanacheQuery<ChefRepresentation> query = (filter == null ? Chef.findAll(sortObj) : Chef.find(filter, sortObj, params)).project(ChefRepresentation.class)
+                    .withHint(HibernateHints.HINT_CACHEABLE, true);
+            int first = (page <= 1 ? 0 : page - 1) * size;
+            chefs = query.range(first, first + size).list();
+        }
+        boolean hasNext = SearchCursor.trim(chefs, size, ranked != null ? null : seek);
 
-        SearchChefResponse response = SearchChefResponse.from(chefs, uriInfo, q, sort, direction, page, size, totalElements, totalPages);
+        SearchChefResponse response = SearchChefResponse.from(chefs, uriInfo, q, sort, direction, page, size, totalElements, totalPages,
+                countMode == CountMode.ESTIMATE, cursor, SearchCursor.next(chefs, sort, descending, page, hasNext), SearchCursor.prev(chefs, sort, descending, page));
         return Response.ok(response).build();
     }
 
@@ -97,11 +162,18 @@ public class ChefResource {
     @Operation(summary = "Exclui um chef")
     @APIResponse(responseCode = "204", description = "Excluído")
     @APIResponse(responseCode = "404", description = "Chef não encontrado")
-    public Response delete(@PathParam("id") long id) {
-        if (Chef.deleteById(id)) {
-            return Response.noContent().build();
+    public Response delete(@PathParam("id") long id, @Context Request request) {
+        Chef entity = Chef.findById(id);
+        if (entity == null) {
+            return Response.status(404).build();
         }
-        return Response.status(404).build();
+        Response precondition = versions.precondition(entity, request);
+        if (precondition != null) {
+            return precondition;
+        }
+        entity.delete();
+        Chef.flush();
+        return Response.noContent().build();
     }
 
     @PUT
@@ -110,15 +182,19 @@ public class ChefResource {
     @Operation(summary = "Atualiza um chef")
     @APIResponse(responseCode = "200", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ChefRepresentation.class)))
     @APIResponse(responseCode = "404", description = "Chef não encontrado")
-    public Response update(@PathParam("id") long id, @Valid Chef newChef) {
+    public Response update(@PathParam("id") long id, @Valid Chef newChef, @Context Request request) {
         Chef entity = Chef.findById(id);
         if (entity == null) {
             return Response.status(404).build();
         }
+        Response precondition = versions.precondition(entity, request);
+        if (precondition != null) {
+            return precondition;
+        }
         entity.nome = newChef.nome;
         entity.especialidade = newChef.especialidade;
         entity.anosDeExperiencia = newChef.anosDeExperiencia;
-        return Response.ok(rep(entity)).build();
+        return versions.written(entity, Response.ok(rep(entity)));
     }
 
     // --- Endpoints de Relacionamento ---
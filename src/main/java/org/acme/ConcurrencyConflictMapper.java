@@ -0,0 +1,35 @@
+package org.acme;
+
+import jakarta.persistence.OptimisticLockException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.hibernate.exception.ConstraintViolationException;
+import org.jboss.resteasy.reactive.server.ServerExceptionMapper;
+
+/**
+ * Conflito de versão detectado pelo Hibernate ao gravar ("update ... where id = ? and versao = ?"
+ * sem linha afetada): outra requisição alterou o registro depois que este request o leu.
+ *
+ * Também as constraints do banco (unicidade, chave estrangeira) que escaparam da conferência
+ * feita antes de gravar, por corrida com outra requisição: 409 em vez de 500.
+ */
+public class ConcurrencyConflictMapper {
+
+    @ServerExceptionMapper
+    public Response conflict(OptimisticLockException e, HttpHeaders headers) {
+        // Com If-Match o cliente condicionou a escrita a uma versão que deixou de existir: 412.
+        // Sem ele não houve pré-condição, só a corrida: 409. Nos dois casos nada foi gravado.
+        int status = headers.getHeaderString(HttpHeaders.IF_MATCH) == null ? 409 : 412;
+        return Response.status(status)
+                .entity("O recurso foi alterado por outra requisição; busque a versão atual e tente de novo")
+                .build();
+    }
+
+    @ServerExceptionMapper
+    public Response constraint(ConstraintViolationException e) {
+        // A mensagem do banco (SQL, nome da constraint) não vai para o cliente
+        return Response.status(409)
+                .entity("A alteração conflita com outro registro; busque os dados atuais e tente de novo")
+                .build();
+    }
+}
@@ -0,0 +1,31 @@
+package org.acme;
+
+import jakarta.ws.rs.BadRequestException;
+
+import java.util.Locale;
+
+/**
+ * Como o total de uma busca é calculado (parâmetro count dos endpoints /search)
+ */
+public enum CountMode {
+
+    /** count(*) sobre o filtro, a cada requisição (padrão) */
+    EXACT,
+
+    /** Estatística da tabela ou contagem recente em cache; o total vem marcado como estimado */
+    ESTIMATE,
+
+    /** Sem total; a existência da próxima página é descoberta buscando uma linha a mais */
+    NONE;
+
+    public static CountMode parse(String value) {
+        if (value == null || value.isBlank()) {
+            return EXACT;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("count deve ser exact, estimate ou none");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.acme;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Escreve as listagens completas (GET /pedidos, /pratos, /chefs, /bebidas) à medida que
+ * as linhas chegam do banco, em vez de montar a lista inteira antes de serializar.
+ *
+ * A consulta é lida em lotes de fetch-size linhas por keyset (id maior que o último escrito),
+ * cada lote numa StatelessSession e numa transação curta: a memória fica limitada ao lote
+ * corrente seja qual for o tamanho da tabela, e um cliente lento não segura conexão nem
+ * transação enquanto consome a resposta. Por isso a listagem não é um snapshot: linhas gravadas
+ * durante a escrita podem ou não aparecer, conforme o lote em que caem.
+ * A resposta sai em chunked transfer, como array JSON (padrão) ou NDJSON (uma representação
+ * por linha) quando o cliente pede application/x-ndjson.
+ *
+ * Como o status 200 já foi enviado quando a escrita começa, um erro no meio da
+ * listagem só pode interromper a conexão: o cliente recebe um JSON incompleto.
+ */
+@ApplicationScoped
+public class ListStreamer {
+
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    public static final MediaType APPLICATION_NDJSON_TYPE = MediaType.valueOf(APPLICATION_NDJSON);
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    // Linhas buscadas por lote (uma transação cada) e escritas entre flushes
+    @ConfigProperty(name = "streaming.fetch-size", defaultValue = "500")
+    int fetchSize;
+
+    /**
+     * @param headers - Cabeçalhos do request, para escolher entre JSON e NDJSON
+     * @param query   - Consulta HQL com "select new" da representação, sem where nem order by
+     *                (o keyset "where id > :after order by id" é acrescentado aqui)
+     * @param type    - Classe da representação
+     * @param id      - Id da linha na representação, início do lote seguinte
+     * @param links   - Completa cada representação antes de escrever (ex.: links HATEOAS)
+     */
+    public <T> Response.ResponseBuilder stream(HttpHeaders headers, String query, Class<T> type, ToLongFunction<T> id,
+                                               UnaryOperator<T> links) {
+        boolean ndjson = wantsNdjson(headers);
+        StreamingOutput body = out -> write(out, query + " where id > :after order by id", type, id, links, ndjson);
+        return Response.ok(body, ndjson ? APPLICATION_NDJSON_TYPE : MediaType.APPLICATION_JSON_TYPE);
+    }
+
+    private <T> void write(OutputStream out, String query, Class<T> type, ToLongFunction<T> id, UnaryOperator<T> links,
+                           boolean ndjson) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            if (ndjson) {
+                // Separador entre valores de topo fica a cargo do '\n' abaixo
+                generator.setRootValueSeparator(null);
+            } else {
+                generator.writeStartArray();
+            }
+            long after = Long.MIN_VALUE;
+            List<T> rows;
+            do {
+                rows = chunk(query, type, after);
+                for (T row : rows) {
+                    writer.writeValue(generator, links.apply(row));
+                    if (ndjson) {
+                        generator.writeRaw('\n');
+                    }
+                }
+                if (!rows.isEmpty()) {
+                    after = id.applyAsLong(rows.get(rows.size() - 1));
+                }
+                // Entrega cada lote ao cliente sem esperar o fim da listagem
+                generator.flush();
+            } while (rows.size() == fetchSize);
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+        }
+    }
+
+    // A transação termina antes de o lote ser escrito: a escrita no cliente nunca a segura
+    private <T> List<T> chunk(String query, Class<T> type, long after) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            try (StatelessSession session = sessionFactory.openStatelessSession()) {
+                return session.createSelectionQuery(query, type)
+                        .setParameter("after", after)
+                        .setMaxResults(fetchSize)
+                        .getResultList();
+            }
+        });
+    }
+
+    // Só NDJSON pedido explicitamente; "*/*" e application/json continuam recebendo o array
+    static boolean wantsNdjson(HttpHeaders headers) {
+        for (MediaType accepted : headers.getAcceptableMediaTypes()) {
+            if (accepted.isWildcardType() || accepted.isWildcardSubtype()) {
+                continue;
+            }
+            if (accepted.isCompatible(APPLICATION_NDJSON_TYPE)) {
+                return true;
+            }
+            if (accepted.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
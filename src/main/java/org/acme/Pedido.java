@@ -1,16 +1,38 @@
 package org.acme;
 
-import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import org.acme.search.SearchIndexListener;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
+// Índices (coluna, id) para a paginação keyset das buscas ordenadas
 @Entity
-public class Pedido extends PanacheEntity {
+@EntityListeners(SearchIndexListener.class)
+@Table(indexes = {
+        @Index(name = "idx_pedido_nome_cliente", columnList = "nomeCliente, id"),
+        @Index(name = "idx_pedido_numero_mesa", columnList = "numeroMesa, id"),
+        @Index(name = "idx_pedido_status", columnList = "status, id")
+})
+public class Pedido extends PanacheEntityBase implements Versioned {
+
+    // POST /pedidos é o insert mais frequente: um bloco de 100 ids por ida à sequence
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedido_seq")
+    @SequenceGenerator(name = "pedido_seq", sequenceName = "pedido_seq", allocationSize = 100)
+    public Long id;
 
 
     public enum StatusPedido {
@@ -18,7 +40,34 @@ public class Pedido extends PanacheEntity {
         EM_PREPARO,
         PRONTO_PARA_ENTREGA,
         FINALIZADO,
-        CANCELADO
+        CANCELADO;
+
+        // Fluxo da cozinha; FINALIZADO e CANCELADO são finais
+        private static final Map<StatusPedido, Set<StatusPedido>> NEXT = new EnumMap<>(StatusPedido.class);
+        private static final Map<StatusPedido, Set<StatusPedido>> PREVIOUS = new EnumMap<>(StatusPedido.class);
+
+        static {
+            NEXT.put(RECEBIDO, EnumSet.of(EM_PREPARO, CANCELADO));
+            NEXT.put(EM_PREPARO, EnumSet.of(PRONTO_PARA_ENTREGA, CANCELADO));
+            NEXT.put(PRONTO_PARA_ENTREGA, EnumSet.of(FINALIZADO));
+            NEXT.put(FINALIZADO, EnumSet.noneOf(StatusPedido.class));
+            NEXT.put(CANCELADO, EnumSet.noneOf(StatusPedido.class));
+            for (StatusPedido status : values()) {
+                PREVIOUS.put(status, EnumSet.noneOf(StatusPedido.class));
+            }
+            NEXT.forEach((from, targets) -> targets.forEach(to -> PREVIOUS.get(to).add(from)));
+        }
+
+        public boolean canTransitionTo(StatusPedido target) {
+            return NEXT.get(this).contains(target);
+        }
+
+        /**
+         * Status a partir dos quais se chega a este; vazio para RECEBIDO
+         */
+        public Set<StatusPedido> previous() {
+            return Collections.unmodifiableSet(PREVIOUS.get(this));
+        }
     }
 
     @NotNull
@@ -38,8 +87,27 @@ public class Pedido extends PanacheEntity {
     @JoinTable(name = "pedido_prato",
             joinColumns = @JoinColumn(name = "pedido_id"),
             inverseJoinColumns = @JoinColumn(name = "prato_id"))
+    @BatchSize(size = 32)
     public Set<Prato> pratos = new HashSet<>();
 
+    // Incrementada pelo Hibernate a cada alteração; é o ETag do recurso
+    @Version
+    @JsonIgnore
+    public long versao;
+
+    @UpdateTimestamp
+    @JsonIgnore
+    public Instant atualizadoEm;
+
+    @Override
+    public long versao() {
+        return versao;
+    }
+
+    @Override
+    public Instant atualizadoEm() {
+        return atualizadoEm;
+    }
 
     public Pedido() {
     }
@@ -1,10 +1,12 @@
 package org.acme;
 
+import io.quarkus.hibernate.orm.panache.common.ProjectedFieldName;
 import jakarta.ws.rs.core.UriInfo;
-import org.acme.Pedido;
 
 import java.math.BigDecimal;
 import java.net.URI;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,25 +21,46 @@ public class PedidoRepresentation {
     public Map<String, String> _links;
     public List<Map<String, Object>> pratos;
 
-    public PedidoRepresentation() {
+    /**
+     * Único construtor, usado nas projeções (Pedido.find(...).project(PedidoRepresentation.class)):
+     * a consulta seleciona só estas colunas, sem carregar a entidade. Os links vêm de {@link #withLinks}.
+     */
+    public PedidoRepresentation(@ProjectedFieldName("id") Long id,
+                                @ProjectedFieldName("nomeCliente") String nomeCliente,
+                                @ProjectedFieldName("numeroMesa") int numeroMesa,
+                                @ProjectedFieldName("status") Pedido.StatusPedido status) {
+        this.id = id;
+        this.nomeCliente = nomeCliente;
+        this.numeroMesa = numeroMesa;
+        this.status = status;
     }
 
     public static PedidoRepresentation from(Pedido pedido, UriInfo uriInfo) {
-        PedidoRepresentation rep = new PedidoRepresentation();
-        rep.id = pedido.id;
-        rep.nomeCliente = pedido.nomeCliente;
-        rep.numeroMesa = pedido.numeroMesa;
-        rep.status = pedido.status;
+        return new PedidoRepresentation(pedido.id, pedido.nomeCliente, pedido.numeroMesa, pedido.status).withLinks(uriInfo);
+    }
 
+    /**
+     * Preenche pratos (id, nome e link de cada um), para respostas que alteram os pratos do pedido
+     */
+    public PedidoRepresentation withPratos(Collection<Prato> pratosDoPedido, UriInfo uriInfo) {
         URI baseUri = uriInfo.getBaseUri();
-        rep._links = new HashMap<>();
-        rep._links.put("self", baseUri + "pedidos/" + pedido.id);
-        rep._links.put("all", baseUri + "pedidos");
-        rep._links.put("delete", baseUri + "pedidos/" + pedido.id);
-        rep._links.put("update", baseUri + "pedidos/" + pedido.id);
-
-
+        pratos = pratosDoPedido.stream()
+                .sorted(Comparator.comparing(prato -> prato.id))
+                .map(prato -> Map.<String, Object>of(
+                        "id", prato.id,
+                        "nome", prato.nome,
+                        "_links", Map.of("self", baseUri + "pratos/" + prato.id)))
+                .collect(Collectors.toList());
+        return this;
+    }
 
-        return rep;
+    public PedidoRepresentation withLinks(UriInfo uriInfo) {
+        URI baseUri = uriInfo.getBaseUri();
+        _links = new HashMap<>();
+        _links.put("self", baseUri + "pedidos/" + id);
+        _links.put("all", baseUri + "pedidos");
+        _links.put("delete", baseUri + "pedidos/" + id);
+        _links.put("update", baseUri + "pedidos/" + id);
+        return this;
     }
-}
\ No newline at end of file
+}
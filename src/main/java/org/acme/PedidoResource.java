@@ -1,30 +1,72 @@
 package org.acme;
 
 import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import io.quarkus.panache.common.Parameters;
 import io.quarkus.panache.common.Sort;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.inject.Inject;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.Query;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.acme.kitchen.KitchenEventBus;
+import org.acme.kitchen.PedidoEvent;
+import org.acme.search.SearchIndex;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+// Threads virtuais só com quarkus.virtual-threads.enabled=true; desligado, os métodos voltam ao worker pool
+@RunOnVirtualThread
 @Path("/pedidos")
 public class PedidoResource {
 
+    // Pratos por requisição nos endpoints de lote (POST/DELETE /pedidos/{id}/pratos)
+    static final int MAX_PRATOS_POR_LOTE = 100;
+
     @Context
     UriInfo uriInfo;
 
+    @Inject
+    SearchCounts counts;
+
+    @Inject
+    SearchIndex searchIndex;
+
+    @Inject
+    ListStreamer listStreamer;
+
+    @Inject
+    ResourceVersions versions;
+
+    @Inject
+    KitchenEventBus kitchen;
+
     private PedidoRepresentation rep(Pedido p) {
         return PedidoRepresentation.from(p, uriInfo);
     }
@@ -36,8 +78,15 @@ public class PedidoResource {
     @GET
     @Operation(summary = "Retorna todos os pedidos")
     @APIResponse(responseCode = "200", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PedidoRepresentation.class, type = SchemaType.ARRAY)))
-    public Response getAll() {
-        return Response.ok(repList(Pedido.listAll())).build();
+    @Produces({MediaType.APPLICATION_JSON, ListStreamer.APPLICATION_NDJSON})
+    public Response getAll(@Context HttpHeaders headers, @Context Request request) {
+        ResourceVersion version = versions.ofAll(Pedido.class, headers);
+        Response notModified = version.evaluate(request);
+        if (notModified != null) {
+            return notModified;
+        }
+        return version.tag(listStreamer.stream(headers, "select new org.acme.PedidoRepresentation(id, nomeCliente, numeroMesa, status) from Pedido",
+                PedidoRepresentation.class, rep -> rep.id, rep -> rep.withLinks(uriInfo))).build();
     }
 
     @GET
@@ -45,12 +94,38 @@ public class PedidoResource {
     @Operation(summary = "Retorna um pedido específico pelo ID")
     @APIResponse(responseCode = "200", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PedidoRepresentation.class)))
     @APIResponse(responseCode = "404", description = "Pedido não encontrado")
-    public Response getById(@PathParam("id") long id) {
-        Pedido entity = Pedido.findById(id);
-        if (entity == null) {
+    public Response getById(@PathParam("id") long id, @Context Request request) {
+        // Representação e versão na mesma linha: o ETag é sempre o do corpo enviado,
+        // e o 304 sai sem carregar o pedido nem serializar nada
+        List<Object[]> rows = Pedido.getEntityManager()
+                .createQuery("select new org.acme.PedidoRepresentation(id, nomeCliente, numeroMesa, status), versao, atualizadoEm"
+                        + " from Pedido where id = :id", Object[].class)
+                .setParameter("id", id)
+                .getResultList();
+        if (rows.isEmpty()) {
             return Response.status(404).build();
         }
-        return Response.ok(rep(entity)).build();
+        Object[] row = rows.get(0);
+        ResourceVersion version = ResourceVersion.of((Long) row[1], (Instant) row[2]);
+        Response notModified = version.evaluate(request);
+        if (notModified != null) {
+            return notModified;
+        }
+        return version.tag(Response.ok(((PedidoRepresentation) row[0]).withLinks(uriInfo))).build();
+    }
+
+    @GET
+    @Path("/eventos")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @Operation(summary = "Stream (SSE) das mudanças de status e de pratos dos pedidos, para os painéis da cozinha")
+    @APIResponse(responseCode = "200", description = "Um evento por mudança gravada; \"resync\" quando o painel perdeu eventos")
+    @APIResponse(responseCode = "503", description = "Limite de painéis conectados atingido")
+    public void eventos(@Context SseEventSink sink, @Context Sse sse,
+                        @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) Long lastEventId,
+                        @QueryParam("status") Set<Pedido.StatusPedido> status) {
+        if (!kitchen.subscribe(sink, sse, lastEventId, status)) {
+            throw new ServiceUnavailableException("Limite de painéis conectados atingido", 5L);
+        }
     }
 
     @GET
@@ -62,23 +137,52 @@ public class PedidoResource {
             @QueryParam("sort") @DefaultValue("id") String sort,
             @QueryParam("direction") @DefaultValue("asc") String direction,
             @QueryParam("page") @DefaultValue("1") int page,
-            @QueryParam("size") @DefaultValue("10") int size
+            @QueryParam("size") @DefaultValue("10") int size,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("count") @DefaultValue("exact") String count
     ) {
-        Set<String> allowed = Set.of("id", "nomeCliente", "numeroMesa", "status");
+        Set<String> allowed = Set.of("id", "nomeCliente", "numeroMesa", "status", SearchCursor.RELEVANCE);
+        SearchCursor seek = SearchCursor.decode(cursor, allowed);
+        CountMode countMode = CountMode.parse(count);
+        if (seek != null) {
+            sort = seek.sort;
+            direction = seek.direction();
+            page = seek.page;
+        }
         if (!allowed.contains(sort)) sort = "id";
+        boolean descending = "desc".equalsIgnoreCase(direction);
 
-        Sort sortObj = Sort.by(sort, "desc".equalsIgnoreCase(direction) ? Sort.Direction.Descending : Sort.Direction.Ascending);
-        int effectivePage = page <= 1 ? 0 : page - 1;
+        Parameters params = new Parameters();
+        String filter = searchIndex.filter(Pedido.class, q, "lower(nomeCliente) like :q", params);
+        // Ordenar por relevância só é possível quando o índice de texto respondeu a busca
+        List<Long> ranked = SearchCursor.RELEVANCE.equals(sort) ? searchIndex.ranked(Pedido.class, q) : null;
+        if (SearchCursor.RELEVANCE.equals(sort) && ranked == null) {
+            sort = "id";
+            seek = null;
+        }
 
-        PanacheQuery<Pedido> query = (q == null || q.isBlank())
-                ? Pedido.findAll(sortObj)
-                : Pedido.find("lower(nomeCliente) like ?1", sortObj, "%" + q.toLowerCase() + "%");
+        Long totalElements = counts.count(countMode, Pedido.class, filter, params,
+                () -> filter == null ? Pedido.count() : Pedido.count(filter, params));
+        Long totalPages = totalElements == null ? null : (long) Math.ceil((double) totalElements / size);
 
-        long totalElements = query.count();
-        long totalPages = (long) Math.ceil((double) totalElements / size);
-        List<Pedido> pedidos = query.page(effectivePage, size).list();
+        // Com cursor a página é buscada por seek (custo constante); sem ele, OFFSET como antes.
+        // Nos dois casos vem uma linha a mais, para saber se há próxima página sem depender do total.
+        // As consultas projetam direto na representação: nada de entidade gerenciada nem dirty checking.
+        List<PedidoRepresentation> pedidos;
+        if (ranked != null) {
+            pedidos = repList(searchIndex.page(Pedido.class, ranked, (page <= 1 ? 0 : page - 1) * size, size + 1));
+        } else if (seek != null) {
+            pedidos = seek.list(Pedido.find(seek.where(filter), seek.sort(), seek.bind(params, Pedido.class)).project(PedidoRepresentation.class), size);
+        } else {
+            Sort sortObj = SearchCursor.sort(sort, descending);
+            PanacheQuery<PedidoRepresentation> query = (filter == null ? Pedido.findAll(sortObj) : Pedido.find(filter, sortObj, params)).project(PedidoRepresentation.class);
+            int first = (page <= 1 ? 0 : page - 1) * size;
+            pedidos = query.range(first, first + size).list();
+        }
+        boolean hasNext = SearchCursor.trim(pedidos, size, ranked != null ? null : seek);
 
-        SearchPedidoResponse response = SearchPedidoResponse.from(pedidos, uriInfo, q, sort, direction, page, size, totalElements, totalPages);
+        SearchPedidoResponse response = SearchPedidoResponse.from(pedidos, uriInfo, q, sort, direction, page, size, totalElements, totalPages,
+                countMode == CountMode.ESTIMATE, cursor, SearchCursor.next(pedidos, sort, descending, page, hasNext), SearchCursor.prev(pedidos, sort, descending, page));
         return Response.ok(response).build();
     }
 
@@ -88,6 +192,7 @@ public class PedidoResource {
     @APIResponse(responseCode = "201", description = "Criado", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PedidoRepresentation.class)))
     public Response insert(@Valid Pedido pedido) {
         Pedido.persist(pedido);
+        kitchen.publish(PedidoEvent.Tipo.CRIADO, pedido);
         return Response.status(201).entity(rep(pedido)).build();
     }
 
@@ -97,11 +202,19 @@ public class PedidoResource {
     @Operation(summary = "Exclui um pedido")
     @APIResponse(responseCode = "204", description = "Excluído")
     @APIResponse(responseCode = "404", description = "Pedido não encontrado")
-    public Response delete(@PathParam("id") long id) {
-        if (Pedido.deleteById(id)) {
-            return Response.noContent().build();
+    public Response delete(@PathParam("id") long id, @Context Request request) {
+        Pedido entity = Pedido.findById(id);
+        if (entity == null) {
+            return Response.status(404).build();
+        }
+        Response precondition = versions.precondition(entity, request);
+        if (precondition != null) {
+            return precondition;
         }
-        return Response.status(404).build();
+        kitchen.publish(PedidoEvent.Tipo.EXCLUIDO, entity);
+        entity.delete();
+        Pedido.flush();
+        return Response.noContent().build();
     }
 
     @PUT
@@ -110,17 +223,144 @@ public class PedidoResource {
     @Operation(summary = "Atualiza um pedido")
     @APIResponse(responseCode = "200", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PedidoRepresentation.class)))
     @APIResponse(responseCode = "404", description = "Pedido não encontrado")
-    public Response update(@PathParam("id") long id, @Valid Pedido newPedido) {
+    @APIResponse(responseCode = "422", description = "Mudança de status fora do fluxo da cozinha")
+    public Response update(@PathParam("id") long id, @Valid Pedido newPedido, @Context Request request) {
         Pedido entity = Pedido.findById(id);
         if (entity == null) {
             return Response.status(404).build();
         }
+        Response precondition = versions.precondition(entity, request);
+        if (precondition != null) {
+            return precondition;
+        }
+        // O status segue o mesmo fluxo do PATCH /status; o PUT não pode, por exemplo, reabrir um pedido finalizado
+        if (newPedido.status != entity.status && !entity.status.canTransitionTo(newPedido.status)) {
+            return invalidTransition(entity.status, newPedido.status);
+        }
+        Pedido.StatusPedido anterior = entity.status;
         entity.nomeCliente = newPedido.nomeCliente;
         entity.numeroMesa = newPedido.numeroMesa;
         entity.status = newPedido.status;
-        return Response.ok(rep(entity)).build();
+        Response response = versions.written(entity, Response.ok(rep(entity)));
+        if (anterior != entity.status) {
+            kitchen.publish(PedidoEvent.Tipo.STATUS_ALTERADO, entity, anterior, null);
+        } else {
+            kitchen.publish(PedidoEvent.Tipo.ATUALIZADO, entity);
+        }
+        return response;
     }
     
+    @PATCH
+    @Path("{id}/status")
+    @Transactional
+    @Operation(summary = "Muda o status de um pedido seguindo o fluxo da cozinha")
+    @APIResponse(responseCode = "204", description = "Status alterado")
+    @APIResponse(responseCode = "404", description = "Pedido não encontrado")
+    @APIResponse(responseCode = "409", description = "O pedido não está num status a partir do qual a transição é permitida")
+    @APIResponse(responseCode = "412", description = "If-Match não confere com a versão atual")
+    @APIResponse(responseCode = "422", description = "Transição fora do fluxo")
+    public Response changeStatus(@PathParam("id") long id, @Valid @NotNull PedidoStatusChange change,
+                                 @Context Request request, @Context HttpHeaders headers) {
+        Set<Pedido.StatusPedido> from = change.de != null ? Set.of(change.de) : change.status.previous();
+        if (from.isEmpty() || (change.de != null && !change.de.canTransitionTo(change.status))) {
+            return invalidTransition(change.de, change.status);
+        }
+
+        // A linha só é lida antes quando o cliente mandou pré-condição, ou quando há mais de um
+        // status de origem possível e o evento precisa saber de qual o pedido saiu
+        boolean conditional = conditional(headers);
+        Long versao = null;
+        if (conditional || from.size() > 1) {
+            Object[] current = current(id);
+            if (current == null) {
+                return Response.status(404).build();
+            }
+            if (conditional) {
+                Response failed = precondition(current, request);
+                if (failed != null) {
+                    return failed;
+                }
+                versao = (Long) current[1];
+            }
+            Pedido.StatusPedido atual = (Pedido.StatusPedido) current[0];
+            if (!from.contains(atual)) {
+                return statusConflict(atual, change.status);
+            }
+            from = Set.of(atual);
+        }
+
+        // Um único UPDATE condicional: sem carregar o pedido, e quem chegar depois de outra troca não casa o WHERE.
+        // "versioned" incrementa a versão, como o @Version faria no flush.
+        Instant agora = Instant.now();
+        Query update = Pedido.getEntityManager()
+                .createQuery("update versioned Pedido set status = :status, atualizadoEm = :agora where id = :id and status in :from"
+                        + (versao == null ? "" : " and versao = :versao"))
+                .setParameter("status", change.status)
+                .setParameter("agora", agora)
+                .setParameter("id", id)
+                .setParameter("from", from);
+        if (versao != null) {
+            update.setParameter("versao", versao);
+        }
+        int updated = update.executeUpdate();
+        if (updated == 0) {
+            return statusConflict(id, versao, change.status);
+        }
+
+        Pedido.StatusPedido anterior = from.iterator().next();
+        Long nova = versao == null ? null : versao + 1;
+        kitchen.publishTransition(id, anterior, change.status, nova);
+        // Só com pré-condição a versão nova é conhecida sem reler a linha
+        return nova == null
+                ? Response.noContent().build()
+                : ResourceVersion.of(nova, agora).tag(Response.noContent()).build();
+    }
+
+    private static Response invalidTransition(Pedido.StatusPedido de, Pedido.StatusPedido para) {
+        return Response.status(422)
+                .entity("Transição não permitida: " + (de != null ? de : "*") + " → " + para)
+                .build();
+    }
+
+    // Escritas por UPDATE direto só leem a versão antes quando há If-Match ou If-Unmodified-Since
+    private static boolean conditional(HttpHeaders headers) {
+        return headers.getHeaderString(HttpHeaders.IF_MATCH) != null
+                || headers.getHeaderString(HttpHeaders.IF_UNMODIFIED_SINCE) != null;
+    }
+
+    // status, versao e atualizadoEm pela chave primária, sem carregar o pedido; null se ele não existe
+    private static Object[] current(long id) {
+        List<Object[]> rows = Pedido.getEntityManager()
+                .createQuery("select status, versao, atualizadoEm from Pedido where id = :id", Object[].class)
+                .setParameter("id", id)
+                .getResultList();
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    // Mesmas regras das escritas que carregam a entidade ({@link ResourceVersions#precondition})
+    private static Response precondition(Object[] current, Request request) {
+        return ResourceVersion.of((Long) current[1], (Instant) current[2]).evaluate(request);
+    }
+
+    // O UPDATE não casou: só neste caminho se consulta a linha, para responder o motivo
+    private Response statusConflict(long id, Long versao, Pedido.StatusPedido target) {
+        Object[] current = current(id);
+        if (current == null) {
+            return Response.status(404).build();
+        }
+        long atual = (Long) current[1];
+        if (versao != null && versao != atual) {
+            return ResourceVersion.of(atual, (Instant) current[2]).tag(Response.status(412)).build();
+        }
+        return statusConflict((Pedido.StatusPedido) current[0], target);
+    }
+
+    private static Response statusConflict(Pedido.StatusPedido atual, Pedido.StatusPedido target) {
+        return Response.status(409)
+                .entity("Pedido está em " + atual + "; transição para " + target + " não permitida")
+                .build();
+    }
+
     // --- Endpoints de Relacionamento (Adicionar/Remover Pratos) ---
 
     @POST
@@ -130,9 +370,11 @@ public class PedidoResource {
     @APIResponse(responseCode = "200", description = "Prato adicionado")
     @APIResponse(responseCode = "404", description = "Pedido ou Prato não encontrado")
     @APIResponse(responseCode = "409", description = "Prato já existe no pedido")
-    public Response addPrato(@PathParam("id") long pedidoId, @PathParam("pratoId") long pratoId) {
+    public Response addPrato(@PathParam("id") long pedidoId, @PathParam("pratoId") long pratoId, @Context Request request) {
         Pedido pedido = Pedido.findById(pedidoId);
         if (pedido == null) return Response.status(404).entity("Pedido não encontrado").build();
+        Response precondition = versions.precondition(pedido, request);
+        if (precondition != null) return precondition;
 
         Prato prato = Prato.findById(pratoId);
         if (prato == null) return Response.status(404).entity("Prato não encontrado").build();
@@ -142,7 +384,176 @@ public class PedidoResource {
         }
 
         pedido.pratos.add(prato);
-        return Response.ok(rep(pedido)).build();
+        // A coleção muda a versão, mas só um campo alterado renova a data (Last-Modified)
+        pedido.atualizadoEm = Instant.now();
+        Response response = versions.written(pedido, Response.ok(rep(pedido)));
+        kitchen.publish(PedidoEvent.Tipo.PRATO_ADICIONADO, pedido, null, pratoId);
+        return response;
+    }
+
+    @POST
+    @Path("{id}/pratos")
+    @Transactional
+    @Operation(summary = "Adiciona vários pratos a um pedido de uma vez")
+    @APIResponse(responseCode = "200", description = "Pedido com a lista de pratos atualizada; pratos que já estavam no pedido são ignorados",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = PedidoRepresentation.class)))
+    @APIResponse(responseCode = "404", description = "Pedido ou algum dos pratos não encontrado")
+    @APIResponse(responseCode = "412", description = "If-Match não confere com a versão atual")
+    public Response addPratos(@PathParam("id") long pedidoId,
+                              @NotNull @Size(min = 1, max = MAX_PRATOS_POR_LOTE) List<@NotNull Long> pratoIds,
+                              @Context Request request, @Context HttpHeaders headers) {
+        Set<Long> ids = new LinkedHashSet<>(pratoIds);
+        List<Long> missing = missingPratos(ids);
+        if (!missing.isEmpty()) {
+            return Response.status(404).entity("Pratos não encontrados: " + missing).build();
+        }
+        // A linha fica bloqueada até o commit, então lotes simultâneos no mesmo pedido não se misturam
+        Pedido pedido = Pedido.findById(pedidoId, LockModeType.PESSIMISTIC_WRITE);
+        if (pedido == null) return Response.status(404).entity("Pedido não encontrado").build();
+        Response precondition = versions.precondition(pedido, request);
+        if (precondition != null) return precondition;
+
+        List<Long> added = insertPratos(pedidoId, ids);
+        if (added.isEmpty()) {
+            // Todos os pratos já estavam no pedido: nada muda, nem a versão, nem a cozinha é avisada
+            return pratos(pedido, pedido.pratos);
+        }
+        // A coleção ainda não foi lida, então já vem com o INSERT; a data alterada gera a versão nova no flush
+        pedido.atualizadoEm = Instant.now();
+        Response response = versions.written(pedido, Response.ok(rep(pedido).withPratos(pedido.pratos, uriInfo)));
+        kitchen.publishPratos(PedidoEvent.Tipo.PRATOS_ADICIONADOS, pedido, added);
+        return response;
+    }
+
+    @DELETE
+    @Path("{id}/pratos")
+    @Transactional
+    @Operation(summary = "Remove vários pratos de um pedido de uma vez")
+    @APIResponse(responseCode = "200", description = "Pedido com a lista de pratos atualizada",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = PedidoRepresentation.class)))
+    @APIResponse(responseCode = "404", description = "Pedido não encontrado, ou algum prato não pertence ao pedido (nada é removido)")
+    @APIResponse(responseCode = "412", description = "If-Match não confere com a versão atual")
+    public Response removePratos(@PathParam("id") long pedidoId,
+                                 @QueryParam("pratoId") @Size(min = 1, max = MAX_PRATOS_POR_LOTE) List<Long> pratoIds,
+                                 @Context Request request, @Context HttpHeaders headers) {
+        Set<Long> ids = new LinkedHashSet<>(pratoIds);
+        Response precondition = touch(pedidoId, request, headers);
+        if (precondition != null) return precondition;
+
+        int removed = pedidoPrato("delete from pedido_prato where pedido_id = :pedido and prato_id in (:pratos)", pedidoId, ids);
+        if (removed < ids.size()) {
+            // Exceção em vez de resposta para a transação desfazer o que já foi removido
+            throw new NotFoundException(Response.status(404).entity("Prato não pertence a este pedido").build());
+        }
+        return pratosChanged(pedidoId, PedidoEvent.Tipo.PRATOS_REMOVIDOS, ids);
+    }
+
+    // Pratos ficam no cache de segundo nível: com o cache quente a conferência não vai ao banco
+    private static List<Long> missingPratos(Collection<Long> ids) {
+        List<Prato> found = Pedido.getEntityManager().unwrap(Session.class)
+                .byMultipleIds(Prato.class)
+                .multiLoad(List.copyOf(ids));
+        List<Long> missing = new ArrayList<>();
+        int i = 0;
+        for (Long id : ids) {
+            if (found.get(i++) == null) {
+                missing.add(id);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Nova versão do pedido antes de mexer nos pratos, com um UPDATE que também confere a pré-condição.
+     * A linha fica bloqueada até o commit, então lotes simultâneos no mesmo pedido não se misturam.
+     *
+     * @return 404 ou 412 já prontos, ou null para seguir
+     */
+    private Response touch(long pedidoId, Request request, HttpHeaders headers) {
+        Long versao = null;
+        if (conditional(headers)) {
+            Object[] current = current(pedidoId);
+            if (current == null) {
+                return Response.status(404).entity("Pedido não encontrado").build();
+            }
+            Response failed = precondition(current, request);
+            if (failed != null) {
+                return failed;
+            }
+            versao = (Long) current[1];
+        }
+        Query update = Pedido.getEntityManager()
+                .createQuery("update versioned Pedido set atualizadoEm = :agora where id = :id"
+                        + (versao == null ? "" : " and versao = :versao"))
+                .setParameter("agora", Instant.now())
+                .setParameter("id", pedidoId);
+        if (versao != null) {
+            update.setParameter("versao", versao);
+        }
+        if (update.executeUpdate() == 1) {
+            return null;
+        }
+        Object[] current = current(pedidoId);
+        if (current == null) {
+            return Response.status(404).entity("Pedido não encontrado").build();
+        }
+        return ResourceVersion.of((Long) current[1], (Instant) current[2]).tag(Response.status(412)).build();
+    }
+
+    /**
+     * Inclui os pratos que ainda não estão no pedido e devolve os que de fato entraram, na ordem da requisição.
+     * O H2 devolve as linhas do próprio INSERT (FINAL TABLE), então não é preciso ler a coleção antes.
+     * Por ser uma consulta, o Hibernate não invalida nada no cache; nenhuma região guarda pedido_prato.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Long> insertPratos(long pedidoId, Collection<Long> pratoIds) {
+        List<Number> rows = Pedido.getEntityManager().createNativeQuery("select prato_id from final table"
+                        + " (insert into pedido_prato (pedido_id, prato_id) select :pedido, p.id from Prato p"
+                        + " where p.id in (:pratos) and not exists"
+                        + " (select 1 from pedido_prato pp where pp.pedido_id = :pedido and pp.prato_id = p.id))")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("pedido_prato")
+                .setParameter("pedido", pedidoId)
+                .setParameterList("pratos", pratoIds)
+                .getResultList();
+        Set<Long> inserted = new HashSet<>();
+        for (Number row : rows) {
+            inserted.add(row.longValue());
+        }
+        List<Long> added = new ArrayList<>(inserted.size());
+        for (Long id : pratoIds) {
+            if (inserted.contains(id)) {
+                added.add(id);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * pedido_prato não é entidade, então o comando é SQL nativo: uma instrução para o lote inteiro.
+     * Declarar a tabela afetada evita que o Hibernate limpe o cache de segundo nível inteiro.
+     */
+    @SuppressWarnings("unchecked")
+    private static int pedidoPrato(String sql, long pedidoId, Collection<Long> pratoIds) {
+        return Pedido.getEntityManager().createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("pedido_prato")
+                .setParameter("pedido", pedidoId)
+                .setParameterList("pratos", pratoIds)
+                .executeUpdate();
+    }
+
+    // Relê o pedido depois do comando (uma consulta, mais uma para a coleção) para responder e avisar a cozinha
+    private Response pratosChanged(long pedidoId, PedidoEvent.Tipo tipo, Collection<Long> pratoIds) {
+        Pedido pedido = Pedido.findById(pedidoId);
+        kitchen.publishPratos(tipo, pedido, List.copyOf(pratoIds));
+        return pratos(pedido, pedido.pratos);
+    }
+
+    private Response pratos(Pedido pedido, Collection<Prato> pratos) {
+        return ResourceVersion.of(pedido)
+                .tag(Response.ok(rep(pedido).withPratos(pratos, uriInfo)))
+                .build();
     }
 
     @GET
@@ -164,9 +575,11 @@ public class PedidoResource {
     @Operation(summary = "Remove um prato de um pedido")
     @APIResponse(responseCode = "204", description = "Prato removido")
     @APIResponse(responseCode = "404", description = "Pedido ou Prato não encontrado, ou prato não pertence ao pedido")
-    public Response removePrato(@PathParam("id") long pedidoId, @PathParam("pratoId") long pratoId) {
+    public Response removePrato(@PathParam("id") long pedidoId, @PathParam("pratoId") long pratoId, @Context Request request) {
         Pedido pedido = Pedido.findById(pedidoId);
         if (pedido == null) return Response.status(404).entity("Pedido não encontrado").build();
+        Response precondition = versions.precondition(pedido, request);
+        if (precondition != null) return precondition;
 
         Prato prato = Prato.findById(pratoId);
         if (prato == null) return Response.status(404).entity("Prato não encontrado").build();
@@ -176,6 +589,9 @@ public class PedidoResource {
         }
 
         pedido.pratos.remove(prato);
-        return Response.noContent().build();
+        pedido.atualizadoEm = Instant.now();
+        Response response = versions.written(pedido, Response.noContent());
+        kitchen.publish(PedidoEvent.Tipo.PRATO_REMOVIDO, pedido, null, pratoId);
+        return response;
     }
 }
\ No newline at end of file
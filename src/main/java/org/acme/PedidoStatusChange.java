@@ -0,0 +1,25 @@
+package org.acme;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Corpo do PATCH /pedidos/{id}/status.
+ *
+ * Sem "de", vale qualquer status a partir do qual a transição para "status" é permitida.
+ */
+public class PedidoStatusChange {
+
+    @NotNull
+    public Pedido.StatusPedido status;
+
+    // Status que o cliente espera encontrar; a troca só acontece se o pedido ainda estiver nele
+    public Pedido.StatusPedido de;
+
+    public PedidoStatusChange() {
+    }
+
+    public PedidoStatusChange(Pedido.StatusPedido de, Pedido.StatusPedido status) {
+        this.de = de;
+        this.status = status;
+    }
+}
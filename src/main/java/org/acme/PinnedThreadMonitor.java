@@ -0,0 +1,82 @@
+package org.acme;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Diagnóstico de pinning com os endpoints em threads virtuais (quarkus.virtual-threads.enabled).
+ *
+ * Uma thread virtual que bloqueia dentro de um synchronized (ou de código nativo) prende a
+ * thread portadora; com poucas portadoras, o servidor para. O JFR gera jdk.VirtualThreadPinned
+ * para cada bloqueio assim acima de virtual-threads.pinning.threshold; aqui cada evento soma
+ * em virtual_threads.pinned e vai para o log com o trecho da pilha que segurava o monitor.
+ */
+@ApplicationScoped
+public class PinnedThreadMonitor {
+
+    private static final Logger LOG = Logger.getLogger(PinnedThreadMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+
+    @ConfigProperty(name = "quarkus.virtual-threads.enabled", defaultValue = "true")
+    boolean virtualThreads;
+
+    @ConfigProperty(name = "virtual-threads.pinning.monitor", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "virtual-threads.pinning.threshold", defaultValue = "20ms")
+    Duration threshold;
+
+    @Inject
+    MeterRegistry registry;
+
+    private RecordingStream stream;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!virtualThreads || !enabled) {
+            return;
+        }
+        Counter pinned = registry.counter("virtual_threads.pinned");
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, recorded -> {
+            pinned.increment();
+            LOG.warnf("Thread virtual presa à portadora por %d ms:%s", recorded.getDuration().toMillis(), frames(recorded));
+        });
+        stream.startAsync();
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private static String frames(RecordedEvent recorded) {
+        if (recorded.getStackTrace() == null) {
+            return " (sem pilha)";
+        }
+        List<RecordedFrame> frames = recorded.getStackTrace().getFrames();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < Math.min(LOGGED_FRAMES, frames.size()); i++) {
+            RecordedFrame frame = frames.get(i);
+            text.append("\n\tat ").append(frame.getMethod().getType().getName())
+                    .append('.').append(frame.getMethod().getName())
+                    .append(':').append(frame.getLineNumber());
+        }
+        return text.toString();
+    }
+}
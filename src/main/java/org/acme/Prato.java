@@ -1,21 +1,51 @@
 package org.acme;
 
-import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import org.acme.search.SearchIndexListener;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
 
+// Índices (coluna, id) para a paginação keyset das buscas ordenadas
+// Cardápio: lido muito mais do que escrito, fica no cache de segundo nível
 @Entity
-public class Prato extends PanacheEntity {
+@Cacheable
+@EntityListeners(SearchIndexListener.class)
+@Table(indexes = {
+        @Index(name = "idx_prato_nome", columnList = "nome, id"),
+        @Index(name = "idx_prato_descricao", columnList = "descricao, id"),
+        @Index(name = "idx_prato_tempo_preparo", columnList = "tempoPreparoMinutos, id")
+})
+public class Prato extends PanacheEntityBase implements Versioned {
+
+    // Bloco maior que bulk.batch-size: um lote de /pratos/bulk não volta à sequence a cada item
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "prato_seq")
+    @SequenceGenerator(name = "prato_seq", sequenceName = "prato_seq", allocationSize = 100)
+    public Long id;
 
     @NotNull
     @Size(min = 2, max = 100, message = "O nome do prato deve ter entre 2 a 100 letras")
@@ -29,15 +59,34 @@ public class Prato extends PanacheEntity {
     @Max(value = 90, message = "O tempo máximo de preparo é 90 minutos")
     public int tempoPreparoMinutos;
 
-    // relacionamento OneToOne 
-    @OneToOne
+    // relacionamento OneToOne (lazy: as listagens não usam o chef)
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "chef_id", unique = true)
     public Chef chefResponsavel;
 
     // relacionamento ManyToMany 
     @ManyToMany(mappedBy = "pratos")
+    @BatchSize(size = 32)
     public Set<Pedido> pedidos = new HashSet<>();
 
+    @Version
+    @JsonIgnore
+    public long versao;
+
+    @UpdateTimestamp
+    @JsonIgnore
+    public Instant atualizadoEm;
+
+    @Override
+    public long versao() {
+        return versao;
+    }
+
+    @Override
+    public Instant atualizadoEm() {
+        return atualizadoEm;
+    }
+
     public Prato() {
     }
 
@@ -48,4 +97,5 @@ public class Prato extends PanacheEntity {
         this.tempoPreparoMinutos = tempoPreparoMinutos;
         this.chefResponsavel = chefResponsavel;
     }
+
 }
\ No newline at end of file
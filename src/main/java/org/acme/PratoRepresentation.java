@@ -1,5 +1,6 @@
 package org.acme;
 
+import io.quarkus.hibernate.orm.panache.common.ProjectedFieldName;
 import jakarta.ws.rs.core.UriInfo;
 import java.net.URI;
 import java.util.HashMap;
@@ -13,23 +14,31 @@ public class PratoRepresentation {
     public int tempoPreparoMinutos;
     public Map<String, String> _links;
 
-    public PratoRepresentation() {
+    /**
+     * Único construtor, usado nas projeções (Prato.find(...).project(PratoRepresentation.class)):
+     * a consulta seleciona só estas colunas, sem carregar a entidade. Os links vêm de {@link #withLinks}.
+     */
+    public PratoRepresentation(@ProjectedFieldName("id") Long id,
+                               @ProjectedFieldName("nome") String nome,
+                               @ProjectedFieldName("descricao") String descricao,
+                               @ProjectedFieldName("tempoPreparoMinutos") int tempoPreparoMinutos) {
+        this.id = id;
+        this.nome = nome;
+        this.descricao = descricao;
+        this.tempoPreparoMinutos = tempoPreparoMinutos;
     }
 
     public static PratoRepresentation from(Prato prato, UriInfo uriInfo) {
-        PratoRepresentation rep = new PratoRepresentation();
-        rep.id = prato.id;
-        rep.nome = prato.nome;
-        rep.descricao = prato.descricao;
-        rep.tempoPreparoMinutos = prato.tempoPreparoMinutos;
+        return new PratoRepresentation(prato.id, prato.nome, prato.descricao, prato.tempoPreparoMinutos).withLinks(uriInfo);
+    }
 
+    public PratoRepresentation withLinks(UriInfo uriInfo) {
         URI baseUri = uriInfo.getBaseUri();
-        rep._links = new HashMap<>();
-        rep._links.put("self", baseUri + "pratos/" + prato.id);
-        rep._links.put("all", baseUri + "pratos");
-        rep._links.put("delete", baseUri + "pratos/" + prato.id);
-        rep._links.put("update", baseUri + "pratos/" + prato.id);
-
-        return rep;
+        _links = new HashMap<>();
+        _links.put("self", baseUri + "pratos/" + id);
+        _links.put("all", baseUri + "pratos");
+        _links.put("delete", baseUri + "pratos/" + id);
+        _links.put("update", baseUri + "pratos/" + id);
+        return this;
     }
 }
\ No newline at end of file
@@ -1,34 +1,69 @@
 package org.acme;
 
 import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import io.quarkus.panache.common.Parameters;
 import io.quarkus.panache.common.Sort;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
+import org.acme.bulk.BulkResult;
+import org.acme.bulk.BulkService;
+import org.acme.search.SearchIndex;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.hibernate.jpa.HibernateHints;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+@RunOnVirtualThread
 @Path("/pratos")
 public class PratoResource {
 
     @Context
     UriInfo uriInfo;
 
+    @Inject
+    SearchCounts counts;
+
+    @Inject
+    SearchIndex searchIndex;
+
+    @Inject
+    ListStreamer listStreamer;
+
+    @Inject
+    ResourceVersions versions;
+
+    @Inject
+    BulkService bulk;
+
     private PratoRepresentation rep(Prato p) {
         return PratoRepresentation.from(p, uriInfo);
     }
 
+    // Campos alteráveis pelo PUT, individual ou em lote
+    private static void apply(Prato entity, Prato changes) {
+        entity.nome = changes.nome;
+        entity.descricao = changes.descricao;
+        entity.tempoPreparoMinutos = changes.tempoPreparoMinutos;
+        entity.chefResponsavel = changes.chefResponsavel;
+    }
+
     private List<PratoRepresentation> repList(List<Prato> pratos) {
         return pratos.stream().map(this::rep).collect(Collectors.toList());
     }
@@ -36,8 +71,15 @@ public class PratoResource {
     @GET
     @Operation(summary = "Retorna todos os pratos")
     @APIResponse(responseCode = "200", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PratoRepresentation.class, type = SchemaType.ARRAY)))
-    public Response getAll() {
-        return Response.ok(repList(Prato.listAll())).build();
+    @Produces({MediaType.APPLICATION_JSON, ListStreamer.APPLICATION_NDJSON})
+    public Response getAll(@Context HttpHeaders headers, @Context Request request) {
+        ResourceVersion version = versions.ofAll(Prato.class, headers);
+        Response notModified = version.evaluate(request);
+        if (notModified != null) {
+            return notModified;
+        }
+        return version.tag(listStreamer.stream(headers, "select new org.acme.PratoRepresentation(id, nome, descricao, tempoPreparoMinutos) from Prato",
+                PratoRepresentation.class, rep -> rep.id, rep -> rep.withLinks(uriInfo))).build();
     }
 
     @GET
@@ -45,12 +87,18 @@ public class PratoResource {
     @Operation(summary = "Retorna um prato específico pelo ID")
     @APIResponse(responseCode = "200", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PratoRepresentation.class)))
     @APIResponse(responseCode = "404", description = "Prato não encontrado")
-    public Response getById(@PathParam("id") long id) {
+    public Response getById(@PathParam("id") long id, @Context Request request) {
+        // findById passa pelo cache de segundo nível; o ETag sai da mesma entidade que vai no corpo
         Prato entity = Prato.findById(id);
         if (entity == null) {
             return Response.status(404).build();
         }
-        return Response.ok(rep(entity)).build();
+        ResourceVersion version = ResourceVersion.of(entity);
+        Response notModified = version.evaluate(request);
+        if (notModified != null) {
+            return notModified;
+        }
+        return version.tag(Response.ok(rep(entity))).build();
     }
 
     @GET
@@ -62,23 +110,55 @@ public class PratoResource {
             @QueryParam("sort") @DefaultValue("id") String sort,
             @QueryParam("direction") @DefaultValue("asc") String direction,
             @QueryParam("page") @DefaultValue("1") int page,
-            @QueryParam("size") @DefaultValue("10") int size
+            @QueryParam("size") @DefaultValue("10") int size,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("count") @DefaultValue("exact") String count
     ) {
-        Set<String> allowed = Set.of("id", "nome", "descricao", "tempoPreparoMinutos");
+        Set<String> allowed = Set.of("id", "nome", "descricao", "tempoPreparoMinutos", SearchCursor.RELEVANCE);
+        SearchCursor seek = SearchCursor.decode(cursor, allowed);
+        CountMode countMode = CountMode.parse(count);
+        if (seek != null) {
+            sort = seek.sort;
+            direction = seek.direction();
+            page = seek.page;
+        }
         if (!allowed.contains(sort)) sort = "id";
+        boolean descending = "desc".equalsIgnoreCase(direction);
 
-        Sort sortObj = Sort.by(sort, "desc".equalsIgnoreCase(direction) ? Sort.Direction.Descending : Sort.Direction.Ascending);
-        int effectivePage = page <= 1 ? 0 : page - 1;
+        Parameters params = new Parameters();
+        String filter = searchIndex.filter(Prato.class, q, "lower(nome) like :q or lower(descricao) like :q", params);
+        // Ordenar por relevância só é possível quando o índice de texto respondeu a busca
+        List<Long> ranked = SearchCursor.RELEVANCE.equals(sort) ? searchIndex.ranked(Prato.class, q) : null;
+        if (SearchCursor.RELEVANCE.equals(sort) && ranked == null) {
+            sort = "id";
+            seek = null;
+        }
 
-        PanacheQuery<Prato> query = (q == null || q.isBlank())
-                ? Prato.findAll(sortObj)
-                : Prato.find("lower(nome) like ?1 or lower(descricao) like ?1", sortObj, "%" + q.toLowerCase() + "%");
+        Long totalElements = counts.count(countMode, Prato.class, filter, params,
+                () -> filter == null ? Prato.count() : Prato.count(filter, params));
+        Long totalPages = totalElements == null ? null : (long) Math.ceil((double) totalElements / size);
 
-        long totalElements = query.count();
-        long totalPages = (long) Math.ceil((double) totalElements / size);
-        List<Prato> pratos = query.page(effectivePage, size).list();
+        // Com cursor a página é buscada por seek (custo constante); sem ele, OFFSET como antes.
+        // Nos dois casos vem uma linha a mais, para saber se há próxima página sem depender do total.
+        // As consultas projetam direto na representação: nada de entidade gerenciada nem dirty checking.
+        // O resultado fica no cache de consultas até a próxima escrita em pratos.
+        List<PratoRepresentation> pratos;
+        if (ranked != null) {
+            pratos = repList(searchIndex.page(Prato.class, ranked, (page <= 1 ? 0 : page - 1) * size, size + 1));
+        } else if (seek != null) {
+            pratos = seek.list(Prato.find(seek.where(filter), seek.sort(), seek.bind(params, Prato.class)).project(PratoRepresentation.class)
+                    .withHint(HibernateHints.HINT_CACHEABLE, true), size);
+        } else {
+            Sort sortObj = SearchCursor.sort(sort, descending);
+            PanacheQuery<PratoRepresentation> query = (filter == null ? Prato.findAll(sortObj) : Prato.find(filter, sortObj, params)).project(PratoRepresentation.class)
+                    .withHint(HibernateHints.HINT_CACHEABLE, true);
+            int first = (page <= 1 ? 0 : page - 1) * size;
+            pratos = query.range(first, first + size).list();
+        }
+        boolean hasNext = SearchCursor.trim(pratos, size, ranked != null ? null : seek);
 
-        SearchPratoResponse response = SearchPratoResponse.from(pratos, uriInfo, q, sort, direction, page, size, totalElements, totalPages);
+        SearchPratoResponse response = SearchPratoResponse.from(pratos, uriInfo, q, sort, direction, page, size, totalElements, totalPages,
+                countMode == CountMode.ESTIMATE, cursor, SearchCursor.next(pratos, sort, descending, page, hasNext), SearchCursor.prev(pratos, sort, descending, page));
         return Response.ok(response).build();
     }
 
@@ -97,11 +177,18 @@ public class PratoResource {
     @Operation(summary = "Exclui um prato")
     @APIResponse(responseCode = "204", description = "Excluído")
     @APIResponse(responseCode = "404", description = "Prato não encontrado")
-    public Response delete(@PathParam("id") long id) {
-        if (Prato.deleteById(id)) {
-            return Response.noContent().build();
+    public Response delete(@PathParam("id") long id, @Context Request request) {
+        Prato entity = Prato.findById(id);
+        if (entity == null) {
+            return Response.status(404).build();
+        }
+        Response precondition = versions.precondition(entity, request);
+        if (precondition != null) {
+            return precondition;
         }
-        return Response.status(404).build();
+        entity.delete();
+        Prato.flush();
+        return Response.noContent().build();
     }
 
     @PUT
@@ -110,16 +197,17 @@ public class PratoResource {
     @Operation(summary = "Atualiza um prato")
     @APIResponse(responseCode = "200", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PratoRepresentation.class)))
     @APIResponse(responseCode = "404", description = "Prato não encontrado")
-    public Response update(@PathParam("id") long id, @Valid Prato newPrato) {
+    public Response update(@PathParam("id") long id, @Valid Prato newPrato, @Context Request request) {
         Prato entity = Prato.findById(id);
         if (entity == null) {
             return Response.status(404).build();
         }
-        entity.nome = newPrato.nome;
-        entity.descricao = newPrato.descricao;
-        entity.tempoPreparoMinutos = newPrato.tempoPreparoMinutos;
-        entity.chefResponsavel = newPrato.chefResponsavel;
-        return Response.ok(rep(entity)).build();
+        Response precondition = versions.precondition(entity, request);
+        if (precondition != null) {
+            return precondition;
+        }
+        apply(entity, newPrato);
+        return versions.written(entity, Response.ok(rep(entity)));
     }
     
     // --- Endpoints de Relacionamento ---
@@ -130,15 +218,17 @@ public class PratoResource {
     @Operation(summary = "Atribui um chef a um prato")
     @APIResponse(responseCode = "200", description = "Chef atribuído")
     @APIResponse(responseCode = "404", description = "Prato ou Chef não encontrado")
-    public Response assignChef(@PathParam("id") long pratoId, @PathParam("chefId") long chefId) {
+    public Response assignChef(@PathParam("id") long pratoId, @PathParam("chefId") long chefId, @Context Request request) {
         Prato prato = Prato.findById(pratoId);
         if (prato == null) return Response.status(404).entity("Prato não encontrado").build();
+        Response precondition = versions.precondition(prato, request);
+        if (precondition != null) return precondition;
 
         Chef chef = Chef.findById(chefId);
         if (chef == null) return Response.status(404).entity("Chef não encontrado").build();
 
         prato.chefResponsavel = chef;
-        return Response.ok(rep(prato)).build();
+        return versions.written(prato, Response.ok(rep(prato)));
     }
 
     @GET
@@ -154,4 +244,33 @@ public class PratoResource {
         // Em um cenário real, você poderia criar um PedidoRepresentation simplificado.
         return Response.ok(prato.pedidos).build();
     }
-}
\ No newline at end of file
+
+    // --- Operações em lote ---
+
+    @POST
+    @Path("/bulk")
+    @Consumes({MediaType.APPLICATION_JSON, ListStreamer.APPLICATION_NDJSON})
+    @Operation(summary = "Cria pratos em lote", description = "Corpo em array JSON ou NDJSON. Itens inválidos voltam com 422 e não impedem os demais. Aceita Idempotency-Key.")
+    @APIResponse(responseCode = "200", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkResult.class)))
+    public Response bulkInsert(InputStream body) {
+        return Response.ok(bulk.create(bulk.read(body, Prato.class), Prato.class)).build();
+    }
+
+    @POST
+    @Path("/bulk/update")
+    @Consumes({MediaType.APPLICATION_JSON, ListStreamer.APPLICATION_NDJSON})
+    @Operation(summary = "Atualiza pratos em lote", description = "Cada item leva o id e os campos do PUT individual; com \"versao\", o item só é alterado se ainda estiver nessa versão (412 se não).")
+    @APIResponse(responseCode = "200", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkResult.class)))
+    public Response bulkUpdate(InputStream body) {
+        return Response.ok(bulk.update(bulk.readChanges(body, Prato.class), Prato.class, PratoResource::apply)).build();
+    }
+
+    @POST
+    @Path("/bulk/delete")
+    @Consumes({MediaType.APPLICATION_JSON, ListStreamer.APPLICATION_NDJSON})
+    @Operation(summary = "Exclui pratos em lote", description = "Corpo com os ids a excluir.")
+    @APIResponse(responseCode = "200", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkResult.class)))
+    public Response bulkDelete(InputStream body) {
+        return Response.ok(bulk.delete(bulk.read(body, Long.class), Prato.class)).build();
+    }
+}
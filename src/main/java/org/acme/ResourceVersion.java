@@ -0,0 +1,63 @@
+package org.acme;
+
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+/**
+ * Versão de um recurso ou de uma coleção, usada nas requisições condicionais.
+ *
+ * @param etag         - ETag forte nos registros, fraco nas coleções
+ * @param lastModified - Última alteração, em segundos (resolução dos cabeçalhos HTTP); null quando não se aplica
+ * @param vary         - Cabeçalhos do request que mudam a representação (Vary); null quando não há
+ */
+public record ResourceVersion(EntityTag etag, Date lastModified, String vary) {
+
+    // O cliente pode guardar o corpo, mas sempre revalida: o 304 é barato
+    private static final CacheControl REVALIDATE = CacheControl.valueOf("no-cache");
+
+    /**
+     * Versão de um registro a partir do @Version e da data de alteração da entidade
+     */
+    public static ResourceVersion of(long versao, Instant atualizadoEm) {
+        return new ResourceVersion(new EntityTag(String.valueOf(versao)),
+                atualizadoEm == null ? null : Date.from(atualizadoEm.truncatedTo(ChronoUnit.SECONDS)), null);
+    }
+
+    public static ResourceVersion of(Versioned entity) {
+        return of(entity.versao(), entity.atualizadoEm());
+    }
+
+    /**
+     * Avalia as pré-condições do request contra esta versão: If-None-Match / If-Modified-Since
+     * nas leituras e If-Match / If-Unmodified-Since nas escritas.
+     *
+     * @return a resposta 304 (leitura) ou 412 (escrita) já pronta, ou null para seguir com o request
+     */
+    public Response evaluate(Request request) {
+        Response.ResponseBuilder builder = lastModified == null
+                ? request.evaluatePreconditions(etag)
+                : request.evaluatePreconditions(lastModified, etag);
+        return builder == null ? null : tag(builder).build();
+    }
+
+    /**
+     * Adiciona ETag, Last-Modified, Vary e Cache-Control à resposta
+     */
+    public Response.ResponseBuilder tag(Response.ResponseBuilder builder) {
+        builder.tag(etag).cacheControl(REVALIDATE);
+        if (lastModified != null) {
+            builder.lastModified(lastModified);
+        }
+        if (vary != null) {
+            builder.header(HttpHeaders.VARY, vary);
+        }
+        return builder;
+    }
+}
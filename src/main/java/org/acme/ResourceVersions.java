@@ -0,0 +1,96 @@
+package org.acme;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Busca a versão (@Version e data da última alteração) dos recursos sem carregar as entidades,
+ * para responder 304 sem montar nem serializar a representação.
+ *
+ * Nas entidades do cardápio a consulta entra no cache de consultas, invalidado a cada escrita
+ * na tabela; para pedidos, que mudam o tempo todo, vai sempre ao banco (uma linha pela chave primária).
+ */
+@ApplicationScoped
+public class ResourceVersions {
+
+    private static final Set<Class<?>> CACHED = Set.of(Prato.class, Chef.class, Bebida.class);
+
+    @Inject
+    EntityManager em;
+
+    /**
+     * @return a versão do registro, ou null se ele não existe
+     */
+    public ResourceVersion of(Class<?> type, long id) {
+        List<Object[]> rows = query("select e.versao, e.atualizadoEm from " + type.getSimpleName() + " e where e.id = :id", type)
+                .setParameter("id", id)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = rows.get(0);
+        return ResourceVersion.of((Long) row[0], (Instant) row[1]);
+    }
+
+    /**
+     * Versão da coleção inteira (GET sem id). Quantidade e soma das versões mudam a cada
+     * inserção, alteração ou exclusão; maior id, maior versão e última alteração separam os
+     * casos em que elas se compensam (ids fora de ordem, uma exclusão junto com uma inserção).
+     * Não há Last-Modified: uma exclusão não deixa data.
+     *
+     * JSON e NDJSON são representações diferentes da mesma coleção: o ETag leva o formato
+     * e a resposta, Vary: Accept.
+     *
+     * O ETag é fraco (W/): ele é calculado antes de a listagem ser enviada em lotes, cada um na
+     * sua transação, então uma escrita no meio pode fazer o corpo diferir do que a tag descreve.
+     * Serve para revalidar (If-None-Match), não para garantir o corpo byte a byte.
+     */
+    public ResourceVersion ofAll(Class<?> type, HttpHeaders headers) {
+        Object[] row = query("select count(e), coalesce(sum(e.versao), 0), coalesce(max(e.id), 0), coalesce(max(e.versao), 0), max(e.atualizadoEm) from "
+                + type.getSimpleName() + " e", type)
+                .getSingleResult();
+        long atualizadoEm = row[4] == null ? 0 : ((Instant) row[4]).toEpochMilli();
+        String tag = row[0] + "-" + row[1] + "-" + row[2] + "-" + row[3] + "-" + atualizadoEm;
+        if (ListStreamer.wantsNdjson(headers)) {
+            tag += "-ndjson";
+        }
+        return new ResourceVersion(new EntityTag(tag, true), null, HttpHeaders.ACCEPT);
+    }
+
+    /**
+     * If-Match / If-Unmodified-Since contra a versão carregada: 412 se o cliente editou uma versão antiga
+     *
+     * @return a resposta 412 já pronta, ou null para seguir com a escrita
+     */
+    public Response precondition(Versioned entity, Request request) {
+        return ResourceVersion.of(entity).evaluate(request);
+    }
+
+    /**
+     * Grava já: o UPDATE confere a versão lida e, se outra requisição gravou antes,
+     * falha com OptimisticLockException (412/409). A resposta leva o novo ETag.
+     */
+    public Response written(Versioned entity, Response.ResponseBuilder response) {
+        em.flush();
+        return ResourceVersion.of(entity).tag(response).build();
+    }
+
+    private TypedQuery<Object[]> query(String hql, Class<?> type) {
+        TypedQuery<Object[]> query = em.createQuery(hql, Object[].class);
+        if (CACHED.contains(type)) {
+            query.setHint(HibernateHints.HINT_CACHEABLE, true);
+        }
+        return query;
+    }
+}
@@ -14,21 +14,20 @@ public class SearchBebidaResponse {
     }
 
     public static SearchBebidaResponse from(
-            List<Bebida> bebidas, String query, String sort, String direction, int page, int size,
-            long totalElements, long totalPages
+            List<BebidaRepresentation> bebidas, String query, String sort, String direction, int page, int size,
+            Long totalElements, Long totalPages, boolean estimated, String cursor, String nextCursor, String prevCursor
     ) {
         SearchBebidaResponse response = new SearchBebidaResponse();
-        response.bebidas = bebidas.stream()
-                .map(BebidaRepresentation::from)
-                .toList();
+        response.bebidas = bebidas;
 
-        response.pagination = new PaginationMetadata(page, size, totalElements, totalPages);
-        response._links = buildLinks(query, sort, direction, page, size, totalPages);
+        response.pagination = new PaginationMetadata(page, size, totalElements, totalPages, estimated);
+        response._links = buildLinks(query, sort, direction, page, size, totalPages, cursor, nextCursor, prevCursor);
         return response;
     }
 
     private static Map<String, String> buildLinks(
-            String query, String sort, String direction, int page, int size, long totalPages
+            String query, String sort, String direction, int page, int size, Long totalPages,
+            String cursor, String nextCursor, String prevCursor
     ) {
         Map<String, String> links = new HashMap<>();
         String baseUrl = "/api/v1/bebidas/search";
@@ -41,15 +40,17 @@ public class SearchBebidaResponse {
                 .append("&direction=").append(direction)
                 .append("&size=").append(size);
 
-        links.put("self", baseUrl + "?" + params + "&page=" + page);
+        links.put("self", baseUrl + "?" + params + (cursor != null ? "&cursor=" + cursor : "&page=" + page));
         links.put("first", baseUrl + "?" + params + "&page=1");
-        links.put("last", baseUrl + "?" + params + "&page=" + totalPages);
+        if (totalPages != null) {
+            links.put("last", baseUrl + "?" + params + "&page=" + totalPages);
+        }
 
-        if (page > 1) {
-            links.put("prev", baseUrl + "?" + params + "&page=" + (page - 1));
+        if (prevCursor != null) {
+            links.put("prev", baseUrl + "?" + params + "&cursor=" + prevCursor);
         }
-        if (page < totalPages) {
-            links.put("next", baseUrl + "?" + params + "&page=" + (page + 1));
+        if (nextCursor != null) {
+            links.put("next", baseUrl + "?" + params + "&cursor=" + nextCursor);
         }
 
         links.put("bebidas", "/api/v1/bebidas");
@@ -59,14 +60,20 @@ public class SearchBebidaResponse {
     public static class PaginationMetadata {
         public int page;
         public int size;
-        public long totalElements;
-        public long totalPages;
 
-        public PaginationMetadata(int page, int size, long totalElements, long totalPages) {
+        // Nulos quando a busca usa count=none
+        public Long totalElements;
+        public Long totalPages;
+
+        // true quando os totais vêm de estatística ou de uma contagem recente (count=estimate)
+        public boolean estimated;
+
+        public PaginationMetadata(int page, int size, Long totalElements, Long totalPages, boolean estimated) {
             this.page = page;
             this.size = size;
             this.totalElements = totalElements;
             this.totalPages = totalPages;
+            this.estimated = estimated;
         }
     }
 }
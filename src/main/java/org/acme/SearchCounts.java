@@ -0,0 +1,104 @@
+package org.acme;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.quarkus.panache.common.Parameters;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * Totais das buscas paginadas conforme o {@link CountMode} pedido.
+ *
+ * No modo estimate, buscas sem filtro usam a estimativa de linhas que o banco mantém
+ * para o planejador (INFORMATION_SCHEMA.TABLES.ROW_COUNT_ESTIMATE no H2). Buscas com
+ * filtro reaproveitam uma contagem exata recente da mesma busca, guardada por
+ * search.count.estimate-ttl; assim a rolagem infinita paga o count só na primeira página.
+ */
+@ApplicationScoped
+public class SearchCounts {
+
+    private static final Logger LOG = Logger.getLogger(SearchCounts.class);
+
+    @Inject
+    EntityManager em;
+
+    @ConfigProperty(name = "search.count.estimate-ttl", defaultValue = "30s")
+    Duration estimateTtl;
+
+    @ConfigProperty(name = "search.count.max-cached", defaultValue = "10000")
+    long maxCached;
+
+    private Cache<String, Long> recent;
+
+    // Desligado na primeira falha, para bancos sem a coluna de estatística
+    private volatile boolean statisticsAvailable = true;
+
+    @PostConstruct
+    void init() {
+        recent = Caffeine.newBuilder()
+                .maximumSize(maxCached)
+                .expireAfterWrite(estimateTtl)
+                .build();
+    }
+
+    /**
+     * @param mode   - Modo pedido pelo cliente
+     * @param entity - Entidade buscada
+     * @param filter - Filtro da busca, ou null
+     * @param params - Parâmetros do filtro
+     * @param exact  - Contagem exata (count(*) sobre o filtro)
+     * @return o total, ou null no modo none
+     */
+    public Long count(CountMode mode, Class<?> entity, String filter, Parameters params, LongSupplier exact) {
+        switch (mode) {
+            case NONE:
+                return null;
+            case EXACT:
+                return exact.getAsLong();
+            default:
+                if (filter == null) {
+                    Long estimate = tableEstimate(entity);
+                    if (estimate != null) {
+                        return estimate;
+                    }
+                }
+                String key = entity.getSimpleName() + '|' + filter + '|' + params.map();
+                // Conta fora do cache: o get(key, loader) do Caffeine segura o lock do
+                // ConcurrentHashMap durante o SQL, o que prende a thread portadora de uma thread virtual
+                Long cached = recent.getIfPresent(key);
+                if (cached != null) {
+                    return cached;
+                }
+                long total = exact.getAsLong();
+                recent.put(key, total);
+                return total;
+        }
+    }
+
+    private Long tableEstimate(Class<?> entity) {
+        if (!statisticsAvailable) {
+            return null;
+        }
+        try {
+            List<?> rows = em.createNativeQuery(
+                            "select ROW_COUNT_ESTIMATE from INFORMATION_SCHEMA.TABLES where TABLE_NAME = ?1")
+                    .setParameter(1, entity.getSimpleName().toUpperCase(Locale.ROOT))
+                    .getResultList();
+            return rows.isEmpty() ? null : ((Number) rows.get(0)).longValue();
+        } catch (PersistenceException e) {
+            statisticsAvailable = false;
+            LOG.infof("Estatística de linhas indisponível, estimativas usarão contagens em cache: %s", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package org.acme;
+
+import io.quarkus.hibernate.orm.panache.Panache;
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import io.quarkus.panache.common.Parameters;
+import io.quarkus.panache.common.Sort;
+import jakarta.ws.rs.BadRequestException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cursor opaco da paginação keyset (seek) usada pelos endpoints /search.
+ *
+ * Em vez de OFFSET, a próxima página é buscada a partir da última linha vista:
+ * "where (coluna, id) > (valor, id) order by coluna, id limit size". Com o índice
+ * da chave primária (e da coluna ordenada, quando houver), a página 10.000 custa o
+ * mesmo que a primeira. O id entra como desempate para a ordem ser total.
+ *
+ * O token carrega o campo e a direção da ordenação, o número da página (só para
+ * exibição e links) e a chave da linha de fronteira, em Base64 URL-safe.
+ */
+public final class SearchCursor {
+
+    private static final String VERSION = "v1";
+
+    /**
+     * Ordenação pela relevância do índice de texto; a página vem do número da página, não de uma chave
+     */
+    public static final String RELEVANCE = "relevance";
+
+    public final String sort;
+    public final boolean descending;
+
+    // true quando a página desejada fica antes da chave (link "prev")
+    public final boolean backward;
+
+    public final int page;
+    public final long id;
+    public final String value;
+
+    private SearchCursor(String sort, boolean descending, boolean backward, int page, long id, String value) {
+        this.sort = sort;
+        this.descending = descending;
+        this.backward = backward;
+        this.page = page;
+        this.id = id;
+        this.value = value;
+    }
+
+    /**
+     * Cursor para a página seguinte, a partir da última linha da página atual
+     */
+    public static SearchCursor after(Object last, String sort, boolean descending, int page) {
+        return of(last, sort, descending, false, page + 1);
+    }
+
+    /**
+     * Cursor para a página anterior, a partir da primeira linha da página atual
+     */
+    public static SearchCursor before(Object first, String sort, boolean descending, int page) {
+        return of(first, sort, descending, true, page - 1);
+    }
+
+    /**
+     * Token do link "next", ou null na última página
+     */
+    public static String next(List<?> rows, String sort, boolean descending, int page, boolean hasNext) {
+        if (rows.isEmpty() || !hasNext) {
+            return null;
+        }
+        return after(rows.get(rows.size() - 1), sort, descending, page).encode();
+    }
+
+    /**
+     * Token do link "prev", ou null na primeira página
+     */
+    public static String prev(List<?> rows, String sort, boolean descending, int page) {
+        if (rows.isEmpty() || page <= 1) {
+            return null;
+        }
+        return before(rows.get(0), sort, descending, page).encode();
+    }
+
+    private static SearchCursor of(Object entity, String sort, boolean descending, boolean backward, int page) {
+        Object id = read(entity, "id");
+        String value = "id".equals(sort) || RELEVANCE.equals(sort) ? "" : String.valueOf(read(entity, sort));
+        return new SearchCursor(sort, descending, backward, page, ((Number) id).longValue(), value);
+    }
+
+    /**
+     * Lê o cursor recebido na query string.
+     *
+     * @param token   - Valor do parâmetro cursor (pode ser nulo)
+     * @param allowed - Campos de ordenação aceitos pelo endpoint
+     * @return o cursor, ou null quando não foi informado
+     * @throws BadRequestException quando o token foi alterado ou não pertence ao endpoint
+     */
+    public static SearchCursor decode(String token, Set<String> allowed) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // O valor vai por último porque pode conter ':'
+            String[] parts = raw.split(":", 7);
+            if (parts.length != 7 || !VERSION.equals(parts[0]) || !allowed.contains(parts[1])) {
+                throw new BadRequestException("Cursor inválido");
+            }
+            return new SearchCursor(parts[1], "d".equals(parts[2]), "b".equals(parts[3]),
+                    Math.max(1, Integer.parseInt(parts[4])), Long.parseLong(parts[5]), parts[6]);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Cursor inválido");
+        }
+    }
+
+    public String encode() {
+        String raw = VERSION + ":" + sort + ":" + (descending ? "d" : "a") + ":" + (backward ? "b" : "f")
+                + ":" + page + ":" + id + ":" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String direction() {
+        return descending ? "desc" : "asc";
+    }
+
+    /**
+     * Condição de seek, combinada com o filtro da busca (se houver)
+     */
+    public String where(String filter) {
+        // Seguir para frente na ordem desc (ou para trás na asc) é buscar chaves menores
+        String op = descending != backward ? "<" : ">";
+        String seek = "id".equals(sort)
+                ? "id " + op + " :cursorId"
+                : "(" + sort + " " + op + " :cursorValue or (" + sort + " = :cursorValue and id " + op + " :cursorId))";
+        return filter == null ? seek : "(" + filter + ") and " + seek;
+    }
+
+    /**
+     * Ordem da consulta; para trás a ordem é invertida e a página é desvirada em {@link #list}
+     */
+    public Sort sort() {
+        return SearchCursor.sort(sort, descending != backward);
+    }
+
+    /**
+     * Adiciona a chave do cursor aos parâmetros da busca, convertida para o tipo do campo
+     */
+    public Parameters bind(Parameters params, Class<?> entityClass) {
+        params.and("cursorId", id);
+        if (!"id".equals(sort)) {
+            try {
+                params.and("cursorValue", convert(value, type(entityClass, sort)));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Cursor inválido");
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Busca a página com uma linha a mais, que {@link #trim} usa para saber se há próxima
+     */
+    public <T> List<T> list(PanacheQuery<T> query, int size) {
+        List<T> rows = query.range(0, size).list();
+        if (backward) {
+            Collections.reverse(rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Remove a linha extra buscada além de size e diz se existe página seguinte.
+     * Indo para trás a linha extra fica no início, e a página seguinte sempre existe.
+     *
+     * @param seek - Cursor usado na busca, ou null para OFFSET
+     */
+    public static boolean trim(List<?> rows, int size, SearchCursor seek) {
+        boolean backward = seek != null && seek.backward;
+        if (rows.size() <= size) {
+            return backward;
+        }
+        rows.remove(backward ? 0 : rows.size() - 1);
+        return true;
+    }
+
+    /**
+     * Ordem total usada tanto no OFFSET quanto no seek: campo pedido e id como desempate
+     */
+    public static Sort sort(String sort, boolean descending) {
+        Sort.Direction dir = descending ? Sort.Direction.Descending : Sort.Direction.Ascending;
+        Sort sortObj = Sort.by(sort, dir);
+        return "id".equals(sort) ? sortObj : sortObj.and("id", dir);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object convert(String value, Class<?> type) {
+        if (type == String.class) return value;
+        if (type == int.class || type == Integer.class) return Integer.valueOf(value);
+        if (type == long.class || type == Long.class) return Long.valueOf(value);
+        if (type == BigDecimal.class) return new BigDecimal(value);
+        if (type == boolean.class || type == Boolean.class) return Boolean.valueOf(value);
+        if (type.isEnum()) return Enum.valueOf((Class<? extends Enum>) type, value);
+        throw new IllegalArgumentException("Tipo de ordenação não suportado: " + type);
+    }
+
+    // As linhas são representações, classes comuns: os campos públicos são lidos por reflexão
+    private static Object read(Object row, String name) {
+        try {
+            return row.getClass().getField(name).get(row);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("Campo de ordenação desconhecido: " + name, e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Na entidade o tipo vem do metamodelo: o enhancement do Panache tira os campos públicos do alcance da reflexão
+    private static Class<?> type(Class<?> entityClass, String name) {
+        return Panache.getEntityManager().getMetamodel().entity(entityClass).getAttribute(name).getJavaType();
+    }
+}
@@ -16,24 +16,25 @@ public class SearchPratoResponse {
     }
 
     public static SearchPratoResponse from(
-            List<Prato> pratos, UriInfo uriInfo, String query, String sort, String direction, int page, int size,
-            long totalElements, long totalPages
+            List<PratoRepresentation> pratos, UriInfo uriInfo, String query, String sort, String direction, int page, int size,
+            Long totalElements, Long totalPages, boolean estimated, String cursor, String nextCursor, String prevCursor
     ) {
         SearchPratoResponse response = new SearchPratoResponse();
 
         response.pratos = pratos.stream()
-                .map(prato -> PratoRepresentation.from(prato, uriInfo))
+                .map(rep -> rep._links == null ? rep.withLinks(uriInfo) : rep)
                 .toList();
 
-        response.pagination = new PaginationMetadata(page, size, totalElements, totalPages);
-        response._links = buildLinks(uriInfo, query, sort, direction, page, size, totalPages);
+        response.pagination = new PaginationMetadata(page, size, totalElements, totalPages, estimated);
+        response._links = buildLinks(uriInfo, query, sort, direction, page, size, totalPages, cursor, nextCursor, prevCursor);
 
         return response;
     }
 
     private static Map<String, String> buildLinks(
             UriInfo uriInfo, String query, String sort,
-            String direction, int page, int size, long totalPages
+            String direction, int page, int size, Long totalPages,
+            String cursor, String nextCursor, String prevCursor
     ) {
         Map<String, String> links = new HashMap<>();
         URI baseUri = uriInfo.getBaseUri();
@@ -47,16 +48,18 @@ public class SearchPratoResponse {
               .append("&direction=").append(direction)
               .append("&size=").append(size);
 
-        links.put("self", baseUrl + "?" + params + "&page=" + page);
+        links.put("self", baseUrl + "?" + params + (cursor != null ? "&cursor=" + cursor : "&page=" + page));
         links.put("first", baseUrl + "?" + params + "&page=1");
-        links.put("last", baseUrl + "?" + params + "&page=" + totalPages);
+        if (totalPages != null) {
+            links.put("last", baseUrl + "?" + params + "&page=" + totalPages);
+        }
 
-        if (page > 1) {
-            links.put("prev", baseUrl + "?" + params + "&page=" + (page - 1));
+        if (prevCursor != null) {
+            links.put("prev", baseUrl + "?" + params + "&cursor=" + prevCursor);
         }
 
-        if (page < totalPages) {
-            links.put("next", baseUrl + "?" + params + "&page=" + (page + 1));
+        if (nextCursor != null) {
+            links.put("next", baseUrl + "?" + params + "&cursor=" + nextCursor);
         }
 
         links.put("pratos", baseUri + "pratos");
@@ -66,14 +69,20 @@ public class SearchPratoResponse {
     public static class PaginationMetadata {
         public int page;
         public int size;
-        public long totalElements;
-        public long totalPages;
-        
-        public PaginationMetadata(int page, int size, long totalElements, long totalPages) {
+
+        // Nulos quando a busca usa count=none
+        public Long totalElements;
+        public Long totalPages;
+
+        // true quando os totais vêm de estatística ou de uma contagem recente (count=estimate)
+        public boolean estimated;
+
+        public PaginationMetadata(int page, int size, Long totalElements, Long totalPages, boolean estimated) {
             this.page = page;
             this.size = size;
             this.totalElements = totalElements;
             this.totalPages = totalPages;
+            this.estimated = estimated;
         }
     }
 }
\ No newline at end of file
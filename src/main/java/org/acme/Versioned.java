@@ -0,0 +1,14 @@
+package org.acme;
+
+import java.time.Instant;
+
+/**
+ * Entidade com @Version e data da última alteração, base do ETag / Last-Modified
+ * ({@link ResourceVersion#of(Versioned)})
+ */
+public interface Versioned {
+
+    long versao();
+
+    Instant atualizadoEm();
+}
@@ -0,0 +1,36 @@
+package org.acme.bulk;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Resultado de um item de uma operação em lote, na posição em que veio no corpo
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkItemResult {
+
+    public int index;
+    // Mesmo significado do status HTTP da operação individual (201, 200, 204, 404, 409, 412, 422)
+    public int status;
+    public Long id;
+    public List<String> errors;
+
+    public BulkItemResult() {
+    }
+
+    public BulkItemResult(int index, int status, Long id, List<String> errors) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.errors = errors;
+    }
+
+    static BulkItemResult of(int index, int status, Long id) {
+        return new BulkItemResult(index, status, id, null);
+    }
+
+    static BulkItemResult invalid(int index, Long id, List<String> errors) {
+        return new BulkItemResult(index, 422, id, errors);
+    }
+}
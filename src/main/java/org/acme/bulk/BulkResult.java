@@ -0,0 +1,30 @@
+package org.acme.bulk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resposta dos endpoints /bulk: totais e o resultado de cada item, na ordem do corpo
+ */
+public class BulkResult {
+
+    public int total;
+    public int succeeded;
+    public int failed;
+    public List<BulkItemResult> items = new ArrayList<>();
+
+    public BulkResult() {
+    }
+
+    BulkResult(BulkItemResult[] results) {
+        for (BulkItemResult item : results) {
+            items.add(item);
+            if (item.status < 300) {
+                succeeded++;
+            } else {
+                failed++;
+            }
+        }
+        total = results.length;
+    }
+}
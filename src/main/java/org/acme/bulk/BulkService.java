@@ -0,0 +1,430 @@
+package org.acme.bulk;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.PluralAttribute;
+import jakarta.transaction.Transactional;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.acme.Versioned;
+import org.acme.search.SearchIndex;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Criação, alteração e exclusão em lote (endpoints /bulk).
+ *
+ * Todos os itens são validados antes de qualquer escrita; os inválidos voltam com 422 e
+ * os demais são gravados. O que o banco recusaria também é conferido antes, por lote: referência
+ * a registro inexistente (422), associação única já usada por outro registro (409), exclusão de
+ * registro ainda referenciado (409) e versão desatualizada na alteração (412). Assim nenhuma
+ * violação de constraint derruba a transação do lote inteiro.
+ *
+ * Cada requisição é uma transação: as escritas saem em batches
+ * JDBC (quarkus.hibernate-orm.jdbc.statement-batch-size) e o contexto de persistência é
+ * descarregado e limpo a cada bulk.batch-size itens, para a memória não crescer com o lote.
+ *
+ * Como são POST, os endpoints passam pelo IdempotencyFilter: repetir a requisição com a
+ * mesma Idempotency-Key devolve o resultado gravado em vez de aplicar o lote de novo.
+ */
+@ApplicationScoped
+public class BulkService {
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    Validator validator;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    SearchIndex searchIndex;
+
+    @ConfigProperty(name = "bulk.batch-size", defaultValue = "50")
+    int batchSize;
+
+    @ConfigProperty(name = "bulk.max-items", defaultValue = "10000")
+    int maxItems;
+
+    /**
+     * Item de /bulk/update: os campos novos e, opcionalmente, a versão que o cliente leu
+     * (campo "versao", o equivalente por item do If-Match)
+     */
+    public record Change<T>(T item, Long versao) {
+    }
+
+    /**
+     * Lê o corpo como array JSON ou NDJSON (um item por linha)
+     *
+     * @throws BadRequestException      quando o corpo não é JSON válido para o tipo
+     * @throws WebApplicationException  413 quando passa de bulk.max-items
+     */
+    public <T> List<T> read(InputStream body, Class<T> type) {
+        List<T> items = new ArrayList<>();
+        for (JsonNode node : readNodes(body)) {
+            items.add(convert(node, type, items.size()));
+        }
+        return items;
+    }
+
+    /**
+     * Como {@link #read}, guardando o campo "versao" de cada item para a conferência na alteração
+     */
+    public <T> List<Change<T>> readChanges(InputStream body, Class<T> type) {
+        List<Change<T>> changes = new ArrayList<>();
+        for (JsonNode node : readNodes(body)) {
+            JsonNode versao = node.get("versao");
+            Long expected = versao == null || versao.isNull() ? null : versao.asLong();
+            changes.add(new Change<>(convert(node, type, changes.size()), expected));
+        }
+        return changes;
+    }
+
+    // Um array na raiz é percorrido item a item; valores soltos (NDJSON) também
+    private List<JsonNode> readNodes(InputStream body) {
+        List<JsonNode> nodes = new ArrayList<>();
+        try (MappingIterator<JsonNode> values = objectMapper.readerFor(JsonNode.class).readValues(body)) {
+            while (values.hasNextValue()) {
+                if (nodes.size() == maxItems) {
+                    throw new WebApplicationException("Máximo de " + maxItems + " itens por requisição",
+                            Response.Status.REQUEST_ENTITY_TOO_LARGE);
+                }
+                nodes.add(values.nextValue());
+            }
+            return nodes;
+        } catch (IOException e) {
+            throw invalidBody(nodes.size(), e);
+        }
+    }
+
+    private <T> T convert(JsonNode node, Class<T> type, int index) {
+        try {
+            return objectMapper.treeToValue(node, type);
+        } catch (JsonProcessingException e) {
+            throw invalidBody(index, e);
+        }
+    }
+
+    // Posição do erro, sem repassar a mensagem do Jackson (que expõe nomes de classes internas)
+    private static BadRequestException invalidBody(int index, IOException e) {
+        JsonLocation location = e instanceof JsonProcessingException json ? json.getLocation() : null;
+        String where = location == null || location.getLineNr() < 0
+                ? ""
+                : " (linha " + location.getLineNr() + ", coluna " + location.getColumnNr() + ")";
+        String message = "Corpo inválido no item " + index + where
+                + ": esperado um array JSON ou NDJSON com os campos do recurso";
+        return new BadRequestException(message, Response.status(400).entity(message).type(MediaType.TEXT_PLAIN).build());
+    }
+
+    @Transactional
+    public <T extends PanacheEntityBase> BulkResult create(List<T> items, Class<T> type) {
+        BulkItemResult[] results = new BulkItemResult[items.size()];
+        Map<String, Set<Long>> claimed = new HashMap<>();
+        List<Integer> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            List<String> errors = violations(item);
+            if (id(item) != null) {
+                errors.add("id: gerado pelo servidor, não deve ser informado");
+            }
+            if (!errors.isEmpty()) {
+                results[i] = BulkItemResult.invalid(i, null, errors);
+                continue;
+            }
+            batch.add(i);
+            if (batch.size() == batchSize) {
+                createBatch(items, batch, type, claimed, results);
+            }
+        }
+        createBatch(items, batch, type, claimed, results);
+        return new BulkResult(results);
+    }
+
+    private <T extends PanacheEntityBase> void createBatch(List<T> items, List<Integer> batch, Class<T> type,
+                                                       Map<String, Set<Long>> claimed, BulkItemResult[] results) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        checkReferences(items, batch, type, claimed, results);
+        for (int i : batch) {
+            T item = items.get(i);
+            // O id vem do bloco já reservado da sequence no persist; o INSERT fica para o flush do lote
+            em.persist(item);
+            results[i] = BulkItemResult.of(i, 201, id(item));
+        }
+        flushAndClear();
+        batch.clear();
+    }
+
+    /**
+     * @param copy - Copia os campos alteráveis do item recebido para a entidade (a mesma regra do PUT individual)
+     */
+    @Transactional
+    public <T extends PanacheEntityBase & Versioned> BulkResult update(List<Change<T>> changes, Class<T> type, BiConsumer<T, T> copy) {
+        BulkItemResult[] results = new BulkItemResult[changes.size()];
+        List<T> items = changes.stream().map(Change::item).toList();
+        Map<String, Set<Long>> claimed = new HashMap<>();
+        List<Integer> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            List<String> errors = violations(item);
+            if (id(item) == null) {
+                errors.add("id: obrigatório para alterar");
+            }
+            if (!errors.isEmpty()) {
+                results[i] = BulkItemResult.invalid(i, id(item), errors);
+                continue;
+            }
+            batch.add(i);
+            if (batch.size() == batchSize) {
+                updateBatch(changes, items, batch, type, copy, claimed, results);
+            }
+        }
+        updateBatch(changes, items, batch, type, copy, claimed, results);
+        return new BulkResult(results);
+    }
+
+    // Carrega o lote com um único "where id in" em vez de um findById por item
+    private <T extends PanacheEntityBase & Versioned> void updateBatch(List<Change<T>> changes, List<T> items, List<Integer> batch,
+                                                                   Class<T> type, BiConsumer<T, T> copy,
+                                                                   Map<String, Set<Long>> claimed, BulkItemResult[] results) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        checkReferences(items, batch, type, claimed, results);
+        Set<Long> ids = new HashSet<>();
+        for (int i : batch) {
+            ids.add(id(items.get(i)));
+        }
+        Map<Long, T> byId = new HashMap<>();
+        for (T entity : em.createQuery("from " + type.getSimpleName() + " where id in :ids", type)
+                .setParameter("ids", ids)
+                .getResultList()) {
+            byId.put(id(entity), entity);
+        }
+        for (int i : batch) {
+            T item = items.get(i);
+            Long id = id(item);
+            T entity = byId.get(id);
+            Long expected = changes.get(i).versao();
+            if (entity == null) {
+                results[i] = BulkItemResult.of(i, 404, id);
+            } else if (expected != null && expected != entity.versao()) {
+                // Mesma regra do If-Match no PUT individual; o flush ainda confere a versão contra corridas
+                results[i] = new BulkItemResult(i, 412, id,
+                        List.of("versao: " + expected + " desatualizada, a atual é " + entity.versao()));
+            } else {
+                copy.accept(entity, item);
+                results[i] = BulkItemResult.of(i, 200, id);
+            }
+        }
+        flushAndClear();
+        batch.clear();
+    }
+
+    /**
+     * Exclui por id com "delete ... where id in", um comando por lote. Sem carregar as entidades,
+     * os listeners não rodam: o índice de texto é avisado diretamente.
+     */
+    @Transactional
+    public BulkResult delete(List<Long> ids, Class<?> type) {
+        BulkItemResult[] results = new BulkItemResult[ids.size()];
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> batch = ids.subList(from, Math.min(ids.size(), from + batchSize));
+            List<Long> lookup = batch.stream().filter(Objects::nonNull).toList();
+            Set<Long> existing = new HashSet<>();
+            Set<Long> inUse = Set.of();
+            if (!lookup.isEmpty()) {
+                existing.addAll(em.createQuery("select e.id from " + type.getSimpleName() + " e where e.id in :ids", Long.class)
+                        .setParameter("ids", lookup)
+                        .getResultList());
+                inUse = referenced(type, existing);
+                existing.removeAll(inUse);
+            }
+            if (!existing.isEmpty()) {
+                em.createQuery("delete from " + type.getSimpleName() + " e where e.id in :ids")
+                        .setParameter("ids", existing)
+                        .executeUpdate();
+                searchIndex.removed(type, existing);
+            }
+            for (int i = from; i < from + batch.size(); i++) {
+                Long id = ids.get(i);
+                results[i] = inUse.contains(id)
+                        ? new BulkItemResult(i, 409, id, List.of("id: ainda referenciado por outro registro"))
+                        : BulkItemResult.of(i, existing.contains(id) ? 204 : 404, id);
+            }
+        }
+        return new BulkResult(results);
+    }
+
+    /**
+     * Confere as associações para um (lado dono) dos itens do lote: o registro apontado precisa
+     * existir (senão 422) e, se a coluna é única, não pode estar com outro registro nem com outro
+     * item da requisição (senão 409). Os itens recusados saem do lote; nos demais a referência
+     * vira um proxy gerenciado do registro.
+     *
+     * @param claimed - Alvos das associações únicas já tomados nesta requisição, por atributo
+     */
+    private <T> void checkReferences(List<T> items, List<Integer> batch, Class<T> type,
+                                     Map<String, Set<Long>> claimed, BulkItemResult[] results) {
+        for (Attribute<? super T, ?> attribute : em.getMetamodel().entity(type).getSingularAttributes()) {
+            if (!attribute.isAssociation() || !owning(attribute)) {
+                continue;
+            }
+            Field field = (Field) attribute.getJavaMember();
+            String name = attribute.getName();
+            Map<Integer, Long> targets = new HashMap<>();
+            for (int i : batch) {
+                Object target = valueOf(field, items.get(i));
+                if (target != null) {
+                    targets.put(i, id(target));
+                }
+            }
+            if (targets.isEmpty()) {
+                continue;
+            }
+            Set<Long> ids = new HashSet<>(targets.values());
+            ids.remove(null);
+
+            Class<?> targetType = attribute.getJavaType();
+            Set<Long> existing = ids.isEmpty() ? Set.of() : new HashSet<>(em.createQuery(
+                            "select t.id from " + targetType.getSimpleName() + " t where t.id in :ids", Long.class)
+                    .setParameter("ids", ids)
+                    .getResultList());
+            boolean unique = unique(field);
+            Map<Long, Long> owners = new HashMap<>();
+            if (unique && !existing.isEmpty()) {
+                for (Object[] row : em.createQuery("select e." + name + ".id, e.id from " + type.getSimpleName()
+                                + " e where e." + name + ".id in :ids", Object[].class)
+                        .setParameter("ids", existing)
+                        .getResultList()) {
+                    owners.put((Long) row[0], (Long) row[1]);
+                }
+            }
+
+            Set<Long> taken = claimed.computeIfAbsent(name, k -> new HashSet<>());
+            for (Map.Entry<Integer, Long> entry : targets.entrySet()) {
+                int i = entry.getKey();
+                Long target = entry.getValue();
+                Long id = id(items.get(i));
+                Long owner = owners.get(target);
+                if (target == null || !existing.contains(target)) {
+                    results[i] = BulkItemResult.invalid(i, id, List.of(name + ": registro não encontrado"));
+                } else if (unique && ((owner != null && !owner.equals(id)) || !taken.add(target))) {
+                    results[i] = new BulkItemResult(i, 409, id, List.of(name + ": já associado a outro registro"));
+                } else {
+                    assign(field, items.get(i), em.getReference(targetType, target));
+                }
+            }
+        }
+        batch.removeIf(i -> results[i] != null);
+    }
+
+    // Ids ainda apontados por uma associação de outra entidade (lado dono): a exclusão violaria a chave estrangeira
+    private Set<Long> referenced(Class<?> type, Collection<Long> ids) {
+        Set<Long> used = new HashSet<>();
+        if (ids.isEmpty()) {
+            return used;
+        }
+        for (EntityType<?> owner : em.getMetamodel().getEntities()) {
+            for (Attribute<?, ?> attribute : owner.getAttributes()) {
+                Class<?> target = attribute instanceof PluralAttribute<?, ?, ?> plural
+                        ? plural.getElementType().getJavaType()
+                        : attribute.getJavaType();
+                if (!attribute.isAssociation() || target != type || !owning(attribute)) {
+                    continue;
+                }
+                used.addAll(em.createQuery("select distinct t.id from " + owner.getName() + " o join o."
+                                + attribute.getName() + " t where t.id in :ids", Long.class)
+                        .setParameter("ids", ids)
+                        .getResultList());
+            }
+        }
+        return used;
+    }
+
+    // Lado dono: é ele que tem a coluna (ou a tabela de junção) e a constraint no banco
+    private static boolean owning(Attribute<?, ?> attribute) {
+        if (!(attribute.getJavaMember() instanceof AnnotatedElement element)) {
+            return false;
+        }
+        OneToOne oneToOne = element.getAnnotation(OneToOne.class);
+        OneToMany oneToMany = element.getAnnotation(OneToMany.class);
+        ManyToMany manyToMany = element.getAnnotation(ManyToMany.class);
+        return (oneToOne == null || oneToOne.mappedBy().isEmpty())
+                && (oneToMany == null || oneToMany.mappedBy().isEmpty())
+                && (manyToMany == null || manyToMany.mappedBy().isEmpty());
+    }
+
+    // @OneToOne do lado dono tem a chave estrangeira única, como @JoinColumn(unique = true)
+    private static boolean unique(Field field) {
+        JoinColumn column = field.getAnnotation(JoinColumn.class);
+        return field.isAnnotationPresent(OneToOne.class) || (column != null && column.unique());
+    }
+
+    private static Object valueOf(Field field, Object entity) {
+        try {
+            return field.get(entity);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Associação inacessível: " + field, e);
+        }
+    }
+
+    private static void assign(Field field, Object entity, Object value) {
+        try {
+            field.set(entity, value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Associação inacessível: " + field, e);
+        }
+    }
+
+    // As entidades declaram o próprio @Id (cada uma com a sua sequence); o tipo comum é só PanacheEntityBase
+    private Long id(Object entity) {
+        return (Long) em.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity);
+    }
+
+    private void flushAndClear() {
+        em.flush();
+        em.clear();
+    }
+
+    private List<String> violations(Object item) {
+        List<String> errors = new ArrayList<>();
+        for (ConstraintViolation<Object> violation : validator.validate(item)) {
+            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        return errors;
+    }
+}
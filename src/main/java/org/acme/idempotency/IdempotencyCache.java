@@ -0,0 +1,206 @@
+package org.acme.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Near-cache das chaves de idempotência, na frente da tabela IdempotencyKey.
+ *
+ * - Respostas já gravadas ficam em memória até o próprio expiresAt (limitado em max-entries).
+ * - Um Bloom filter com todas as chaves válidas diz quais chaves provavelmente já existem:
+ *   essas são lidas antes; as novas, que são a maioria, vão direto à reserva (INSERT).
+ *
+ * O Bloom filter de cada réplica recebe as chaves das outras a cada bloom-sync-interval
+ * e é reconstruído a cada bloom-rebuild-interval para esquecer as expiradas.
+ */
+@ApplicationScoped
+public class IdempotencyCache {
+
+    // Folga na sincronização incremental para cobrir relógios levemente diferentes entre réplicas
+    private static final Duration SYNC_MARGIN = Duration.ofMinutes(1);
+
+    @Inject
+    IdempotencyConfig config;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Cache<String, IdempotencyKey> responses;
+    private volatile BloomFilter bloom;
+    private volatile BloomFilter rebuilding;
+    private volatile LocalDateTime lastSync;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter bloomSkips;
+    private Counter bloomFalsePositives;
+
+    @PostConstruct
+    void init() {
+        IdempotencyConfig.Cache cfg = config.cache();
+        responses = Caffeine.newBuilder()
+                .maximumSize(cfg.maxEntries())
+                .expireAfter(new Expiry<String, IdempotencyKey>() {
+                    @Override
+                    public long expireAfterCreate(String key, IdempotencyKey value, long currentTime) {
+                        return Math.max(0, Duration.between(LocalDateTime.now(), value.expiresAt).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, IdempotencyKey value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, IdempotencyKey value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        bloom = new BloomFilter(cfg.expectedKeys(), cfg.falsePositiveRate());
+
+        Gauge.builder("idempotency.cache.entries", responses, Cache::estimatedSize)
+                .description("Respostas idempotentes em memória")
+                .register(registry);
+        hits = Counter.builder("idempotency.cache.hits").description("Replays servidos da memória").register(registry);
+        misses = Counter.builder("idempotency.cache.misses").description("Consultas que não estavam na memória").register(registry);
+        bloomSkips = Counter.builder("idempotency.cache.bloom.skips")
+                .description("Chaves novas que foram direto à reserva, sem leitura prévia no banco")
+                .register(registry);
+        bloomFalsePositives = Counter.builder("idempotency.cache.bloom.false-positives")
+                .description("Consultas ao banco que o Bloom filter não evitou e não acharam nada")
+                .register(registry);
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (config.cache().enabled()) {
+            rebuildBloom();
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.cache().enabled();
+    }
+
+    /**
+     * Resposta em memória para a chave, ou null
+     */
+    public IdempotencyKey get(String key) {
+        if (!isEnabled()) {
+            return null;
+        }
+        IdempotencyKey cached = responses.getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return cached;
+    }
+
+    /**
+     * false = esta réplica nunca viu a chave (outra pode ter gravado há menos de bloom-sync-interval):
+     * pular a leitura e ir direto à reserva; true = pode existir, ler antes
+     */
+    public boolean mightExist(String key) {
+        if (!isEnabled() || bloom.mightContain(key)) {
+            return true;
+        }
+        bloomSkips.increment();
+        return false;
+    }
+
+    /**
+     * Registra que o banco foi lido por causa do Bloom filter e a chave não existia
+     */
+    void recordFalsePositive() {
+        bloomFalsePositives.increment();
+    }
+
+    public void put(IdempotencyKey key) {
+        if (!isEnabled()) {
+            return;
+        }
+        addToBloom(key.idempotencyKey);
+        responses.put(key.idempotencyKey, key);
+    }
+
+    /**
+     * Chave reservada (ainda sem resposta): entra só no Bloom filter
+     */
+    public void remember(String key) {
+        if (isEnabled()) {
+            addToBloom(key);
+        }
+    }
+
+    public void invalidate(String key) {
+        responses.invalidate(key);
+    }
+
+    /**
+     * Adiciona ao Bloom filter as chaves gravadas desde a última sincronização (inclusive por outras réplicas)
+     */
+    @Scheduled(every = "${idempotency.cache.bloom-sync-interval:5s}", delayed = "${idempotency.cache.bloom-sync-interval:5s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    @Transactional
+    void syncBloom() {
+        if (!isEnabled() || lastSync == null) {
+            return;
+        }
+        LocalDateTime since = lastSync.minus(SYNC_MARGIN);
+        lastSync = LocalDateTime.now();
+        try (Stream<String> keys = IdempotencyKey.getEntityManager()
+                .createQuery("select k.idempotencyKey from IdempotencyKey k where k.createdAt >= :since", String.class)
+                .setParameter("since", since)
+                .getResultStream()) {
+            keys.forEach(this::addToBloom);
+        }
+    }
+
+    /**
+     * Recria o Bloom filter só com as chaves ainda válidas
+     */
+    @Scheduled(every = "${idempotency.cache.bloom-rebuild-interval:1h}", delayed = "${idempotency.cache.bloom-rebuild-interval:1h}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    @Transactional
+    void rebuildBloom() {
+        IdempotencyConfig.Cache cfg = config.cache();
+        BloomFilter fresh = new BloomFilter(cfg.expectedKeys(), cfg.falsePositiveRate());
+        // Chaves gravadas durante a reconstrução vão para os dois filtros
+        rebuilding = fresh;
+        LocalDateTime startedAt = LocalDateTime.now();
+        try (Stream<String> keys = IdempotencyKey.getEntityManager()
+                .createQuery("select k.idempotencyKey from IdempotencyKey k where k.expiresAt > :now", String.class)
+                .setParameter("now", startedAt)
+                .getResultStream()) {
+            keys.forEach(fresh::put);
+        }
+        bloom = fresh;
+        rebuilding = null;
+        lastSync = startedAt;
+    }
+
+    private void addToBloom(String key) {
+        bloom.put(key);
+        BloomFilter next = rebuilding;
+        if (next != null) {
+            next.put(key);
+        }
+    }
+}
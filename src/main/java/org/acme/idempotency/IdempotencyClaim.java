@@ -0,0 +1,33 @@
+package org.acme.idempotency;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resultado da reserva de uma chave de idempotência ({@link IdempotencyService#claim}).
+ *
+ * reservedAt identifica a reserva desta requisição: só ela grava a resposta ou libera a chave,
+ * mesmo que a reserva tenha vencido e outra requisição a tenha assumido.
+ */
+public record IdempotencyClaim(State state, IdempotencyKey stored, LocalDateTime reservedAt) {
+
+    public enum State {
+        /** A chave é desta requisição: executa o endpoint e grava a resposta */
+        OWNED,
+        /** A chave já tem resposta gravada: replay */
+        COMPLETED,
+        /** Outra requisição, nesta ou em outra réplica, reservou a chave e ainda não terminou */
+        IN_PROGRESS
+    }
+
+    static IdempotencyClaim owned(LocalDateTime reservedAt) {
+        return new IdempotencyClaim(State.OWNED, null, reservedAt);
+    }
+
+    static IdempotencyClaim completed(IdempotencyKey stored) {
+        return new IdempotencyClaim(State.COMPLETED, stored, null);
+    }
+
+    static IdempotencyClaim inProgress() {
+        return new IdempotencyClaim(State.IN_PROGRESS, null, null);
+    }
+}
@@ -0,0 +1,71 @@
+package org.acme.idempotency;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+/**
+ * Configuração da idempotência (prefixo "idempotency" no application.properties)
+ */
+@ConfigMapping(prefix = "idempotency")
+public interface IdempotencyConfig {
+
+    Cache cache();
+
+    /**
+     * Retry-After do 409 que recebe uma requisição duplicada enquanto a original ainda executa
+     */
+    @WithDefault("1s")
+    Duration inProgressRetryAfter();
+
+    /**
+     * Validade de uma reserva sem resposta. Deve passar da duração da requisição mais lenta:
+     * vencida, a dona provavelmente caiu e outra requisição com a mesma chave pode assumir.
+     */
+    @WithDefault("60s")
+    Duration reservationTimeout();
+
+    /**
+     * Respostas a partir deste tamanho são gravadas comprimidas com GZIP
+     */
+    @WithDefault("512")
+    int compressionThresholdBytes();
+
+    interface Cache {
+
+        /**
+         * Liga o near-cache e o Bloom filter na frente da tabela IdempotencyKey
+         */
+        @WithDefault("true")
+        boolean enabled();
+
+        /**
+         * Máximo de respostas mantidas em memória
+         */
+        @WithDefault("10000")
+        long maxEntries();
+
+        /**
+         * Chaves previstas dentro das 24h de validade (dimensiona o Bloom filter)
+         */
+        @WithDefault("1000000")
+        long expectedKeys();
+
+        @WithDefault("0.01")
+        double falsePositiveRate();
+
+        /**
+         * A cada intervalo o Bloom filter recebe as chaves gravadas por outras réplicas.
+         * Até lá essas chaves vão direto à reserva, que as reconhece pela unique constraint.
+         */
+        @WithDefault("5s")
+        String bloomSyncInterval();
+
+        /**
+         * Reconstrução completa do Bloom filter, descartando chaves expiradas
+         */
+        @WithDefault("1h")
+        String bloomRebuildInterval();
+    }
+}
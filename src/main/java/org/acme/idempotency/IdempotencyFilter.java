@@ -6,15 +6,27 @@ import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.container.ContainerRequestFilter;
 import jakarta.ws.rs.container.ContainerResponseContext;
 import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.ext.Provider;
+import org.jboss.logging.Logger;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 @Provider
 public class IdempotencyFilter implements ContainerRequestFilter, ContainerResponseFilter {
 
+    private static final Logger LOG = Logger.getLogger(IdempotencyFilter.class);
+
     @Inject
     IdempotencyService idempotencyService;
 
@@ -23,48 +35,124 @@ public class IdempotencyFilter implements ContainerRequestFilter, ContainerRespo
 
     private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
     private static final String IDEMPOTENCY_KEY_PROPERTY = "idempotency.key";
+    private static final String RESERVED_AT_PROPERTY = "idempotency.reserved-at";
+    private static final byte[] EMPTY_JSON = "{}".getBytes(StandardCharsets.UTF_8);
+
+    // Headers gerados por requisição, que não devem ser copiados da resposta original
+    private static final Set<String> NOT_REPLAYED_HEADERS = Set.of(
+            "content-type", "content-length", "content-encoding", "transfer-encoding", "date",
+            "connection", "set-cookie", "idempotency-key", "x-idempotency-message");
 
     @Override
     public void filter(ContainerRequestContext requestContext) throws IOException {
-        System.out.println("=== IdempotencyFilter: Método = " + requestContext.getMethod());
-
         // Apenas aplica idempotência em requisições POST
         if (!"POST".equals(requestContext.getMethod())) {
             return;
         }
 
         String idempotencyKey = requestContext.getHeaderString(IDEMPOTENCY_KEY_HEADER);
-        System.out.println("=== IdempotencyKey recebida: " + idempotencyKey);
-
         if (idempotencyKey == null || idempotencyKey.isBlank()) {
-            System.out.println("=== Nenhuma chave de idempotência fornecida, pulando...");
             return;
         }
 
-        IdempotencyKey stored = idempotencyService.findOrCreate(idempotencyKey);
-        System.out.println("=== Chave já existe no banco? " + (stored != null));
+        IdempotencyClaim claim = idempotencyService.claim(idempotencyKey);
+        switch (claim.state()) {
+            case OWNED -> {
+                LOG.debugf("Chave de idempotência %s reservada", idempotencyKey);
+                requestContext.setProperty(IDEMPOTENCY_KEY_PROPERTY, idempotencyKey);
+                requestContext.setProperty(RESERVED_AT_PROPERTY, claim.reservedAt());
+            }
+            case IN_PROGRESS -> {
+                // Sem esperar a original: uma thread parada por duplicata esgotaria o pool com poucos retries
+                LOG.debugf("Chave de idempotência %s em processamento por outra requisição", idempotencyKey);
+                requestContext.abortWith(inProgress(idempotencyKey));
+            }
+            case COMPLETED -> {
+                LOG.debugf("Replay da resposta armazenada para a chave %s", idempotencyKey);
+                requestContext.abortWith(replay(claim.stored(), idempotencyKey, requestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING)));
+            }
+        }
+    }
 
-        if (stored != null) {
-            System.out.println("=== REPLAY! Retornando resposta armazenada");
+    private Response inProgress(String idempotencyKey) {
+        return Response
+                .status(Response.Status.CONFLICT)
+                .entity("{\"error\": \"Conflict\", \"message\": \"Uma requisição com esta Idempotency-Key ainda está em processamento.\"}")
+                .type(MediaType.APPLICATION_JSON)
+                .header("Idempotency-Key", idempotencyKey)
+                .header(HttpHeaders.RETRY_AFTER, idempotencyService.inProgressRetryAfterSeconds())
+                .build();
+    }
 
-            // Deserializa o JSON salvo de volta para objeto
-            Object responseBody = objectMapper.readValue(stored.responseBody, Object.class);
+    /**
+     * Monta a resposta a partir dos bytes gravados, sem passar pelo Jackson.
+     * Se o corpo está comprimido e o cliente aceita gzip, os bytes vão como estão.
+     */
+    static Response replay(IdempotencyKey stored, String idempotencyKey, String acceptEncoding) {
+        Response.ResponseBuilder builder = Response
+                .status(stored.statusCode)
+                .type(stored.contentType)
+                .header("X-Idempotent-Replayed", "true")
+                .header("X-Idempotency-Message", "Esta requisição foi processada anteriormente. Retornando resposta armazenada.")
+                .header("Idempotency-Key", idempotencyKey);
+
+        if (!stored.compressed) {
+            builder.entity(stored.responseBody);
+        } else if (acceptsGzip(acceptEncoding)) {
+            builder.entity(stored.responseBody)
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        } else {
+            builder.entity((StreamingOutput) stored::writeBody);
+        }
 
-            Response response = Response
-                    .status(stored.statusCode)
-                    .entity(responseBody)
-                    .type(MediaType.APPLICATION_JSON)
-                    .header("X-Idempotent-Replayed", "true")
-                    .header("X-Idempotency-Message", "Esta requisição foi processada anteriormente. Retornando resposta armazenada.")
-                    .header("Idempotency-Key", idempotencyKey)
-                    .build();
+        if (stored.responseHeaders != null) {
+            for (String line : stored.responseHeaders.split("\n")) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    builder.header(line.substring(0, colon), line.substring(colon + 1).trim());
+                }
+            }
+        }
+        return builder.build();
+    }
 
-            requestContext.abortWith(response);
-            return;
+    /**
+     * Accept-Encoding com q-values: "gzip;q=0" recusa gzip, e "*" vale para gzip quando ele não
+     * aparece explicitamente (RFC 9110, 12.5.3)
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
         }
+        float gzip = -1;
+        float any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            float q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                    q = qValue(param.substring(2).trim());
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = Math.max(gzip, q);
+            } else if (name.equals("*")) {
+                any = q;
+            }
+        }
+        return gzip >= 0 ? gzip > 0 : any > 0;
+    }
 
-        System.out.println("=== Nova requisição, marcando para salvar");
-        requestContext.setProperty(IDEMPOTENCY_KEY_PROPERTY, idempotencyKey);
+    // q inválido conta como 0: na dúvida a resposta vai descomprimida
+    private static float qValue(String value) {
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
     @Override
@@ -75,32 +163,65 @@ public class IdempotencyFilter implements ContainerRequestFilter, ContainerRespo
             return;
         }
 
-        // Apenas salva se a resposta foi bem-sucedida (2xx)
-        if (responseContext.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
-            System.out.println("=== Salvando resposta para chave: " + idempotencyKey);
-
-            Object entity = responseContext.getEntity();
+        saveIfSuccessful(idempotencyKey, (LocalDateTime) requestContext.getProperty(RESERVED_AT_PROPERTY), responseContext);
+    }
 
-            // Serializa o objeto para JSON string
-            String responseBodyJson;
-            if (entity != null) {
-                responseBodyJson = objectMapper.writeValueAsString(entity);
-            } else {
-                responseBodyJson = "{}";
-            }
+    private IdempotencyKey saveIfSuccessful(String idempotencyKey, LocalDateTime reservedAt,
+                                            ContainerResponseContext responseContext) throws IOException {
+        // Apenas salva se a resposta foi bem-sucedida (2xx); senão libera a chave para nova tentativa
+        if (responseContext.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+            idempotencyService.release(idempotencyKey, reservedAt);
+            return null;
+        }
 
-            System.out.println("=== JSON serializado: " + responseBodyJson);
+        // Serializa o objeto uma única vez para os bytes que serão reproduzidos
+        byte[] body = toBytes(responseContext.getEntity());
+        MediaType mediaType = responseContext.getMediaType();
+        String contentType = mediaType != null ? mediaType.toString() : MediaType.APPLICATION_JSON;
+
+        // Salva no banco
+        IdempotencyKey saved = idempotencyService.saveResponse(
+                idempotencyKey,
+                reservedAt,
+                responseContext.getStatus(),
+                body,
+                contentType,
+                replayableHeaders(responseContext.getStringHeaders())
+        );
+
+        // Adiciona headers informativos na primeira execução
+        responseContext.getHeaders().add("Idempotency-Key", idempotencyKey);
+        responseContext.getHeaders().add("X-Idempotency-Message", "Requisição processada com sucesso. Esta resposta será armazenada por 24 horas.");
+        return saved;
+    }
 
-            // Salva no banco
-            idempotencyService.saveResponse(
-                    idempotencyKey,
-                    responseContext.getStatus(),
-                    responseBodyJson
-            );
+    private byte[] toBytes(Object entity) throws IOException {
+        if (entity == null) {
+            return EMPTY_JSON;
+        }
+        if (entity instanceof byte[] bytes) {
+            return bytes;
+        }
+        if (entity instanceof String text) {
+            return text.getBytes(StandardCharsets.UTF_8);
+        }
+        return objectMapper.writeValueAsBytes(entity);
+    }
 
-            // Adiciona headers informativos na primeira execução
-            responseContext.getHeaders().add("Idempotency-Key", idempotencyKey);
-            responseContext.getHeaders().add("X-Idempotency-Message", "Requisição processada com sucesso. Esta resposta será armazenada por 24 horas.");
+    /**
+     * Headers da resposta original que fazem sentido no replay (ex: Location, ETag)
+     */
+    private static String replayableHeaders(MultivaluedMap<String, String> headers) {
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            String name = header.getKey();
+            if (NOT_REPLAYED_HEADERS.contains(name.toLowerCase(Locale.ROOT)) || name.regionMatches(true, 0, "X-RateLimit-", 0, 12)) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                lines.append(name).append(": ").append(value).append('\n');
+            }
         }
+        return lines.isEmpty() ? null : lines.toString();
     }
 }
@@ -3,19 +3,44 @@ package org.acme.idempotency;
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
 import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_idempotency_created_at", columnList = "createdAt"),
+        @Index(name = "idx_idempotency_expires_at", columnList = "expiresAt")
+}, uniqueConstraints = @UniqueConstraint(name = IdempotencyKey.UNIQUE_KEY, columnNames = "idempotencyKey"))
 public class IdempotencyKey extends PanacheEntity {
 
+    /**
+     * Nome da unique constraint em idempotencyKey, para distinguir "chave já gravada" de outras falhas
+     */
+    public static final String UNIQUE_KEY = "uk_idempotency_key";
+
     /**
      * A chave única de idempotência enviada pelo cliente
      * Exemplo: "550e8400-e29b-41d4-a716-446655440000"
      */
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     public String idempotencyKey;
 
+    /**
+     * false enquanto a chave está reservada e a requisição original não terminou;
+     * nesse estado os campos da resposta ficam vazios e expiresAt é o fim da reserva
+     */
+    @Column(nullable = false)
+    public boolean completed;
+
     /**
      * Status HTTP da resposta original (ex: 201, 200)
      */
@@ -23,12 +48,29 @@ public class IdempotencyKey extends PanacheEntity {
     public int statusCode;
 
     /**
-     * Corpo da resposta JSON serializado
-     * Armazenado como TEXT para suportar JSONs grandes
+     * Corpo da resposta em UTF-8, exatamente como vai para o cliente
+     * Comprimido com GZIP quando {@link #compressed} é true. LOB: respostas de /bulk com
+     * milhares de itens passam de qualquer tamanho fixo de coluna
+     */
+    @Lob
+    public byte[] responseBody;
+
+    /**
+     * Indica se {@link #responseBody} está comprimido com GZIP
+     */
+    @Column(nullable = false)
+    public boolean compressed;
+
+    /**
+     * Content-Type da resposta original (ex: "application/json")
+     */
+    public String contentType;
+
+    /**
+     * Demais headers da resposta original, um por linha no formato "Nome: valor"
      */
     @Lob
-    @Column(nullable = false, columnDefinition = "TEXT")
-    public String responseBody;
+    public String responseHeaders;
 
     /**
      * Quando a chave foi criada (primeira requisição)
@@ -37,7 +79,7 @@ public class IdempotencyKey extends PanacheEntity {
     public LocalDateTime createdAt;
 
     /**
-     * Quando a chave expira (24 horas após criação)
+     * Quando a chave expira (24 horas após a resposta, ou o fim da reserva)
      */
     @Column(nullable = false)
     public LocalDateTime expiresAt;
@@ -58,4 +100,17 @@ public class IdempotencyKey extends PanacheEntity {
     public boolean isExpired() {
         return LocalDateTime.now().isAfter(expiresAt);
     }
+
+    /**
+     * Escreve o corpo original no stream, descomprimindo se necessário
+     */
+    public void writeBody(OutputStream out) throws IOException {
+        if (!compressed) {
+            out.write(responseBody);
+            return;
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(responseBody))) {
+            in.transferTo(out);
+        }
+    }
 }
@@ -1,62 +1,247 @@
 package org.acme.idempotency;
 
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import org.hibernate.exception.ConstraintViolationException;
+import org.jboss.logging.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Serviço responsável por gerenciar chaves de idempotência
+ *
+ * Cada chave é reservada no banco antes de o endpoint executar (linha com completed = false)
+ * e completada com a resposta depois. Replays recentes saem do {@link IdempotencyCache}.
  */
 @ApplicationScoped
 public class IdempotencyService {
 
+    private static final Logger LOG = Logger.getLogger(IdempotencyService.class);
+
+    @Inject
+    IdempotencyCache cache;
+
+    @Inject
+    IdempotencyConfig config;
+
     /**
-     * Busca uma chave existente ou retorna null
-     * Se encontrar uma chave expirada, a deleta automaticamente
+     * Reserva a chave para esta requisição, ou informa que ela já foi (ou está sendo) processada.
+     *
+     * Quem decide é a unique constraint da tabela: a reserva é um INSERT e "chave duplicada"
+     * quer dizer que a chave já foi vista, nesta ou em outra réplica. O near-cache responde os
+     * replays sem ir ao banco; o Bloom filter só escolhe a ordem: chave provavelmente vista é
+     * lida antes (quase sempre replay), chave nova vai direto ao INSERT.
      *
      * @param key - Chave de idempotência
-     * @return IdempotencyKey se existe e é válida, null caso contrário
      */
-    @Transactional
-    public IdempotencyKey findOrCreate(String key) {
-        IdempotencyKey existing = IdempotencyKey.findByKey(key);
+    public IdempotencyClaim claim(String key) {
+        IdempotencyKey cached = cache.get(key);
+        if (cached != null && !cached.isExpired()) {
+            return IdempotencyClaim.completed(cached);
+        }
 
-        if (existing != null) {
-            // Verifica se expirou (passou de 24h)
-            if (existing.isExpired()) {
-                existing.delete();
-                return null; // Chave expirada, pode processar novamente
+        if (cache.mightExist(key)) {
+            IdempotencyClaim existing = QuarkusTransaction.requiringNew().call(() -> existing(key));
+            if (existing != null) {
+                return existing;
             }
-            return existing; // Chave válida, retorna para replay
+            cache.recordFalsePositive();
         }
+        return reserve(key);
+    }
+
+    /**
+     * Retry-After, em segundos, do 409 de uma chave ainda em processamento. Fica aqui porque o
+     * filtro JAX-RS não recebe o @ConfigMapping por injeção.
+     */
+    public long inProgressRetryAfterSeconds() {
+        return Math.max(1, config.inProgressRetryAfter().toSeconds());
+    }
 
-        return null; // Chave não existe, primeira vez
+    private IdempotencyClaim reserve(String key) {
+        LocalDateTime now = now();
+        IdempotencyKey reservation = new IdempotencyKey();
+        reservation.idempotencyKey = key;
+        reservation.createdAt = now;
+        reservation.expiresAt = now.plus(config.reservationTimeout());
+        try {
+            // flush dentro da transação: a violação chega aqui como ConstraintViolationException, não no commit
+            QuarkusTransaction.requiringNew().run(() -> {
+                reservation.persist();
+                IdempotencyKey.flush();
+            });
+            cache.remember(key);
+            return IdempotencyClaim.owned(now);
+        } catch (RuntimeException e) {
+            if (!isDuplicateKey(e)) {
+                throw e;
+            }
+        }
+
+        // Já existe: resposta gravada, reserva de outra requisição, ou registro vencido que pode ser assumido
+        return QuarkusTransaction.requiringNew().call(() -> {
+            IdempotencyClaim existing = existing(key);
+            if (existing != null) {
+                return existing;
+            }
+            return takeOver(key, now) ? IdempotencyClaim.owned(now) : IdempotencyClaim.inProgress();
+        });
+    }
+
+    // Registro válido da chave no banco, ou null se não existe ou já venceu
+    private IdempotencyClaim existing(String key) {
+        IdempotencyKey existing = IdempotencyKey.findByKey(key);
+        if (existing == null || existing.isExpired()) {
+            return null;
+        }
+        if (!existing.completed) {
+            return IdempotencyClaim.inProgress();
+        }
+        cache.put(existing);
+        return IdempotencyClaim.completed(existing);
+    }
+
+    /**
+     * Resposta de 24h vencida ou reserva abandonada (a dona caiu antes de responder):
+     * o UPDATE condicional garante que só uma requisição assume
+     */
+    private boolean takeOver(String key, LocalDateTime now) {
+        int updated = IdempotencyKey.getEntityManager()
+                .createQuery("update IdempotencyKey k set k.completed = false, k.statusCode = 0, k.responseBody = null,"
+                        + " k.compressed = false, k.contentType = null, k.responseHeaders = null,"
+                        + " k.createdAt = :now, k.expiresAt = :lease"
+                        + " where k.idempotencyKey = :key and k.expiresAt < :now")
+                .setParameter("now", now)
+                .setParameter("lease", now.plus(config.reservationTimeout()))
+                .setParameter("key", key)
+                .executeUpdate();
+        if (updated == 0) {
+            return false;
+        }
+        cache.invalidate(key);
+        return true;
     }
 
     /**
-     * Salva a resposta de uma requisição para futuras repetições
+     * Salva a resposta de uma requisição para futuras repetições, completando a reserva
+     * Corpos acima de idempotency.compression-threshold-bytes são gravados com GZIP
      *
      * @param key - Chave de idempotência
+     * @param reservedAt - Reserva desta requisição ({@link IdempotencyClaim#reservedAt()})
      * @param statusCode - Status HTTP da resposta (ex: 201)
-     * @param responseBody - Corpo da resposta JSON
+     * @param responseBody - Corpo da resposta em UTF-8
+     * @param contentType - Content-Type da resposta
+     * @param responseHeaders - Headers a reproduzir no replay ("Nome: valor" por linha)
+     * @return a chave gravada, ou null se a reserva venceu e outra requisição a assumiu
      */
-    @Transactional
-    public void saveResponse(String key, int statusCode, String responseBody) {
+    public IdempotencyKey saveResponse(String key, LocalDateTime reservedAt, int statusCode, byte[] responseBody,
+                                       String contentType, String responseHeaders) {
         IdempotencyKey idempotencyKey = new IdempotencyKey();
         idempotencyKey.idempotencyKey = key;
+        idempotencyKey.completed = true;
         idempotencyKey.statusCode = statusCode;
-        idempotencyKey.responseBody = responseBody;
-        idempotencyKey.createdAt = LocalDateTime.now();
-        idempotencyKey.expiresAt = LocalDateTime.now().plusHours(24); // Expira em 24h
-        idempotencyKey.persist();
+        idempotencyKey.compressed = responseBody.length >= config.compressionThresholdBytes();
+        idempotencyKey.responseBody = idempotencyKey.compressed ? gzip(responseBody) : responseBody;
+        idempotencyKey.contentType = contentType;
+        idempotencyKey.responseHeaders = responseHeaders;
+        idempotencyKey.createdAt = now();
+        idempotencyKey.expiresAt = idempotencyKey.createdAt.plusHours(24); // Expira em 24h
+
+        int updated = QuarkusTransaction.requiringNew().call(() -> IdempotencyKey.getEntityManager()
+                .createQuery("update IdempotencyKey k set k.completed = true, k.statusCode = :status, k.responseBody = :body,"
+                        + " k.compressed = :compressed, k.contentType = :contentType, k.responseHeaders = :headers,"
+                        + " k.createdAt = :createdAt, k.expiresAt = :expiresAt"
+                        + " where k.idempotencyKey = :key and k.createdAt = :reservedAt and k.completed = false")
+                .setParameter("status", idempotencyKey.statusCode)
+                .setParameter("body", idempotencyKey.responseBody)
+                .setParameter("compressed", idempotencyKey.compressed)
+                .setParameter("contentType", idempotencyKey.contentType)
+                .setParameter("headers", idempotencyKey.responseHeaders)
+                .setParameter("createdAt", idempotencyKey.createdAt)
+                .setParameter("expiresAt", idempotencyKey.expiresAt)
+                .setParameter("key", key)
+                .setParameter("reservedAt", reservedAt)
+                .executeUpdate());
+        if (updated == 0) {
+            LOG.warnf("Reserva da chave de idempotência %s venceu antes da resposta; outra requisição a assumiu", key);
+            return null;
+        }
+
+        // Só entra no cache depois de gravado
+        cache.put(idempotencyKey);
+        return idempotencyKey;
+    }
+
+    /**
+     * Desfaz a reserva de uma requisição que não gerou resposta armazenável (ex: 4xx/5xx),
+     * para que o cliente possa tentar de novo com a mesma chave
+     */
+    public void release(String key, LocalDateTime reservedAt) {
+        QuarkusTransaction.requiringNew().run(() -> IdempotencyKey.delete(
+                "idempotencyKey = ?1 and createdAt = ?2 and completed = false", key, reservedAt));
+    }
+
+    // Precisão de milissegundos: createdAt identifica a reserva e precisa voltar do banco igual
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    // Só a unique constraint da chave conta como "já gravada"; a exceção pode vir embrulhada pela transação
+    static boolean isDuplicateKey(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                String constraint = violation.getConstraintName();
+                return constraint != null && constraint.toLowerCase(Locale.ROOT).contains(IdempotencyKey.UNIQUE_KEY);
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Remove um lote de chaves expiradas do banco (limpeza)
+     * Usa o índice em expiresAt e apaga por id, então cada chamada trava poucas linhas
+     * e por pouco tempo. Chamado em ciclos pelo MaintenanceScheduler.
+     *
+     * @param batchSize - Máximo de chaves removidas nesta chamada
+     * @return quantidade removida
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public int cleanExpired(int batchSize) {
+        List<Long> ids = IdempotencyKey.getEntityManager()
+                .createQuery("select k.id from IdempotencyKey k where k.expiresAt < :now order by k.expiresAt", Long.class)
+                .setParameter("now", LocalDateTime.now())
+                .setMaxResults(batchSize)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return (int) IdempotencyKey.delete("id in ?1", ids);
     }
 
     /**
-     * Remove chaves expiradas do banco (limpeza)
-     * Pode ser chamado por um scheduler periódico
+     * Quantidade de chaves expiradas aguardando limpeza
      */
     @Transactional
-    public void cleanExpired() {
-        IdempotencyKey.delete("expiresAt < ?1", LocalDateTime.now());
+    public long countExpired() {
+        return IdempotencyKey.count("expiresAt < ?1", LocalDateTime.now());
     }
 }
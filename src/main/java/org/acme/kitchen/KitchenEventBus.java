@@ -0,0 +1,176 @@
+package org.acme.kitchen;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.acme.Pedido;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Distribui as mudanças de pedidos para os painéis da cozinha (GET /pedidos/eventos).
+ *
+ * O evento é capturado na escrita e entregue só depois do commit, numerado em ordem. Entregar
+ * é enfileirar em cada {@link KitchenSubscriber}, sem I/O: quem grava nunca espera um painel.
+ * Os últimos kitchen.stream.replay-size eventos ficam guardados para o painel que reconecta
+ * com Last-Event-ID; se o que ele perdeu já saiu daqui, recebe "resync".
+ */
+@ApplicationScoped
+public class KitchenEventBus {
+
+    @Inject
+    TransactionSynchronizationRegistry transactions;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "kitchen.stream.buffer-size", defaultValue = "64")
+    int bufferSize;
+
+    @ConfigProperty(name = "kitchen.stream.replay-size", defaultValue = "256")
+    int replaySize;
+
+    @ConfigProperty(name = "kitchen.stream.max-subscribers", defaultValue = "500")
+    int maxSubscribers;
+
+    private final List<KitchenSubscriber> subscribers = new CopyOnWriteArrayList<>();
+    // Numeração, histórico e enfileiramento juntos: cada painel recebe na ordem da sequência
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<PedidoEvent> recent = new ArrayDeque<>();
+    private long sequence;
+    private Counter dropped;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("kitchen.stream.subscribers", subscribers, List::size)
+                .description("Painéis conectados ao stream de pedidos")
+                .register(registry);
+        dropped = Counter.builder("kitchen.stream.dropped")
+                .description("Eventos descartados por painéis lentos (fila cheia)")
+                .register(registry);
+    }
+
+    /**
+     * Captura o estado atual do pedido (depois do flush, com a versão nova) e agenda a entrega para o commit
+     */
+    public void publish(PedidoEvent.Tipo tipo, Pedido pedido, Pedido.StatusPedido statusAnterior, Long pratoId) {
+        PedidoEvent event = PedidoEvent.of(tipo, pedido, statusAnterior, pratoId);
+        afterCommit(() -> deliver(event));
+    }
+
+    public void publish(PedidoEvent.Tipo tipo, Pedido pedido) {
+        publish(tipo, pedido, null, null);
+    }
+
+    public void publishPratos(PedidoEvent.Tipo tipo, Pedido pedido, List<Long> pratoIds) {
+        PedidoEvent event = PedidoEvent.pratos(tipo, pedido, pratoIds);
+        afterCommit(() -> deliver(event));
+    }
+
+    /**
+     * Troca de status feita por UPDATE direto, sem a entidade carregada
+     */
+    public void publishTransition(long pedidoId, Pedido.StatusPedido de, Pedido.StatusPedido para, Long versao) {
+        PedidoEvent event = PedidoEvent.transition(pedidoId, de, para, versao);
+        afterCommit(() -> deliver(event));
+    }
+
+    /**
+     * @param lastEventId - Last-Event-ID da reconexão, ou null numa conexão nova
+     * @param statuses    - Só eventos destes status (vazio: todos)
+     * @return false quando já há kitchen.stream.max-subscribers painéis conectados
+     */
+    public boolean subscribe(SseEventSink sink, Sse sse, Long lastEventId, Set<Pedido.StatusPedido> statuses) {
+        if (subscribers.size() >= maxSubscribers) {
+            return false;
+        }
+        KitchenSubscriber subscriber = new KitchenSubscriber(sink, sse, Set.copyOf(statuses), bufferSize, dropped, subscribers::remove);
+        lock.lock();
+        try {
+            if (lastEventId != null) {
+                replay(subscriber, lastEventId);
+            }
+            subscribers.add(subscriber);
+        } finally {
+            lock.unlock();
+        }
+        subscriber.drain();
+        return true;
+    }
+
+    private void replay(KitchenSubscriber subscriber, long lastEventId) {
+        PedidoEvent oldest = recent.peekFirst();
+        boolean lost = lastEventId < sequence && (oldest == null || oldest.sequencia() > lastEventId + 1);
+        // Acima da sequência atual: o id é de antes de um reinício
+        if (lost || lastEventId > sequence) {
+            subscriber.resync(sequence);
+            return;
+        }
+        for (PedidoEvent event : recent) {
+            if (event.sequencia() > lastEventId && subscriber.accepts(event)) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    private void deliver(PedidoEvent draft) {
+        lock.lock();
+        try {
+            PedidoEvent event = draft.numbered(++sequence);
+            recent.addLast(event);
+            if (recent.size() > replaySize) {
+                recent.removeFirst();
+            }
+            for (KitchenSubscriber subscriber : subscribers) {
+                if (subscriber.accepts(event)) {
+                    subscriber.offer(event);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        subscribers.forEach(KitchenSubscriber::drain);
+    }
+
+    @Scheduled(every = "${kitchen.stream.heartbeat:15s}", delayed = "${kitchen.stream.heartbeat:15s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void heartbeat() {
+        for (KitchenSubscriber subscriber : subscribers) {
+            subscriber.heartbeat();
+            subscriber.drain();
+        }
+    }
+
+    private void afterCommit(Runnable change) {
+        if (transactions.getTransactionKey() == null) {
+            change.run();
+            return;
+        }
+        transactions.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    change.run();
+                }
+            }
+        });
+    }
+}
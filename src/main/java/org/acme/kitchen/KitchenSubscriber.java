@@ -0,0 +1,167 @@
+package org.acme.kitchen;
+
+import io.micrometer.core.instrument.Counter;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.acme.Pedido;
+
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Uma conexão SSE de painel: fila limitada e no máximo um envio em andamento.
+ *
+ * Quem grava só enfileira; o próximo evento sai quando o envio anterior termina, então um
+ * painel lento acumula apenas na própria fila. Com a fila cheia o conteúdo é descartado e
+ * o painel recebe "resync" para recarregar o estado por GET /pedidos.
+ */
+final class KitchenSubscriber {
+
+    static final String RESYNC = "resync";
+    private static final long RECONNECT_DELAY_MILLIS = 3000;
+
+    private final SseEventSink sink;
+    private final Sse sse;
+    private final Set<Pedido.StatusPedido> statuses;
+    private final int capacity;
+    private final Counter dropped;
+    private final Consumer<KitchenSubscriber> onClose;
+
+    // ReentrantLock em vez de synchronized: os resources podem rodar em threads virtuais
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<OutboundSseEvent> buffer;
+    private boolean sending;
+    private boolean closed;
+
+    KitchenSubscriber(SseEventSink sink, Sse sse, Set<Pedido.StatusPedido> statuses, int capacity,
+                      Counter dropped, Consumer<KitchenSubscriber> onClose) {
+        this.sink = sink;
+        this.sse = sse;
+        this.statuses = statuses;
+        this.capacity = capacity;
+        this.dropped = dropped;
+        this.onClose = onClose;
+        this.buffer = new ArrayDeque<>(capacity);
+        // Primeiro envio: abre a resposta já na conexão e diz ao EventSource quanto esperar para reconectar
+        this.buffer.add(sse.newEventBuilder().comment("conectado").reconnectDelay(RECONNECT_DELAY_MILLIS).build());
+    }
+
+    boolean accepts(PedidoEvent event) {
+        return event.matches(statuses);
+    }
+
+    // Não bloqueia nem envia; quem chama faz drain() depois, fora dos próprios locks
+    void offer(PedidoEvent event) {
+        enqueue(sse.newEventBuilder()
+                .id(Long.toString(event.sequencia()))
+                .name(event.tipo().name())
+                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(PedidoEvent.class, event)
+                .build());
+    }
+
+    void resync(long lastSequence) {
+        enqueue(resyncEvent(lastSequence));
+    }
+
+    // Comentário SSE só quando a conexão está parada: mantém proxies abertos e revela clientes que saíram
+    void heartbeat() {
+        if (sink.isClosed()) {
+            close();
+            return;
+        }
+        lock.lock();
+        try {
+            if (!sending && buffer.isEmpty()) {
+                buffer.add(sse.newEventBuilder().comment("ping").build());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void drain() {
+        OutboundSseEvent next;
+        lock.lock();
+        try {
+            if (sending || closed || buffer.isEmpty()) {
+                return;
+            }
+            next = buffer.poll();
+            sending = true;
+        } finally {
+            lock.unlock();
+        }
+        send(next);
+    }
+
+    private void enqueue(OutboundSseEvent event) {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (buffer.size() == capacity) {
+                dropped.increment(buffer.size());
+                buffer.clear();
+                buffer.add(resyncEvent(-1));
+            }
+            buffer.add(event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void send(OutboundSseEvent event) {
+        sink.send(event).whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                close();
+                return;
+            }
+            OutboundSseEvent next;
+            lock.lock();
+            try {
+                next = closed ? null : buffer.poll();
+                sending = next != null;
+            } finally {
+                lock.unlock();
+            }
+            if (next != null) {
+                send(next);
+            }
+        });
+    }
+
+    private OutboundSseEvent resyncEvent(long lastSequence) {
+        OutboundSseEvent.Builder builder = sse.newEventBuilder()
+                .name(RESYNC)
+                .data("Eventos perdidos; recarregue os pedidos");
+        if (lastSequence >= 0) {
+            builder.id(Long.toString(lastSequence));
+        }
+        return builder.build();
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            buffer.clear();
+        } finally {
+            lock.unlock();
+        }
+        onClose.accept(this);
+        try {
+            sink.close();
+        } catch (RuntimeException e) {
+            // a conexão já caiu
+        }
+    }
+}
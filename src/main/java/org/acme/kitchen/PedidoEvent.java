@@ -0,0 +1,66 @@
+package org.acme.kitchen;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.acme.Pedido;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Mudança gravada num pedido, como chega aos painéis da cozinha.
+ *
+ * sequencia é única e crescente no processo (é o id do evento SSE, usado no Last-Event-ID);
+ * versao é a do pedido depois da mudança, para o painel descartar o que já tem. Nas transições
+ * do PATCH de status o pedido não é carregado: numeroMesa não vem e versao só com pré-condição
+ * (If-Match / If-Unmodified-Since).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PedidoEvent(
+        long sequencia,
+        Tipo tipo,
+        long pedidoId,
+        Pedido.StatusPedido status,
+        Pedido.StatusPedido statusAnterior,
+        Integer numeroMesa,
+        Long pratoId,
+        List<Long> pratoIds,
+        Long versao,
+        Instant em) {
+
+    public enum Tipo {
+        CRIADO,
+        STATUS_ALTERADO,
+        ATUALIZADO,
+        PRATO_ADICIONADO,
+        PRATO_REMOVIDO,
+        PRATOS_ADICIONADOS,
+        PRATOS_REMOVIDOS,
+        EXCLUIDO
+    }
+
+    static PedidoEvent of(Tipo tipo, Pedido pedido, Pedido.StatusPedido statusAnterior, Long pratoId) {
+        return new PedidoEvent(0, tipo, pedido.id, pedido.status, statusAnterior, pedido.numeroMesa, pratoId, null, pedido.versao, Instant.now());
+    }
+
+    // Lote de pratos num pedido: pratoIds são os que de fato entraram ou saíram, não todos os da requisição
+    static PedidoEvent pratos(Tipo tipo, Pedido pedido, List<Long> pratoIds) {
+        return new PedidoEvent(0, tipo, pedido.id, pedido.status, null, pedido.numeroMesa, null, pratoIds, pedido.versao, Instant.now());
+    }
+
+    static PedidoEvent transition(long pedidoId, Pedido.StatusPedido de, Pedido.StatusPedido para, Long versao) {
+        return new PedidoEvent(0, Tipo.STATUS_ALTERADO, pedidoId, para, de, null, null, null, versao, Instant.now());
+    }
+
+    PedidoEvent numbered(long sequencia) {
+        return new PedidoEvent(sequencia, tipo, pedidoId, status, statusAnterior, numeroMesa, pratoId, pratoIds, versao, em);
+    }
+
+    // Quem acompanha um status também precisa saber quando o pedido sai dele
+    boolean matches(Set<Pedido.StatusPedido> statuses) {
+        if (statuses.isEmpty() || statuses.contains(status)) {
+            return true;
+        }
+        return statusAnterior != null && statuses.contains(statusAnterior);
+    }
+}
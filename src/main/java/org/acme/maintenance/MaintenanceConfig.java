@@ -0,0 +1,59 @@
+package org.acme.maintenance;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+/**
+ * Configuração da limpeza periódica (prefixo "maintenance" no application.properties)
+ */
+@ConfigMapping(prefix = "maintenance")
+public interface MaintenanceConfig {
+
+    Idempotency idempotency();
+
+    RateLimit ratelimit();
+
+    interface Idempotency {
+
+        /**
+         * Intervalo entre ciclos de limpeza das chaves expiradas
+         */
+        @WithDefault("1m")
+        String every();
+
+        /**
+         * Chaves apagadas por transação; mantém cada DELETE curto
+         */
+        @WithDefault("500")
+        int batchSize();
+
+        /**
+         * Máximo de lotes por ciclo; o que sobrar fica para o próximo ciclo
+         */
+        @WithDefault("20")
+        int maxBatchesPerCycle();
+
+        /**
+         * Pausa entre lotes, para não disputar o banco com as requisições
+         */
+        @WithDefault("10ms")
+        Duration pauseBetweenBatches();
+    }
+
+    interface RateLimit {
+
+        /**
+         * Intervalo entre varreduras da tabela de rate limit
+         */
+        @WithDefault("30s")
+        String every();
+
+        /**
+         * Máximo de clientes ociosos removidos por ciclo
+         */
+        @WithDefault("50000")
+        int maxRemovalsPerCycle();
+    }
+}
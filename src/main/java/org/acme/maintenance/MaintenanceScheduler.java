@@ -0,0 +1,120 @@
+package org.acme.maintenance;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.acme.idempotency.IdempotencyService;
+import org.acme.ratelimit.RateLimitStore;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limpeza periódica das chaves de idempotência expiradas e dos clientes ociosos do rate limit.
+ *
+ * As chaves são apagadas em lotes pequenos, cada um na sua própria transação, com um
+ * teto de lotes por ciclo. Assim nenhuma limpeza segura a tabela por muito tempo: se o
+ * acúmulo for maior que o teto, o restante fica para os próximos ciclos e aparece na
+ * métrica maintenance.idempotency.backlog.
+ */
+@ApplicationScoped
+public class MaintenanceScheduler {
+
+    private static final Logger LOG = Logger.getLogger(MaintenanceScheduler.class);
+
+    @Inject
+    MaintenanceConfig config;
+
+    @Inject
+    IdempotencyService idempotencyService;
+
+    @Inject
+    RateLimitStore rateLimitStore;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private Counter deletedKeys;
+    private Counter sweptClients;
+    private Timer idempotencyCycle;
+    private Timer rateLimitCycle;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("maintenance.idempotency.backlog", backlog, AtomicLong::get)
+                .description("Chaves expiradas que ficaram para o próximo ciclo")
+                .register(registry);
+        deletedKeys = Counter.builder("maintenance.idempotency.deleted")
+                .description("Chaves de idempotência expiradas removidas")
+                .register(registry);
+        sweptClients = Counter.builder("maintenance.ratelimit.swept")
+                .description("Clientes ociosos removidos pela varredura do rate limit")
+                .register(registry);
+        idempotencyCycle = Timer.builder("maintenance.cycle")
+                .tag("job", "idempotency")
+                .register(registry);
+        rateLimitCycle = Timer.builder("maintenance.cycle")
+                .tag("job", "ratelimit")
+                .register(registry);
+    }
+
+    @Scheduled(every = "${maintenance.idempotency.every:1m}", delayed = "${maintenance.idempotency.every:1m}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void sweepIdempotencyKeys() {
+        idempotencyCycle.record(this::runIdempotencyCycle);
+    }
+
+    @Scheduled(every = "${maintenance.ratelimit.every:30s}", delayed = "${maintenance.ratelimit.every:30s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void sweepRateLimit() {
+        rateLimitCycle.record(() -> {
+            int removed = rateLimitStore.cleanup(config.ratelimit().maxRemovalsPerCycle());
+            sweptClients.increment(removed);
+            if (LOG.isDebugEnabled()) {
+                LOG.debugf("Rate limit: %d clientes ociosos removidos, %d restantes", removed, rateLimitStore.size());
+            }
+        });
+    }
+
+    private void runIdempotencyCycle() {
+        MaintenanceConfig.Idempotency cfg = config.idempotency();
+        long pauseMillis = cfg.pauseBetweenBatches().toMillis();
+        int total = 0;
+        boolean drained = false;
+
+        for (int batch = 0; batch < cfg.maxBatchesPerCycle(); batch++) {
+            int deleted = idempotencyService.cleanExpired(cfg.batchSize());
+            total += deleted;
+            deletedKeys.increment(deleted);
+            if (deleted < cfg.batchSize()) {
+                drained = true;
+                break;
+            }
+            if (pauseMillis > 0 && !pause(pauseMillis)) {
+                break;
+            }
+        }
+
+        // Só conta o acúmulo quando o teto foi atingido; com a tabela em dia não há consulta extra
+        backlog.set(drained ? 0 : idempotencyService.countExpired());
+        if (total > 0 || !drained) {
+            LOG.debugf("Idempotência: %d chaves expiradas removidas, %d pendentes", total, backlog.get());
+        }
+    }
+
+    private static boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.acme.ratelimit;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Named;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backend em processo: serve para uma única réplica e como substituto do
+ * backend compartilhado em testes. Cada contador é um long [janela | usados] via CAS.
+ */
+@Named("memory")
+@ApplicationScoped
+public class InMemoryRateLimitBackend implements RateLimitBackend {
+
+    private static final int USED_BITS = 24;
+    private static final long USED_MASK = (1L << USED_BITS) - 1;
+
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public List<LeaseGrant> acquire(List<LeaseRequest> requests) {
+        List<LeaseGrant> grants = new ArrayList<>(requests.size());
+        for (LeaseRequest request : requests) {
+            grants.add(acquire(request));
+        }
+        return grants;
+    }
+
+    private LeaseGrant acquire(LeaseRequest request) {
+        AtomicLong counter = counters.computeIfAbsent(request.key(), k -> new AtomicLong());
+        while (true) {
+            long current = counter.get();
+            long storedWindow = current >>> USED_BITS;
+            if (request.window() < storedWindow) {
+                // Réplica atrasada pedindo por uma janela que já passou
+                return new LeaseGrant(0, 0);
+            }
+            long used = storedWindow == request.window() ? current & USED_MASK : 0;
+            long granted = Math.max(0, Math.min(request.permits(), request.limit() - used));
+            long next = (request.window() << USED_BITS) | (used + granted);
+            if (counter.compareAndSet(current, next)) {
+                return new LeaseGrant((int) granted, (int) (request.limit() - used - granted));
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.acme.ratelimit;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Named;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.exception.ConstraintViolationException;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Backend compartilhado sobre o banco da aplicação, visível por todas as réplicas.
+ *
+ * O lote inteiro roda numa transação, travando as linhas em ordem de chave
+ * (evita deadlock entre réplicas). Se duas réplicas criam a mesma linha ao
+ * mesmo tempo, a perdedora repete o lote uma vez; qualquer outra falha sobe.
+ */
+@Named("jdbc")
+@ApplicationScoped
+public class JdbcRateLimitBackend implements RateLimitBackend {
+
+    @Override
+    public List<LeaseGrant> acquire(List<LeaseRequest> requests) {
+        try {
+            return QuarkusTransaction.requiringNew().call(() -> acquireInTransaction(requests));
+        } catch (PersistenceException e) {
+            if (!isDuplicateKey(e)) {
+                throw e;
+            }
+            return QuarkusTransaction.requiringNew().call(() -> acquireInTransaction(requests));
+        }
+    }
+
+    private List<LeaseGrant> acquireInTransaction(List<LeaseRequest> requests) {
+        Integer[] order = new Integer[requests.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> requests.get(i).key()));
+
+        for (int i : order) {
+            LeaseRequest request = requests.get(i);
+            // Garante que a linha exista antes de travar, na mesma ordem de chave
+            if (RateLimitLease.findById(request.key()) == null) {
+                RateLimitLease lease = new RateLimitLease();
+                lease.leaseKey = request.key();
+                lease.windowIndex = request.window();
+                lease.used = 0;
+                lease.persist();
+            }
+        }
+        RateLimitLease.flush();
+
+        LeaseGrant[] grants = new LeaseGrant[requests.size()];
+        for (int i : order) {
+            LeaseRequest request = requests.get(i);
+            RateLimitLease lease = RateLimitLease.findById(request.key(), LockModeType.PESSIMISTIC_WRITE);
+            if (request.window() < lease.windowIndex) {
+                // Réplica atrasada pedindo por uma janela que já passou
+                grants[i] = new LeaseGrant(0, 0);
+                continue;
+            }
+            if (request.window() > lease.windowIndex) {
+                lease.windowIndex = request.window();
+                lease.used = 0;
+            }
+            int granted = Math.max(0, Math.min(request.permits(), request.limit() - lease.used));
+            lease.used += granted;
+            grants[i] = new LeaseGrant(granted, request.limit() - lease.used);
+        }
+        return Arrays.asList(grants);
+    }
+
+    // Só a linha criada por outra réplica no meio do lote (chave primária repetida) justifica repetir
+    static boolean isDuplicateKey(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE;
+            }
+        }
+        return false;
+    }
+}
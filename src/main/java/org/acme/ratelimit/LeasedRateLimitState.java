@@ -0,0 +1,174 @@
+package org.acme.ratelimit;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estado de uma política shared: consome localmente permissões reservadas no
+ * {@link RateLimitBackend}, então a maioria das requisições não sai do processo.
+ *
+ * Quando o lease local cai abaixo da metade, uma renovação é agendada no
+ * {@link RateLimitLeaseSyncer} (em lote, assíncrona), para que chegue antes de o lease
+ * acabar. A requisição nunca espera o backend. Com o lease vazio, ela só passa numa cota
+ * local reduzida (meio lease por janela), e apenas antes da primeira concessão da janela
+ * ou depois de uma falha do backend. O que sai dessa cota é cobrado na renovação seguinte.
+ * Fora desses casos, a resposta é 429 com Retry-After de um ciclo do syncer. Se o backend
+ * nega, o estado fica marcado como esgotado até a próxima janela, sem novas idas ao backend.
+ *
+ * Layout do long empacotado: [39 bits: janela][1 bit: esgotado][24 bits: permissões locais]
+ * Layout da dívida: [40 bits: janela][24 bits: permissões da cota local ainda não cobradas]
+ */
+public class LeasedRateLimitState implements RateLimitState {
+
+    static final int PERMIT_BITS = 24;
+    static final long PERMIT_MASK = (1L << PERMIT_BITS) - 1;
+    static final long EXHAUSTED = 1L << PERMIT_BITS;
+    public static final int MAX_PERMITS = (int) PERMIT_MASK;
+
+    final String key;
+    final int limit;
+    final int leaseSize;
+    final long windowMillis;
+    final int localQuota;
+
+    private final RateLimitLeaseSyncer syncer;
+    private final AtomicLong state = new AtomicLong();
+    private final AtomicLong debt = new AtomicLong();
+    final AtomicBoolean refillPending = new AtomicBoolean();
+
+    // Janela da última concessão recebida e da última falha do backend
+    private volatile long grantedWindow = -1;
+    private volatile long failedWindow = -1;
+
+    // Restante global informado na última concessão, usado no X-RateLimit-Remaining
+    private volatile int globalRemaining;
+
+    public LeasedRateLimitState(String key, int limit, int leaseSize, long windowMillis, RateLimitLeaseSyncer syncer) {
+        this.key = key;
+        this.limit = limit;
+        this.leaseSize = leaseSize;
+        this.windowMillis = windowMillis;
+        this.syncer = syncer;
+        this.localQuota = (leaseSize + 1) / 2;
+        this.globalRemaining = limit;
+    }
+
+    @Override
+    public long tryAcquire(long nowMillis) {
+        long window = window(nowMillis);
+
+        while (true) {
+            long current = state.get();
+            long permits = 0;
+            boolean exhausted = false;
+            if ((current >>> (PERMIT_BITS + 1)) == window) {
+                permits = current & PERMIT_MASK;
+                exhausted = (current & EXHAUSTED) != 0;
+            }
+
+            if (permits > 0) {
+                if (state.compareAndSet(current, pack(window, permits - 1, exhausted))) {
+                    if (!exhausted && permits - 1 < (leaseSize + 1) / 2) {
+                        syncer.scheduleRefill(this, window);
+                    }
+                    return globalRemaining + permits - 1;
+                }
+                continue;
+            }
+
+            if (exhausted) {
+                return -millisUntilReset(nowMillis);
+            }
+
+            // Sem lease local: a renovação vai pelo syncer; a requisição não espera o backend
+            syncer.scheduleRefill(this, window);
+            if ((grantedWindow != window || failedWindow == window) && borrow(window)) {
+                return Math.max(0, globalRemaining - 1);
+            }
+            return -Math.max(1, Math.min(millisUntilReset(nowMillis), syncer.intervalMillis));
+        }
+    }
+
+    private boolean borrow(long window) {
+        while (true) {
+            long current = debt.get();
+            long owed = (current >>> PERMIT_BITS) == window ? current & PERMIT_MASK : 0;
+            if (owed >= localQuota) {
+                return false;
+            }
+            if (debt.compareAndSet(current, (window << PERMIT_BITS) | (owed + 1))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Permissões da cota local consumidas na janela e ainda não cobradas do backend
+     */
+    int owed(long window) {
+        long current = debt.get();
+        return (current >>> PERMIT_BITS) == window ? (int) (current & PERMIT_MASK) : 0;
+    }
+
+    /**
+     * Credita uma concessão do backend na janela indicada, descontando primeiro as
+     * {@code owed} permissões da cota local que o pedido incluiu
+     *
+     * @return false se o backend negou (estado marcado como esgotado)
+     */
+    boolean addPermits(long window, RateLimitBackend.LeaseGrant grant, int owed) {
+        globalRemaining = grant.remaining();
+        if (window > grantedWindow) {
+            grantedWindow = window;
+        }
+        failedWindow = -1;
+        // Dívida quitada ou, se o backend não cobriu tudo, perdoada: o estado fica esgotado de qualquer forma
+        debt.accumulateAndGet(owed, (current, paid) -> (current >>> PERMIT_BITS) == window
+                ? (window << PERMIT_BITS) | Math.max(0, (current & PERMIT_MASK) - paid)
+                : current);
+        long granted = Math.max(0, grant.granted() - owed);
+        while (true) {
+            long current = state.get();
+            long storedWindow = current >>> (PERMIT_BITS + 1);
+            if (storedWindow > window) {
+                // Concessão de uma janela que já virou: descartada
+                return granted > 0;
+            }
+            long permits = storedWindow == window ? current & PERMIT_MASK : 0;
+            long next = granted > 0
+                    ? pack(window, Math.min(PERMIT_MASK, permits + granted), false)
+                    : pack(window, permits, true);
+            if (state.compareAndSet(current, next)) {
+                return granted > 0;
+            }
+        }
+    }
+
+    /**
+     * Backend indisponível: até a próxima concessão, o lease vazio é servido pela cota local reduzida
+     */
+    void backendFailed(long window) {
+        failedWindow = window;
+    }
+
+    @Override
+    public long millisUntilReset(long nowMillis) {
+        return windowMillis - RateLimitClock.toEpochMillis(nowMillis) % windowMillis;
+    }
+
+    /**
+     * Lease de uma janela passada não tem mais valor; descartar não afeta o limite global
+     */
+    @Override
+    public boolean isIdle(long nowMillis) {
+        return (state.get() >>> (PERMIT_BITS + 1)) != window(nowMillis) && !refillPending.get();
+    }
+
+    private long window(long nowMillis) {
+        return RateLimitClock.toEpochMillis(nowMillis) / windowMillis;
+    }
+
+    private static long pack(long window, long permits, boolean exhausted) {
+        return (window << (PERMIT_BITS + 1)) | (exhausted ? EXHAUSTED : 0) | permits;
+    }
+}
@@ -0,0 +1,29 @@
+package org.acme.ratelimit;
+
+/**
+ * Algoritmos de rate limit disponíveis (configurável via ratelimit.algorithm)
+ */
+public enum RateLimitAlgorithm {
+
+    /**
+     * Permite rajadas até a capacidade e recarrega de forma contínua
+     */
+    TOKEN_BUCKET {
+        @Override
+        public RateLimitState newState(int limit, int burst, long windowMillis, long nowMillis) {
+            return new TokenBucketState(limit, burst, windowMillis, nowMillis);
+        }
+    },
+
+    /**
+     * Aproxima uma janela deslizante ponderando a janela anterior (ignora burst)
+     */
+    SLIDING_WINDOW {
+        @Override
+        public RateLimitState newState(int limit, int burst, long windowMillis, long nowMillis) {
+            return new SlidingWindowCounterState(limit, windowMillis, nowMillis);
+        }
+    };
+
+    public abstract RateLimitState newState(int limit, int burst, long windowMillis, long nowMillis);
+}
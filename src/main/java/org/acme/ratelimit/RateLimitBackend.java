@@ -0,0 +1,37 @@
+package org.acme.ratelimit;
+
+import java.util.List;
+
+/**
+ * SPI do armazenamento compartilhado usado pelas políticas {@code shared}.
+ *
+ * Cada réplica reserva lotes de permissões ("leases") de um contador global
+ * por chave e janela fixa, e as consome localmente sem falar com o backend.
+ * Implementações devem garantir que a soma concedida numa janela nunca passe do limite.
+ */
+public interface RateLimitBackend {
+
+    /**
+     * Reserva permissões para vários clientes numa única ida ao backend.
+     *
+     * @param requests - Pedidos de lease
+     * @return concessões na mesma ordem dos pedidos
+     */
+    List<LeaseGrant> acquire(List<LeaseRequest> requests);
+
+    /**
+     * @param key - Identificador global (política + cliente)
+     * @param window - Índice da janela fixa (epoch / tamanho da janela)
+     * @param permits - Quantidade desejada
+     * @param limit - Limite global da janela
+     */
+    record LeaseRequest(String key, long window, int permits, int limit) {
+    }
+
+    /**
+     * @param granted - Permissões concedidas (0 = limite global atingido)
+     * @param remaining - Quanto ainda resta no contador global após a concessão
+     */
+    record LeaseGrant(int granted, int remaining) {
+    }
+}
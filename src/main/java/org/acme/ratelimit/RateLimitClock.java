@@ -0,0 +1,27 @@
+package org.acme.ratelimit;
+
+/**
+ * Relógio monotônico usado pelo rate limiter.
+ * Baseado em System.nanoTime(), não sofre com ajustes de NTP nem com mudanças de fuso.
+ * Os valores são milissegundos desde a carga da classe, o que cabe folgado nos 42 bits
+ * usados pelos estados empacotados (mais de 100 anos).
+ */
+public final class RateLimitClock {
+
+    private static final long ORIGIN = System.nanoTime();
+    private static final long ORIGIN_EPOCH_MILLIS = System.currentTimeMillis();
+
+    private RateLimitClock() {
+    }
+
+    public static long nowMillis() {
+        return (System.nanoTime() - ORIGIN) / 1_000_000L;
+    }
+
+    /**
+     * Converte para epoch em ms; usado quando réplicas precisam concordar sobre a janela
+     */
+    public static long toEpochMillis(long nowMillis) {
+        return ORIGIN_EPOCH_MILLIS + nowMillis;
+    }
+}
@@ -0,0 +1,111 @@
+package org.acme.ratelimit;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Configuração do rate limit (prefixo "ratelimit" no application.properties)
+ */
+@ConfigMapping(prefix = "ratelimit")
+public interface RateLimitConfig {
+
+    /**
+     * Algoritmo padrão das políticas que não definem o seu
+     */
+    @WithDefault("SLIDING_WINDOW")
+    RateLimitAlgorithm algorithm();
+
+    /**
+     * Políticas por rota, indexadas por um nome livre
+     * Exemplo: ratelimit.policies.bebidas.path=/bebidas
+     */
+    Map<String, Policy> policies();
+
+    Store store();
+
+    interface Policy {
+
+        /**
+         * Prefixo de rota; cobre o próprio caminho e tudo abaixo dele.
+         * Um segmento "*" casa com qualquer valor (ex: /pedidos/{@literal *}/pratos)
+         */
+        String path();
+
+        /**
+         * Métodos HTTP cobertos; ausente = todos
+         */
+        Optional<List<String>> methods();
+
+        /**
+         * Requisições permitidas por janela
+         */
+        int limit();
+
+        @WithDefault("3600")
+        long windowSeconds();
+
+        /**
+         * Rajada máxima (apenas TOKEN_BUCKET); padrão = limit
+         */
+        OptionalInt burst();
+
+        Optional<RateLimitAlgorithm> algorithm();
+
+        /**
+         * De onde vem a identidade do cliente
+         */
+        @WithDefault("IP")
+        KeySource key();
+
+        /**
+         * Header usado quando key=HEADER (ex: X-Api-Key)
+         */
+        Optional<String> keyHeader();
+
+        /**
+         * Limite global entre réplicas, controlado pelo backend compartilhado (janela fixa)
+         */
+        @WithDefault("false")
+        boolean shared();
+
+        /**
+         * Permissões reservadas no backend por vez (apenas shared); padrão = limit / 10
+         */
+        OptionalInt leaseSize();
+    }
+
+    interface Store {
+
+        /**
+         * Máximo de clientes em memória; acima disso os ociosos/mais antigos são despejados
+         */
+        @WithDefault("100000")
+        int maxEntries();
+
+        /**
+         * Backend das políticas shared: jdbc (banco da aplicação) ou memory (apenas uma réplica / testes)
+         */
+        @WithDefault("jdbc")
+        String backend();
+
+        /**
+         * Intervalo do envio em lote das renovações antecipadas de lease
+         */
+        @WithDefault("50")
+        long syncIntervalMillis();
+    }
+
+    enum KeySource {
+        /** X-Forwarded-For / X-Real-IP */
+        IP,
+        /** Valor de um header arbitrário (key-header) */
+        HEADER,
+        /** Um único contador compartilhado por todos os clientes */
+        GLOBAL
+    }
+}
@@ -7,107 +7,143 @@ import jakarta.ws.rs.container.ContainerResponseContext;
 import jakarta.ws.rs.container.ContainerResponseFilter;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.ext.Provider;
+import org.jboss.logging.Logger;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.time.Instant;
 
+/**
+ * Aplica o rate limit por cliente.
+ *
+ * O caminho de cada requisição evita alocações: relógio monotônico em long,
+ * parsing do X-Forwarded-For por índice (sem split/regex), headers já em texto
+ * (sem Integer/Long por requisição) e logs só em DEBUG, protegidos por
+ * isDebugEnabled() para não montar strings quando desligados.
+ */
 @Provider
 public class RateLimitFilter implements ContainerRequestFilter, ContainerResponseFilter {
 
+    private static final Logger LOG = Logger.getLogger(RateLimitFilter.class);
+
+    static final String POLICY_PROPERTY = "ratelimit.policy";
+    static final String STATE_PROPERTY = "ratelimit.state";
+    static final String REMAINING_PROPERTY = "ratelimit.remaining";
+    static final String DEFAULT_CLIENT = "default-client";
+    static final String GLOBAL_CLIENT = "*";
+
+    // O 429 não tem mais nada a consumir; o header sai desta constante, sem Integer
+    private static final String NONE_REMAINING = "0";
+
+    private static final String TOO_MANY_REQUESTS_BODY =
+            "{\"error\": \"Too Many Requests\", \"message\": \"Rate limit exceeded. Try again later.\"}";
+
     @Inject
     RateLimitStore rateLimitStore;
 
-    // Configurações: 10 requisições por hora por IP (mudado de 100 para testar mais rápido)
-    private static final int MAX_REQUESTS = 10;
-    private static final long WINDOW_SECONDS = 3600; // 1 hora
+    @Inject
+    RateLimitPolicies policies;
 
     @Override
     public void filter(ContainerRequestContext requestContext) throws IOException {
-        System.out.println("=== RateLimitFilter: Método = " + requestContext.getMethod());
-
-        // Aplica rate limit apenas no endpoint /bebidas (mudado de /pedidos)
+        // Aplica rate limit apenas nas rotas com política configurada
         String path = requestContext.getUriInfo().getPath();
-        System.out.println("=== Path da requisição: " + path);
-
-        if (!path.startsWith("/bebidas")) {
-            System.out.println("=== Path não começa com 'bebidas', pulando rate limit...");
+        RateLimitPolicy policy = policies.resolve(requestContext.getMethod(), path);
+        if (policy == null) {
             return;
         }
 
-        System.out.println("=== Aplicando rate limit em bebidas...");
-
-        String clientId = getClientIdentifier(requestContext);
-        System.out.println("=== Cliente ID: " + clientId);
-
-        RateLimitStore.ClientRateLimit limit = rateLimitStore.getOrCreate(clientId);
-        Instant now = Instant.now();
-        long secondsSinceWindowStart = Duration.between(limit.windowStart, now).getSeconds();
-
-        // Se passou o período da janela, reseta o contador
-        if (secondsSinceWindowStart >= WINDOW_SECONDS) {
-            rateLimitStore.reset(clientId);
-            limit = rateLimitStore.getOrCreate(clientId);
-            System.out.println("=== Janela resetada (1 hora passou)");
-        }
-
-        int remaining = Math.max(0, MAX_REQUESTS - limit.requests);
-
-        System.out.println("=== Requisições feitas: " + limit.requests + "/" + MAX_REQUESTS);
-        System.out.println("=== Requisições restantes: " + remaining);
+        String clientId = clientIdentifier(policy, requestContext);
 
-        // Adiciona headers informativos
-        requestContext.setProperty("X-RateLimit-Limit", MAX_REQUESTS);
-        requestContext.setProperty("X-RateLimit-Remaining", remaining);
-        requestContext.setProperty("X-RateLimit-Reset", limit.windowStart.plusSeconds(WINDOW_SECONDS).getEpochSecond());
+        long now = RateLimitClock.nowMillis();
+        RateLimitState limit = rateLimitStore.getOrCreate(policy, clientId);
+        long result = limit.tryAcquire(now);
 
         // Se excedeu o limite, retorna 429
-        if (limit.requests >= MAX_REQUESTS) {
-            System.out.println("=== ❌ RATE LIMIT ATINGIDO! Bloqueando requisição...");
+        if (result < 0) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debugf("Rate limit atingido: policy=%s client=%s path=%s retryAfterMs=%d", policy.name, clientId, path, -result);
+            }
             Response response = Response
                     .status(429)
-                    .entity("{\"error\": \"Too Many Requests\", \"message\": \"Rate limit exceeded. Try again later.\"}")
-                    .header("X-RateLimit-Limit", MAX_REQUESTS)
-                    .header("X-RateLimit-Remaining", 0)
-                    .header("X-RateLimit-Reset", limit.windowStart.plusSeconds(WINDOW_SECONDS).getEpochSecond())
-                    .header("Retry-After", WINDOW_SECONDS - secondsSinceWindowStart)
+                    .entity(TOO_MANY_REQUESTS_BODY)
+                    .header("X-RateLimit-Limit", policy.limitHeader)
+                    .header("X-RateLimit-Remaining", NONE_REMAINING)
+                    .header("X-RateLimit-Reset", Long.toString(resetEpochSecond(limit, now)))
+                    .header("Retry-After", Long.toString((-result + 999) / 1000))
                     .build();
             requestContext.abortWith(response);
             return;
         }
 
-        // Incrementa o contador
-        rateLimitStore.increment(clientId);
-        System.out.println("=== ✅ Requisição permitida, incrementando contador");
+        if (LOG.isTraceEnabled()) {
+            LOG.tracef("Requisição permitida: policy=%s client=%s path=%s remaining=%d", policy.name, clientId, path, result);
+        }
+
+        // O reset é calculado só na resposta a partir do próprio estado
+        requestContext.setProperty(POLICY_PROPERTY, policy);
+        requestContext.setProperty(STATE_PROPERTY, limit);
+        // Em texto, que é como o header sai: nenhum Long intermediário
+        requestContext.setProperty(REMAINING_PROPERTY, Long.toString(result));
     }
 
     @Override
     public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) throws IOException {
         // Adiciona headers de rate limit na resposta
-        Object limit = requestContext.getProperty("X-RateLimit-Limit");
-        Object remaining = requestContext.getProperty("X-RateLimit-Remaining");
-        Object reset = requestContext.getProperty("X-RateLimit-Reset");
-
-        if (limit != null) {
-            responseContext.getHeaders().add("X-RateLimit-Limit", limit);
-            responseContext.getHeaders().add("X-RateLimit-Remaining", remaining);
-            responseContext.getHeaders().add("X-RateLimit-Reset", reset);
+        Object policy = requestContext.getProperty(POLICY_PROPERTY);
+        if (policy == null) {
+            return;
+        }
+
+        Object state = requestContext.getProperty(STATE_PROPERTY);
+        responseContext.getHeaders().add("X-RateLimit-Limit", ((RateLimitPolicy) policy).limitHeader);
+        responseContext.getHeaders().add("X-RateLimit-Remaining", requestContext.getProperty(REMAINING_PROPERTY));
+        responseContext.getHeaders().add("X-RateLimit-Reset", Long.toString(resetEpochSecond((RateLimitState) state, RateLimitClock.nowMillis())));
+    }
+
+    static long resetEpochSecond(RateLimitState state, long nowMillis) {
+        return (System.currentTimeMillis() + state.millisUntilReset(nowMillis) + 999) / 1000;
+    }
+
+    private static String clientIdentifier(RateLimitPolicy policy, ContainerRequestContext requestContext) {
+        switch (policy.keySource) {
+            case GLOBAL:
+                return GLOBAL_CLIENT;
+            case HEADER:
+                String value = requestContext.getHeaderString(policy.keyHeader);
+                return value == null || value.isEmpty() ? DEFAULT_CLIENT : value;
+            default:
+                return clientIdentifier(
+                        requestContext.getHeaderString("X-Forwarded-For"),
+                        requestContext.getHeaderString("X-Real-IP"));
         }
     }
 
-    private String getClientIdentifier(ContainerRequestContext requestContext) {
-        // Tenta pegar o IP real do cliente
-        String forwarded = requestContext.getHeaderString("X-Forwarded-For");
+    /**
+     * Identifica o cliente pelo primeiro endereço do X-Forwarded-For, depois pelo X-Real-IP.
+     * Só aloca uma String nova quando o header tem vários endereços ou espaços nas bordas.
+     */
+    static String clientIdentifier(String forwarded, String realIp) {
         if (forwarded != null && !forwarded.isEmpty()) {
-            return forwarded.split(",")[0].trim();
+            int end = forwarded.indexOf(',');
+            if (end < 0) {
+                end = forwarded.length();
+            }
+            int start = 0;
+            while (start < end && forwarded.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && forwarded.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (start < end) {
+                return start == 0 && end == forwarded.length() ? forwarded : forwarded.substring(start, end);
+            }
         }
 
-        String realIp = requestContext.getHeaderString("X-Real-IP");
         if (realIp != null && !realIp.isEmpty()) {
             return realIp;
         }
 
         // Fallback para identificador genérico (em produção deveria usar o IP real)
-        return "default-client";
+        return DEFAULT_CLIENT;
     }
 }
@@ -0,0 +1,32 @@
+package org.acme.ratelimit;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+/**
+ * Contador global de uma política shared para um cliente na janela atual
+ */
+@Entity
+public class RateLimitLease extends PanacheEntityBase {
+
+    /**
+     * Política + cliente (ex: "bebidas:203.0.113.7")
+     */
+    @Id
+    @Column(length = 160)
+    public String leaseKey;
+
+    /**
+     * Índice da janela fixa à qual {@code used} se refere
+     */
+    @Column(nullable = false)
+    public long windowIndex;
+
+    /**
+     * Permissões já concedidas às réplicas nesta janela
+     */
+    @Column(nullable = false)
+    public int used;
+}
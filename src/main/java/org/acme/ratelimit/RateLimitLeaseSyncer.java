@@ -0,0 +1,102 @@
+package org.acme.ratelimit;
+
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renova os leases das políticas shared.
+ *
+ * Renovações antecipadas entram numa fila e são enviadas ao backend em lote
+ * a cada {@code intervalMillis} por uma única thread; nenhuma requisição vai ao
+ * backend. Se o backend falhar, a réplica registra o erro e cada estado segue só
+ * com o que resta do lease e com a cota local reduzida, nunca com um lease novo
+ * inventado: o limite fica mais apertado até o backend voltar, não mais frouxo.
+ */
+public class RateLimitLeaseSyncer implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(RateLimitLeaseSyncer.class);
+
+    // Limite de pedidos por ida ao backend
+    private static final int MAX_BATCH = 500;
+
+    final long intervalMillis;
+    private final RateLimitBackend backend;
+    private final Queue<PendingRefill> queue = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService executor;
+
+    private record PendingRefill(LeasedRateLimitState state, long window) {
+    }
+
+    public RateLimitLeaseSyncer(RateLimitBackend backend, long intervalMillis) {
+        this.backend = backend;
+        this.intervalMillis = intervalMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ratelimit-lease-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Agenda uma renovação; no máximo uma pendente por estado
+     */
+    void scheduleRefill(LeasedRateLimitState state, long window) {
+        if (state.refillPending.compareAndSet(false, true)) {
+            queue.add(new PendingRefill(state, window));
+        }
+    }
+
+    /**
+     * Envia as renovações pendentes em lotes
+     */
+    void flush() {
+        while (!queue.isEmpty()) {
+            List<PendingRefill> batch = new ArrayList<>();
+            PendingRefill pending;
+            while (batch.size() < MAX_BATCH && (pending = queue.poll()) != null) {
+                batch.add(pending);
+            }
+
+            // A dívida da cota local vai junto no pedido, para entrar no contador global
+            int[] owed = new int[batch.size()];
+            List<RateLimitBackend.LeaseRequest> requests = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                LeasedRateLimitState state = batch.get(i).state();
+                long window = batch.get(i).window();
+                owed[i] = state.owed(window);
+                requests.add(new RateLimitBackend.LeaseRequest(state.key, window, state.leaseSize + owed[i], state.limit));
+            }
+
+            List<RateLimitBackend.LeaseGrant> grants;
+            try {
+                grants = backend.acquire(requests);
+            } catch (RuntimeException e) {
+                LOG.warnf(e, "Falha ao renovar %d leases de rate limit; seguindo com a cota local reduzida", batch.size());
+                for (PendingRefill refill : batch) {
+                    refill.state().backendFailed(refill.window());
+                    refill.state().refillPending.set(false);
+                }
+                return;
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                PendingRefill refill = batch.get(i);
+                refill.state().addPermits(refill.window(), grants.get(i), owed[i]);
+                refill.state().refillPending.set(false);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,82 @@
+package org.acme.ratelimit;
+
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Políticas de rate limit configuradas em ratelimit.policies.*
+ *
+ * São compiladas na inicialização em um {@link RoutePolicyMatcher}, então uma
+ * configuração inválida derruba a aplicação no boot e não na primeira requisição.
+ */
+@Startup
+@ApplicationScoped
+public class RateLimitPolicies {
+
+    @Inject
+    RateLimitConfig config;
+
+    private final RoutePolicyMatcher matcher = new RoutePolicyMatcher();
+    private final List<RateLimitPolicy> policies = new ArrayList<>();
+
+    @PostConstruct
+    void compile() {
+        // Ordenado por nome para que os índices sejam estáveis entre execuções
+        for (Map.Entry<String, RateLimitConfig.Policy> entry : new TreeMap<>(config.policies()).entrySet()) {
+            RateLimitConfig.Policy p = entry.getValue();
+            RateLimitPolicy policy = new RateLimitPolicy(
+                    entry.getKey(),
+                    policies.size(),
+                    p.algorithm().orElse(config.algorithm()),
+                    p.limit(),
+                    p.burst().orElse(p.limit()),
+                    p.windowSeconds() * 1000L,
+                    p.key(),
+                    p.keyHeader().orElse(null),
+                    p.shared(),
+                    p.leaseSize().orElse(Math.max(1, p.limit() / 10)));
+            register(p.path(), p.methods().orElse(List.of()), policy);
+        }
+    }
+
+    /**
+     * Adiciona uma política ao matcher; lista de métodos vazia cobre todos
+     */
+    void register(String path, List<String> methods, RateLimitPolicy policy) {
+        if (policy.index != policies.size()) {
+            throw new IllegalArgumentException("Índice fora de ordem para a política " + policy.name);
+        }
+        if (methods.isEmpty()) {
+            matcher.add(path, null, policy);
+        } else {
+            for (String method : methods) {
+                matcher.add(path, method.trim().toUpperCase(Locale.ROOT), policy);
+            }
+        }
+        policies.add(policy);
+    }
+
+    /**
+     * Política aplicável à requisição, ou null se a rota não tem rate limit
+     */
+    public RateLimitPolicy resolve(String method, String path) {
+        return matcher.resolve(method, path);
+    }
+
+    public List<RateLimitPolicy> all() {
+        return Collections.unmodifiableList(policies);
+    }
+
+    public int size() {
+        return policies.size();
+    }
+}
@@ -0,0 +1,63 @@
+package org.acme.ratelimit;
+
+/**
+ * Política de rate limit já resolvida a partir da configuração.
+ * O {@code index} identifica a tabela de clientes da política no {@link RateLimitStore}.
+ */
+public final class RateLimitPolicy {
+
+    public final String name;
+    public final int index;
+    public final RateLimitAlgorithm algorithm;
+    public final int limit;
+    public final int burst;
+    public final long windowMillis;
+    public final RateLimitConfig.KeySource keySource;
+    public final String keyHeader;
+    public final boolean shared;
+    public final int leaseSize;
+    // Valor do X-RateLimit-Limit já em texto: o header não precisa de um Integer por requisição
+    public final String limitHeader;
+
+    public RateLimitPolicy(String name, int index, RateLimitAlgorithm algorithm, int limit, int burst,
+                           long windowMillis, RateLimitConfig.KeySource keySource, String keyHeader) {
+        this(name, index, algorithm, limit, burst, windowMillis, keySource, keyHeader, false, 1);
+    }
+
+    public RateLimitPolicy(String name, int index, RateLimitAlgorithm algorithm, int limit, int burst,
+                           long windowMillis, RateLimitConfig.KeySource keySource, String keyHeader,
+                           boolean shared, int leaseSize) {
+        if (limit <= 0 || burst <= 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("Política de rate limit '" + name + "' inválida: limit, burst e window devem ser positivos");
+        }
+        int max = algorithm == RateLimitAlgorithm.TOKEN_BUCKET ? TokenBucketState.MAX_CAPACITY : SlidingWindowCounterState.MAX_LIMIT;
+        if (limit > max || burst > max) {
+            throw new IllegalArgumentException("Política de rate limit '" + name + "' inválida: máximo de " + max + " requisições por janela");
+        }
+        if (keySource == RateLimitConfig.KeySource.HEADER && (keyHeader == null || keyHeader.isBlank())) {
+            throw new IllegalArgumentException("Política de rate limit '" + name + "' usa key=HEADER sem key-header");
+        }
+        if (shared && (leaseSize <= 0 || leaseSize > LeasedRateLimitState.MAX_PERMITS)) {
+            throw new IllegalArgumentException("Política de rate limit '" + name + "' com lease-size inválido");
+        }
+        this.name = name;
+        this.index = index;
+        this.algorithm = algorithm;
+        this.limit = limit;
+        this.burst = burst;
+        this.windowMillis = windowMillis;
+        this.keySource = keySource;
+        this.keyHeader = keyHeader;
+        this.shared = shared;
+        this.leaseSize = Math.min(leaseSize, limit);
+        this.limitHeader = Integer.toString(limit);
+    }
+
+    /**
+     * Estado local para políticas não compartilhadas; as shared são criadas pelo
+     * {@link RateLimitStore} com um {@link LeasedRateLimitState}
+     */
+    public RateLimitState newState(long nowMillis) {
+        return algorithm.newState(limit, burst, windowMillis, nowMillis);
+    }
+}
@@ -0,0 +1,29 @@
+package org.acme.ratelimit;
+
+/**
+ * Estado de rate limit de um único cliente.
+ * As implementações guardam tudo em um único long atualizado via CAS,
+ * então podem ser chamadas por várias threads sem synchronized.
+ */
+public interface RateLimitState {
+
+    /**
+     * Tenta consumir uma permissão.
+     *
+     * @param nowMillis - Instante atual em {@link RateLimitClock#nowMillis()}
+     * @return valor >= 0 se permitido (requisições restantes);
+     *         valor < 0 se negado (o módulo é o tempo em ms até a próxima permissão)
+     */
+    long tryAcquire(long nowMillis);
+
+    /**
+     * Milissegundos até o limite estar completamente restabelecido
+     */
+    long millisUntilReset(long nowMillis);
+
+    /**
+     * Indica se o estado está equivalente a um recém-criado,
+     * ou seja, pode ser descartado sem alterar o comportamento do limite
+     */
+    boolean isIdle(long nowMillis);
+}
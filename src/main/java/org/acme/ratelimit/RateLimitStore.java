@@ -1,41 +1,178 @@
 package org.acme.ratelimit;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Any;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.literal.NamedLiteral;
+import jakarta.inject.Inject;
 
-import java.time.Instant;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
+import java.util.Iterator;
 
+/**
+ * Tabela de estados de rate limit por política e cliente, com tamanho limitado.
+ *
+ * Cada política tem a sua própria tabela (um cache Caffeine), evitando concatenar
+ * política + cliente numa chave a cada requisição. max-entries é dividido igualmente
+ * entre as políticas, e o consumo de memória fica limitado a
+ * max-entries * (entrada + chave de até 64 chars), mesmo com milhares de
+ * X-Forwarded-For falsos. Cheia, a tabela despeja pela política do Caffeine (frequência
+ * e recência); um cliente sem requisições pelo tempo que o estado leva para voltar ao
+ * inicial expira sozinho, sem perder nada.
+ *
+ * Políticas shared usam {@link LeasedRateLimitState} sobre o {@link RateLimitBackend}
+ * escolhido em ratelimit.store.backend, para que o limite valha somando todas as réplicas.
+ */
 @ApplicationScoped
 public class RateLimitStore {
 
-    private final Map<String, ClientRateLimit> store = new ConcurrentHashMap<>();
+    static final int MAX_KEY_LENGTH = 64;
 
-    public static class ClientRateLimit {
-        public int requests;
-        public Instant windowStart;
+    @Inject
+    RateLimitConfig config;
 
-        public ClientRateLimit(int requests, Instant windowStart) {
-            this.requests = requests;
-            this.windowStart = windowStart;
+    @Inject
+    RateLimitPolicies policies;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    @Any
+    Instance<RateLimitBackend> backends;
+
+    int maxEntries;
+    RateLimitLeaseSyncer syncer;
+
+    // Relógio das expirações do Caffeine; os testes trocam por um controlado à mão
+    Ticker ticker = Ticker.systemTicker();
+
+    private Cache<String, RateLimitState>[] tables;
+    private Counter evictions;
+    private Counter expirations;
+
+    @PostConstruct
+    void init() {
+        init(config.store().maxEntries());
+        if (policies.all().stream().anyMatch(policy -> policy.shared)) {
+            RateLimitBackend backend = backends.select(NamedLiteral.of(config.store().backend())).get();
+            syncer = new RateLimitLeaseSyncer(backend, config.store().syncIntervalMillis());
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (syncer != null) {
+            syncer.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void init(int maxEntries) {
+        this.maxEntries = maxEntries;
+        Gauge.builder("ratelimit.store.entries", this, RateLimitStore::size)
+                .description("Clientes com estado de rate limit em memória")
+                .register(registry);
+        evictions = Counter.builder("ratelimit.store.evictions")
+                .description("Clientes ativos removidos porque a tabela atingiu o limite")
+                .register(registry);
+        expirations = Counter.builder("ratelimit.store.expirations")
+                .description("Clientes ociosos removidos")
+                .register(registry);
+
+        tables = new Cache[policies.size()];
+        long perPolicy = Math.max(1, maxEntries / Math.max(1, tables.length));
+        for (RateLimitPolicy policy : policies.all()) {
+            tables[policy.index] = Caffeine.newBuilder()
+                    .maximumSize(perPolicy)
+                    .expireAfterAccess(Duration.ofMillis(idleAfterMillis(policy)))
+                    .ticker(ticker)
+                    .evictionListener((String key, RateLimitState state, RemovalCause cause) -> {
+                        if (cause == RemovalCause.SIZE) {
+                            evictions.increment();
+                        } else if (cause == RemovalCause.EXPIRED) {
+                            expirations.increment();
+                        }
+                    })
+                    .build();
+        }
+    }
+
+    public RateLimitState getOrCreate(RateLimitPolicy policy, String clientId) {
+        Cache<String, RateLimitState> table = tables[policy.index];
+        String key = key(clientId);
+
+        // Consulta simples antes: o caminho comum (cliente conhecido) não aloca a lambda
+        RateLimitState state = table.getIfPresent(key);
+        if (state != null) {
+            return state;
+        }
+        return table.get(key, k -> newState(policy, k, RateLimitClock.nowMillis()));
+    }
+
+    /**
+     * Tempo sem requisições depois do qual o estado certamente voltou ao inicial: duas janelas
+     * (a anterior ainda pesa na janela deslizante) ou o tempo de encher o balde inteiro
+     */
+    static long idleAfterMillis(RateLimitPolicy policy) {
+        long refill = (long) Math.ceil((double) policy.burst * policy.windowMillis / policy.limit);
+        return Math.max(2 * policy.windowMillis, refill);
+    }
+
+    private RateLimitState newState(RateLimitPolicy policy, String key, long now) {
+        if (policy.shared) {
+            return new LeasedRateLimitState(policy.name + ":" + key, policy.limit, policy.leaseSize, policy.windowMillis, syncer);
         }
+        return policy.newState(now);
     }
 
-    public ClientRateLimit getOrCreate(String clientId) {
-        return store.computeIfAbsent(clientId, k -> new ClientRateLimit(0, Instant.now()));
+    public int size() {
+        long size = 0;
+        for (Cache<String, RateLimitState> table : tables) {
+            size += table.estimatedSize();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
     }
 
-    public void increment(String clientId) {
-        ClientRateLimit limit = getOrCreate(clientId);
-        limit.requests++;
+    public void reset(RateLimitPolicy policy, String clientId) {
+        tables[policy.index].invalidate(key(clientId));
     }
 
-    public void reset(String clientId) {
-        store.put(clientId, new ClientRateLimit(0, Instant.now()));
+    /**
+     * Aplica as expirações pendentes do Caffeine e remove clientes cujo estado voltou ao
+     * inicial antes de expirar (nada a lembrar)
+     *
+     * @param maxRemovals - Máximo de remoções nesta chamada
+     * @return quantidade removida
+     */
+    public int cleanup(int maxRemovals) {
+        long now = RateLimitClock.nowMillis();
+        int removed = 0;
+        for (Cache<String, RateLimitState> table : tables) {
+            table.cleanUp();
+            Iterator<RateLimitState> it = table.asMap().values().iterator();
+            while (removed < maxRemovals && it.hasNext()) {
+                if (it.next().isIdle(now)) {
+                    it.remove();
+                    expirations.increment();
+                    removed++;
+                }
+            }
+        }
+        return removed;
     }
 
-    public void cleanup() {
-        Instant oneHourAgo = Instant.now().minusSeconds(3600);
-        store.entrySet().removeIf(entry -> entry.getValue().windowStart.isBefore(oneHourAgo));
+    // Chaves longas são truncadas para que o cliente não controle o tamanho da tabela
+    private static String key(String clientId) {
+        return clientId.length() > MAX_KEY_LENGTH ? clientId.substring(0, MAX_KEY_LENGTH) : clientId;
     }
 }
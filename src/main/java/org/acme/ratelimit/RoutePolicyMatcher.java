@@ -0,0 +1,144 @@
+package org.acme.ratelimit;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Trie de caracteres compilada na inicialização a partir das rotas das políticas.
+ *
+ * A resolução percorre o caminho da requisição uma única vez, sem substring nem split,
+ * então o custo não depende da quantidade de políticas. Vence o prefixo mais longo;
+ * quando um trecho literal e um curinga "*" competem, o literal tem preferência.
+ */
+final class RoutePolicyMatcher {
+
+    private static final int ASCII = 128;
+
+    private final Node root = new Node();
+
+    private static final class Node {
+        final Node[] children = new Node[ASCII];
+        // Segmento "*": consome um segmento inteiro do caminho
+        Node wildcard;
+        RateLimitPolicy anyMethod;
+        Map<String, RateLimitPolicy> byMethod;
+
+        RateLimitPolicy policyFor(String method) {
+            if (byMethod != null) {
+                RateLimitPolicy policy = byMethod.get(method);
+                if (policy != null) {
+                    return policy;
+                }
+            }
+            return anyMethod;
+        }
+
+        boolean hasPolicy() {
+            return anyMethod != null || byMethod != null;
+        }
+    }
+
+    /**
+     * Registra uma rota; {@code method} nulo cobre todos os métodos
+     */
+    void add(String pattern, String method, RateLimitPolicy policy) {
+        String normalized = normalize(pattern);
+        Node node = root;
+        int i = 0;
+        while (i < normalized.length()) {
+            char c = normalized.charAt(i);
+            if (c == '*' && normalized.charAt(i - 1) == '/' && (i + 1 == normalized.length() || normalized.charAt(i + 1) == '/')) {
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                node = node.wildcard;
+                i++;
+                continue;
+            }
+            if (c >= ASCII) {
+                throw new IllegalArgumentException("Rota de rate limit com caractere não ASCII: " + pattern);
+            }
+            if (node.children[c] == null) {
+                node.children[c] = new Node();
+            }
+            node = node.children[c];
+            i++;
+        }
+
+        if (method == null) {
+            if (node.anyMethod != null) {
+                throw new IllegalArgumentException("Rota de rate limit duplicada: " + pattern);
+            }
+            node.anyMethod = policy;
+        } else {
+            if (node.byMethod == null) {
+                node.byMethod = new HashMap<>();
+            }
+            if (node.byMethod.putIfAbsent(method, policy) != null) {
+                throw new IllegalArgumentException("Rota de rate limit duplicada: " + method + " " + pattern);
+            }
+        }
+    }
+
+    /**
+     * Política mais específica para o caminho, ou null se nenhuma cobre
+     */
+    RateLimitPolicy resolve(String method, String path) {
+        return match(root, method, path, 0, null);
+    }
+
+    private RateLimitPolicy match(Node node, String method, String path, int i, RateLimitPolicy best) {
+        int length = path.length();
+        while (true) {
+            // Uma rota cobre o caminho se termina numa fronteira de segmento
+            if (node.hasPolicy() && (i == length || path.charAt(i) == '/')) {
+                RateLimitPolicy policy = node.policyFor(method);
+                if (policy != null) {
+                    best = policy;
+                }
+            }
+
+            if (node.wildcard != null && i > 0 && path.charAt(i - 1) == '/') {
+                int end = i;
+                while (end < length && path.charAt(end) != '/') {
+                    end++;
+                }
+                if (end > i) {
+                    Node literal = i < length && path.charAt(i) < ASCII ? node.children[path.charAt(i)] : null;
+                    RateLimitPolicy viaWildcard = match(node.wildcard, method, path, end, null);
+                    if (literal == null) {
+                        return viaWildcard != null ? viaWildcard : best;
+                    }
+                    RateLimitPolicy viaLiteral = match(literal, method, path, i + 1, null);
+                    if (viaLiteral != null) {
+                        return viaLiteral;
+                    }
+                    return viaWildcard != null ? viaWildcard : best;
+                }
+            }
+
+            if (i == length) {
+                return best;
+            }
+            char c = path.charAt(i);
+            Node next = c < ASCII ? node.children[c] : null;
+            if (next == null) {
+                return best;
+            }
+            node = next;
+            i++;
+        }
+    }
+
+    // Garante "/" inicial e remove "/" final, como no UriInfo.getPath(); "/" vira a raiz ("")
+    private static String normalize(String pattern) {
+        String p = pattern.trim();
+        if (!p.startsWith("/")) {
+            p = "/" + p;
+        }
+        while (p.endsWith("/")) {
+            p = p.substring(0, p.length() - 1);
+        }
+        return p;
+    }
+}
@@ -0,0 +1,101 @@
+package org.acme.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contador de janela deslizante lock-free.
+ *
+ * Mantém a contagem da janela atual e da anterior e estima o uso como
+ * {@code anterior * fração_restante + atual}, evitando o "estouro" na virada
+ * de uma janela fixa.
+ *
+ * Layout do long empacotado: [24 bits: índice da janela][20 bits: anterior][20 bits: atual]
+ * O índice é comparado em módulo 2^24; entradas ociosas são descartadas pelo store
+ * muito antes de uma volta completa.
+ */
+public class SlidingWindowCounterState implements RateLimitState {
+
+    static final int COUNT_BITS = 20;
+    static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    static final int WINDOW_BITS = 24;
+    static final long WINDOW_MASK = (1L << WINDOW_BITS) - 1;
+    public static final int MAX_LIMIT = (int) COUNT_MASK;
+
+    private final long limit;
+    private final long windowMillis;
+    private final AtomicLong state;
+
+    public SlidingWindowCounterState(int limit, long windowMillis, long nowMillis) {
+        if (limit <= 0 || limit > MAX_LIMIT || windowMillis <= 0) {
+            throw new IllegalArgumentException("Configuração de janela deslizante inválida");
+        }
+        this.limit = limit;
+        this.windowMillis = windowMillis;
+        this.state = new AtomicLong(pack(nowMillis / windowMillis, 0, 0));
+    }
+
+    @Override
+    public long tryAcquire(long nowMillis) {
+        long window = nowMillis / windowMillis;
+        long elapsedInWindow = nowMillis % windowMillis;
+
+        while (true) {
+            long current = state.get();
+            long rolled = roll(current, window);
+            long previous = (rolled >>> COUNT_BITS) & COUNT_MASK;
+            long count = rolled & COUNT_MASK;
+            long estimate = previous * (windowMillis - elapsedInWindow) / windowMillis + count;
+
+            if (estimate >= limit) {
+                return -millisUntilAllowed(previous, count, elapsedInWindow);
+            }
+
+            if (state.compareAndSet(current, rolled + 1)) {
+                return limit - estimate - 1;
+            }
+        }
+    }
+
+    @Override
+    public long millisUntilReset(long nowMillis) {
+        return windowMillis - (nowMillis % windowMillis);
+    }
+
+    @Override
+    public boolean isIdle(long nowMillis) {
+        long rolled = roll(state.get(), nowMillis / windowMillis);
+        return (rolled & ((COUNT_MASK << COUNT_BITS) | COUNT_MASK)) == 0;
+    }
+
+    /**
+     * Tempo até a parcela da janela anterior decair o suficiente para liberar uma requisição.
+     * Se a janela atual sozinha já estourou, só a próxima janela libera.
+     */
+    private long millisUntilAllowed(long previous, long count, long elapsedInWindow) {
+        if (count >= limit || previous == 0) {
+            return windowMillis - elapsedInWindow;
+        }
+        long threshold = windowMillis - (limit - count) * windowMillis / previous;
+        return Math.max(1, threshold + 1 - elapsedInWindow);
+    }
+
+    /**
+     * Desloca as contagens para a janela {@code window}:
+     * uma janela à frente vira "anterior", duas ou mais zeram tudo.
+     */
+    private static long roll(long packed, long window) {
+        long storedWindow = packed >>> (2 * COUNT_BITS);
+        long distance = (window - storedWindow) & WINDOW_MASK;
+        if (distance == 0) {
+            return packed;
+        }
+        if (distance == 1) {
+            return pack(window, packed & COUNT_MASK, 0);
+        }
+        return pack(window, 0, 0);
+    }
+
+    private static long pack(long window, long previous, long count) {
+        return ((window & WINDOW_MASK) << (2 * COUNT_BITS)) | (previous << COUNT_BITS) | count;
+    }
+}
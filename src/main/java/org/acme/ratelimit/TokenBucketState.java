@@ -0,0 +1,102 @@
+package org.acme.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket lock-free.
+ *
+ * Layout do long empacotado: [42 bits: último refill (ms)][22 bits: tokens]
+ * Recarrega {@code limit} tokens a cada {@code windowMillis}, até {@code capacity}.
+ */
+public class TokenBucketState implements RateLimitState {
+
+    static final int TOKEN_BITS = 22;
+    static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    public static final int MAX_CAPACITY = (int) TOKEN_MASK;
+
+    private final long limit;
+    private final long capacity;
+    private final long windowMillis;
+    private final AtomicLong state;
+
+    public TokenBucketState(int limit, int capacity, long windowMillis, long nowMillis) {
+        if (limit <= 0 || capacity <= 0 || capacity > MAX_CAPACITY || windowMillis <= 0) {
+            throw new IllegalArgumentException("Configuração de token bucket inválida");
+        }
+        this.limit = limit;
+        this.capacity = capacity;
+        this.windowMillis = windowMillis;
+        this.state = new AtomicLong(pack(nowMillis, capacity));
+    }
+
+    @Override
+    public long tryAcquire(long nowMillis) {
+        while (true) {
+            long current = state.get();
+            long refilled = refill(current, nowMillis);
+            long tokens = refilled & TOKEN_MASK;
+
+            if (tokens == 0) {
+                long last = refilled >>> TOKEN_BITS;
+                long wait = Math.max(1, ceilDiv(windowMillis, limit) - (nowMillis - last));
+                return -wait;
+            }
+
+            if (state.compareAndSet(current, refilled - 1)) {
+                return tokens - 1;
+            }
+        }
+    }
+
+    @Override
+    public long millisUntilReset(long nowMillis) {
+        long refilled = refill(state.get(), nowMillis);
+        long missing = capacity - (refilled & TOKEN_MASK);
+        if (missing == 0) {
+            return 0;
+        }
+        long last = refilled >>> TOKEN_BITS;
+        return Math.max(0, ceilDiv(missing * windowMillis, limit) - (nowMillis - last));
+    }
+
+    @Override
+    public boolean isIdle(long nowMillis) {
+        return (refill(state.get(), nowMillis) & TOKEN_MASK) == capacity;
+    }
+
+    /**
+     * Calcula o estado com os tokens recarregados até {@code nowMillis}.
+     * O relógio só avança o tempo correspondente aos tokens inteiros creditados,
+     * para não perder as frações entre chamadas.
+     */
+    private long refill(long packed, long nowMillis) {
+        long last = packed >>> TOKEN_BITS;
+        long tokens = packed & TOKEN_MASK;
+        long elapsed = nowMillis - last;
+
+        if (elapsed <= 0 || tokens == capacity) {
+            return tokens == capacity ? pack(Math.max(last, nowMillis), tokens) : packed;
+        }
+        if (elapsed >= windowMillis) {
+            return pack(nowMillis, capacity);
+        }
+
+        long gained = elapsed * limit / windowMillis;
+        if (gained == 0) {
+            return packed;
+        }
+        long newTokens = tokens + gained;
+        if (newTokens >= capacity) {
+            return pack(nowMillis, capacity);
+        }
+        return pack(last + gained * windowMillis / limit, newTokens);
+    }
+
+    private static long pack(long millis, long tokens) {
+        return (millis << TOKEN_BITS) | tokens;
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return (a + b - 1) / b;
+    }
+}
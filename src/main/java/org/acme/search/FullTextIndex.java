@@ -0,0 +1,290 @@
+package org.acme.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido em memória: termo -> (id do registro, peso).
+ *
+ * Cada termo da busca casa de três formas, em ordem decrescente de peso:
+ * exato ("frango"), prefixo ("fran" -> "frango", "francesa") e, só quando esses
+ * não acham nada, trigramas ("parmejiana" -> "parmegiana", para erros de digitação
+ * e trechos do meio da palavra).
+ * O ranking soma, por termo da busca, a melhor casada de cada registro ponderada
+ * pelo IDF do termo do índice, e favorece registros que casam todos os termos.
+ *
+ * O custo de uma busca depende do vocabulário e das listas dos termos casados,
+ * não do total de registros. Leituras concorrentes; escritas exclusivas.
+ */
+public final class FullTextIndex {
+
+    // Máximo de termos do índice considerados por termo da busca (prefixo e trigramas)
+    static final int MAX_EXPANSIONS = 32;
+
+    // Máximo de entradas percorridas nas listas de trigramas por termo da busca
+    static final int MAX_NGRAM_CANDIDATES = 512;
+
+    private static final float PREFIX_FACTOR = 0.6f;
+    private static final float NGRAM_FACTOR = 0.35f;
+    private static final float MIN_NGRAM_SIMILARITY = 0.5f;
+
+    /**
+     * Campo de texto de um registro, com o seu peso no ranking (nome pesa mais que descrição)
+     */
+    public record Field(String text, float weight) {
+    }
+
+    public record Hit(long id, float score) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, LongFloatMap> postings = new TreeMap<>();
+    private final Map<String, Set<String>> termsByGram = new HashMap<>();
+    private final Map<Long, String[]> termsByDoc = new HashMap<>();
+
+    /**
+     * Indexa (ou reindexa) um registro
+     */
+    public void put(long id, List<Field> fields) {
+        Map<String, Float> weights = new LinkedHashMap<>();
+        for (Field field : fields) {
+            for (String term : TextNormalizer.tokenize(field.text())) {
+                weights.merge(term, field.weight(), Float::sum);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            String[] terms = new String[weights.size()];
+            int i = 0;
+            for (Map.Entry<String, Float> e : weights.entrySet()) {
+                String term = e.getKey();
+                LongFloatMap list = postings.get(term);
+                if (list == null) {
+                    list = new LongFloatMap();
+                    postings.put(term, list);
+                    for (String gram : TextNormalizer.trigrams(term)) {
+                        termsByGram.computeIfAbsent(gram, g -> new HashSet<>()).add(term);
+                    }
+                }
+                // Saturação: repetir a palavra ajuda, mas cada repetição vale menos
+                float tf = e.getValue();
+                list.put(id, tf / (tf + 1f));
+                terms[i++] = term;
+            }
+            termsByDoc.put(id, terms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            termsByGram.clear();
+            termsByDoc.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cópia dos ids indexados
+     */
+    public Set<Long> ids() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(termsByDoc.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return termsByDoc.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param query - Texto digitado pelo usuário
+     * @param limit - Máximo de resultados
+     * @return os registros mais relevantes, do maior para o menor score
+     */
+    public List<Hit> search(String query, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        LongFloatMap scores = new LongFloatMap();
+        LongFloatMap matched = new LongFloatMap();
+
+        lock.readLock().lock();
+        try {
+            int docs = termsByDoc.size();
+            for (String token : new LinkedHashSet<>(tokens)) {
+                LongFloatMap best = new LongFloatMap();
+                for (Map.Entry<String, Float> expansion : expand(token).entrySet()) {
+                    LongFloatMap list = postings.get(expansion.getKey());
+                    float factor = expansion.getValue() * idf(docs, list.size());
+                    list.forEach((id, weight) -> {
+                        float score = weight * factor;
+                        if (score > best.get(id)) {
+                            best.put(id, score);
+                        }
+                    });
+                }
+                best.forEach((id, score) -> {
+                    scores.add(id, score);
+                    matched.add(id, 1f);
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        float tokenCount = new HashSet<>(tokens).size();
+        PriorityQueue<Hit> top = new PriorityQueue<>(Comparator.comparingDouble(Hit::score));
+        scores.forEach((id, score) -> {
+            // Casar todos os termos da busca vale mais que casar um termo muitas vezes
+            float coverage = matched.get(id) / tokenCount;
+            float ranked = score * coverage * coverage;
+            if (top.size() < limit) {
+                top.add(new Hit(id, ranked));
+            } else if (ranked > top.peek().score()) {
+                top.poll();
+                top.add(new Hit(id, ranked));
+            }
+        });
+
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(Comparator.comparingDouble(Hit::score).reversed().thenComparingLong(Hit::id));
+        return hits;
+    }
+
+    /**
+     * Termos do índice que casam com o termo da busca e o fator de cada um
+     */
+    private Map<String, Float> expand(String token) {
+        Map<String, Float> expansions = new LinkedHashMap<>();
+        if (postings.containsKey(token)) {
+            expansions.put(token, 1f);
+        }
+
+        if (token.length() >= 2) {
+            SortedMap<String, LongFloatMap> prefixed = postings.subMap(token, token + Character.MAX_VALUE);
+            int taken = 0;
+            for (String term : prefixed.keySet()) {
+                if (taken == MAX_EXPANSIONS) {
+                    break;
+                }
+                if (expansions.putIfAbsent(term, PREFIX_FACTOR) == null) {
+                    taken++;
+                }
+            }
+        }
+
+        // Trigramas só quando o termo não casou exato nem por prefixo: erro de digitação ou trecho do meio
+        if (expansions.isEmpty() && token.length() >= 3) {
+            Set<String> grams = new HashSet<>(TextNormalizer.trigrams(token));
+            List<Set<String>> lists = new ArrayList<>(grams.size());
+            for (String gram : grams) {
+                Set<String> terms = termsByGram.get(gram);
+                if (terms != null) {
+                    lists.add(terms);
+                }
+            }
+            // Conta os trigramas em comum percorrendo as listas mais raras; as comuns demais ("ao$")
+            // custariam caro para percorrer e só são consultadas para os candidatos já achados
+            lists.sort(Comparator.comparingInt(Set::size));
+            Map<String, Integer> shared = new HashMap<>();
+            List<Set<String>> common = new ArrayList<>();
+            int scanned = 0;
+            for (Set<String> terms : lists) {
+                if (scanned > 0 && scanned + terms.size() > MAX_NGRAM_CANDIDATES) {
+                    common.add(terms);
+                    continue;
+                }
+                for (String term : terms) {
+                    // Mesmo a lista mais rara pode ser grande num vocabulário enorme: o custo fica limitado
+                    if (scanned++ == MAX_NGRAM_CANDIDATES) {
+                        break;
+                    }
+                    shared.merge(term, 1, Integer::sum);
+                }
+            }
+            int queryGrams = grams.size();
+            shared.entrySet().stream()
+                    .map(e -> {
+                        int count = e.getValue();
+                        for (Set<String> terms : common) {
+                            if (terms.contains(e.getKey())) {
+                                count++;
+                            }
+                        }
+                        return Map.entry(e.getKey(), dice(count, queryGrams, e.getKey().length()));
+                    })
+                    .filter(e -> e.getValue() >= MIN_NGRAM_SIMILARITY)
+                    .sorted(Map.Entry.<String, Float>comparingByValue().reversed())
+                    .limit(MAX_EXPANSIONS)
+                    .forEach(e -> expansions.put(e.getKey(), NGRAM_FACTOR * e.getValue()));
+        }
+        return expansions;
+    }
+
+    private void removeLocked(long id) {
+        String[] terms = termsByDoc.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            LongFloatMap list = postings.get(term);
+            list.remove(id);
+            if (list.size() == 0) {
+                postings.remove(term);
+                for (String gram : TextNormalizer.trigrams(term)) {
+                    Set<String> set = termsByGram.get(gram);
+                    if (set != null && set.remove(term) && set.isEmpty()) {
+                        termsByGram.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    // Termos raros discriminam mais que termos presentes em quase todo o cardápio
+    private static float idf(int docs, int docFrequency) {
+        return (float) Math.log(1 + (double) docs / docFrequency);
+    }
+
+    // Coeficiente de Dice entre os trigramas da busca e os do termo (n letras, com as bordas, dão n trigramas)
+    private static float dice(int shared, int queryGrams, int termLength) {
+        return 2f * shared / (queryGrams + termLength);
+    }
+}
@@ -0,0 +1,320 @@
+package org.acme.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.panache.common.Parameters;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.Transactional;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.acme.Bebida;
+import org.acme.Chef;
+import org.acme.Pedido;
+import org.acme.Prato;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Índices de texto de pratos, chefs, bebidas e pedidos, usados pelo parâmetro q das buscas.
+ *
+ * Os índices são montados na subida a partir do banco e depois mantidos pelo
+ * {@link SearchIndexListener}: cada insert/update/delete é aplicado quando a
+ * transação confirma, então um rollback não deixa rastro no índice.
+ * Escritas de outras réplicas chegam pela sincronização periódica: a cada
+ * search.index.sync-interval são relidos os registros com atualizadoEm recente, e a cada
+ * search.index.prune-interval saem os ids que não existem mais no banco.
+ * Enquanto o índice não está pronto (ou com search.index.enabled=false) as buscas
+ * continuam usando o LIKE de antes; o mesmo vale para buscas que casam mais que
+ * search.index.max-results registros, para que total e paginação venham do banco.
+ */
+@ApplicationScoped
+public class SearchIndex {
+
+    private static final Logger LOG = Logger.getLogger(SearchIndex.class);
+
+    /**
+     * Campos indexados de uma entidade e o peso de cada um no ranking
+     */
+    private record Source(Class<?> type, String[] columns, float[] weights, FullTextIndex index) {
+
+        List<FullTextIndex.Field> fields(Object[] values) {
+            List<FullTextIndex.Field> fields = new ArrayList<>(columns.length);
+            for (int i = 0; i < columns.length; i++) {
+                fields.add(new FullTextIndex.Field((String) values[i], weights[i]));
+            }
+            return fields;
+        }
+    }
+
+    private static final List<Source> SOURCES = List.of(
+            new Source(Prato.class, new String[]{"nome", "descricao"}, new float[]{3f, 1f}, new FullTextIndex()),
+            new Source(Chef.class, new String[]{"nome", "especialidade"}, new float[]{3f, 1.5f}, new FullTextIndex()),
+            new Source(Bebida.class, new String[]{"nome"}, new float[]{3f}, new FullTextIndex()),
+            new Source(Pedido.class, new String[]{"nomeCliente"}, new float[]{3f}, new FullTextIndex())
+    );
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Inject
+    TransactionSynchronizationRegistry transactions;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "search.index.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "search.index.max-results", defaultValue = "1000")
+    int maxResults;
+
+    // Folga na sincronização para cobrir relógios levemente diferentes entre réplicas e transações longas
+    private static final Duration SYNC_MARGIN = Duration.ofMinutes(1);
+
+    private static final Map<Class<?>, Source> BY_TYPE = new HashMap<>();
+
+    static {
+        for (Source source : SOURCES) {
+            BY_TYPE.put(source.type(), source);
+        }
+    }
+
+    private volatile boolean ready;
+    private volatile Instant lastSync;
+
+    void onStart(@Observes StartupEvent event) {
+        for (Source source : SOURCES) {
+            Gauge.builder("search.index.documents", source.index(), FullTextIndex::size)
+                    .tag("entity", source.type().getSimpleName())
+                    .register(registry);
+        }
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Recria todos os índices a partir do banco. Lê só as colunas indexadas, sem carregar entidades.
+     */
+    @Transactional
+    void rebuild() {
+        Instant startedAt = Instant.now();
+        for (Source source : SOURCES) {
+            source.index().clear();
+            String jpql = "select id, " + String.join(", ", source.columns()) + " from " + source.type().getSimpleName();
+            try (Stream<Object[]> rows = em.createQuery(jpql, Object[].class).getResultStream()) {
+                rows.forEach(row -> put(source, row));
+            }
+            LOG.infof("Índice de busca de %s: %d registros", source.type().getSimpleName(), source.index().size());
+        }
+        lastSync = startedAt;
+        ready = true;
+    }
+
+    /**
+     * Relê os registros alterados desde a última sincronização, inclusive por outras réplicas
+     */
+    @Scheduled(every = "${search.index.sync-interval:30s}", delayed = "${search.index.sync-interval:30s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    @Transactional
+    void sync() {
+        if (!enabled || !ready) {
+            return;
+        }
+        Instant since = lastSync.minus(SYNC_MARGIN);
+        lastSync = Instant.now();
+        for (Source source : SOURCES) {
+            String jpql = "select id, " + String.join(", ", source.columns()) + " from " + source.type().getSimpleName()
+                    + " where atualizadoEm >= :since";
+            try (Stream<Object[]> rows = em.createQuery(jpql, Object[].class).setParameter("since", since).getResultStream()) {
+                rows.forEach(row -> put(source, row));
+            }
+        }
+    }
+
+    /**
+     * Tira do índice os registros excluídos por outras réplicas. Até lá eles não aparecem nas
+     * buscas (o filtro por id e o multiLoad vão ao banco), só ocupam memória e posições no ranking.
+     */
+    @Scheduled(every = "${search.index.prune-interval:10m}", delayed = "${search.index.prune-interval:10m}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    @Transactional
+    void prune() {
+        if (!enabled || !ready) {
+            return;
+        }
+        for (Source source : SOURCES) {
+            Set<Long> stale = source.index().ids();
+            try (Stream<Long> ids = em.createQuery("select id from " + source.type().getSimpleName(), Long.class).getResultStream()) {
+                ids.forEach(stale::remove);
+            }
+            stale.forEach(source.index()::remove);
+        }
+    }
+
+    private static void put(Source source, Object[] row) {
+        Object[] values = new Object[row.length - 1];
+        System.arraycopy(row, 1, values, 0, values.length);
+        source.index().put((Long) row[0], source.fields(values));
+    }
+
+    /**
+     * Filtro JPQL para o texto q: os ids que casam segundo o índice ou, se o índice não
+     * estiver disponível ou casar registros demais ({@link #ranked}), o LIKE informado pelo recurso.
+     *
+     * @param type   - Entidade buscada
+     * @param q      - Texto da busca
+     * @param like   - Filtro LIKE equivalente, usando o parâmetro :q
+     * @param params - Recebe o parâmetro do filtro escolhido
+     * @return o filtro, ou null quando q está vazio
+     */
+    public String filter(Class<?> type, String q, String like, Parameters params) {
+        if (q == null || q.isBlank()) {
+            return null;
+        }
+        List<Long> ids = ranked(type, q);
+        if (ids == null) {
+            params.and("q", "%" + q.toLowerCase() + "%");
+            return like;
+        }
+        if (ids.isEmpty()) {
+            // Nenhum registro casa; condição sempre falsa
+            return "id is null";
+        }
+        params.and("ids", ids);
+        return "id in :ids";
+    }
+
+    /**
+     * Todos os ids que casam com q, do mais para o menos relevante, ou null quando o índice não
+     * está disponível ou a busca casa mais que search.index.max-results registros (aí o recurso usa
+     * o LIKE: cortar a lista perderia resultados e o total não bateria com a paginação)
+     */
+    public List<Long> ranked(Class<?> type, String q) {
+        if (!enabled || !ready || q == null || q.isBlank()) {
+            return null;
+        }
+        List<FullTextIndex.Hit> hits = BY_TYPE.get(type).index().search(q, maxResults + 1);
+        if (hits.size() > maxResults) {
+            LOG.debugf("Busca \"%s\" em %s passa de %d resultados; usando o banco", q, type.getSimpleName(), maxResults);
+            return null;
+        }
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (FullTextIndex.Hit hit : hits) {
+            ids.add(hit.id());
+        }
+        return ids;
+    }
+
+    /**
+     * Carrega um trecho da lista ranqueada mantendo a ordem de relevância
+     */
+    public <T> List<T> page(Class<T> type, List<Long> ranked, int first, int count) {
+        if (first >= ranked.size()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = ranked.subList(first, Math.min(ranked.size(), first + count));
+        // multiLoad devolve na ordem dos ids e atende do cache de segundo nível o que estiver lá
+        // (pratos, chefs, bebidas); só os que faltam vão ao banco, em lotes com IN
+        Session session = em.unwrap(Session.class);
+        List<T> rows = new ArrayList<>(ids.size());
+        for (T entity : session.byMultipleIds(type).multiLoad(ids)) {
+            // null: removido entre a busca no índice e a leitura
+            if (entity != null) {
+                session.setReadOnly(entity, true);
+                rows.add(entity);
+            }
+        }
+        return rows;
+    }
+
+    void indexed(Object entity) {
+        Source source = BY_TYPE.get(entity.getClass());
+        if (source == null || !enabled) {
+            return;
+        }
+        // Os valores são lidos agora; a entidade pode mudar antes do commit
+        long id = id(entity);
+        List<FullTextIndex.Field> fields = source.fields(values(entity, source.columns()));
+        afterCommit(() -> source.index().put(id, fields));
+    }
+
+    void removed(Object entity) {
+        Source source = BY_TYPE.get(entity.getClass());
+        if (source == null || !enabled) {
+            return;
+        }
+        long id = id(entity);
+        afterCommit(() -> source.index().remove(id));
+    }
+
+    // Pelos metadados do Hibernate, não por reflexão: o enhancement do Panache tira os campos públicos das entidades
+    private long id(Object entity) {
+        return (Long) sessionFactory.getPersistenceUnitUtil().getIdentifier(entity);
+    }
+
+    private Object[] values(Object entity, String[] fields) {
+        EntityPersister persister = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel()
+                .getEntityDescriptor(entity.getClass());
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            values[i] = persister.getPropertyValue(entity, fields[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Exclusões em massa via JPQL não passam pelo {@link SearchIndexListener}; quem as faz avisa aqui
+     */
+    public void removed(Class<?> type, Collection<Long> ids) {
+        Source source = BY_TYPE.get(type);
+        if (source == null || !enabled || ids.isEmpty()) {
+            return;
+        }
+        List<Long> removed = List.copyOf(ids);
+        afterCommit(() -> removed.forEach(source.index()::remove));
+    }
+
+    private void afterCommit(Runnable change) {
+        if (transactions.getTransactionKey() == null) {
+            change.run();
+            return;
+        }
+        transactions.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    change.run();
+                }
+            }
+        });
+    }
+}
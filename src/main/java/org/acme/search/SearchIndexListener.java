@@ -0,0 +1,39 @@
+package org.acme.search;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ArcContainer;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Mantém o {@link SearchIndex} em dia com as entidades buscáveis.
+ *
+ * Atualizações em massa via JPQL (update/delete sem carregar a entidade) não passam
+ * por aqui; quem usar esse caminho deve chamar o índice diretamente.
+ */
+public class SearchIndexListener {
+
+    @PostPersist
+    @PostUpdate
+    void indexed(Object entity) {
+        SearchIndex index = index();
+        if (index != null) {
+            index.indexed(entity);
+        }
+    }
+
+    @PostRemove
+    void removed(Object entity) {
+        SearchIndex index = index();
+        if (index != null) {
+            index.removed(entity);
+        }
+    }
+
+    // Fora do Quarkus (ex.: benchmarks com Hibernate puro) não há container nem índice
+    private static SearchIndex index() {
+        ArcContainer container = Arc.container();
+        return container == null ? null : container.instance(SearchIndex.class).get();
+    }
+}
@@ -0,0 +1,161 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@QuarkusTest
+class BulkEndpointsTest {
+
+    // O REST Assured não sabe codificar String neste tipo: os corpos NDJSON vão como bytes UTF-8
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Test
+    void bulkInsertIsAppliedOnceWithIdempotencyKey() {
+        List<Map<String, Object>> pratos = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            pratos.add(Map.of("nome", "Lote " + i, "descricao", "Prato carregado em lote", "tempoPreparoMinutos", 20));
+        }
+        // Tempo de preparo fora do intervalo: só este item falha
+        pratos.add(Map.of("nome", "Lote inválido", "descricao", "Prato carregado em lote", "tempoPreparoMinutos", 500));
+        String key = UUID.randomUUID().toString();
+
+        given().contentType(ContentType.JSON).header("Idempotency-Key", key).body(pratos)
+                .when().post("/pratos/bulk").then()
+                .statusCode(200)
+                .body("total", is(121))
+                .body("succeeded", is(120))
+                .body("failed", is(1))
+                .body("items[120].status", is(422))
+                .body("items[0].status", is(201));
+
+        given().contentType(ContentType.JSON).header("Idempotency-Key", key).body(pratos)
+                .when().post("/pratos/bulk").then()
+                .statusCode(200)
+                .header("X-Idempotent-Replayed", "true");
+
+        long created = QuarkusTransaction.requiringNew().call(() -> Prato.count("nome like ?1", "Lote %"));
+        assertEquals(120, created);
+    }
+
+    @Test
+    void ndjsonCreateUpdateAndDelete() {
+        String body = """
+                {"nome": "Guaraná lote", "preco": 6.5, "volumeMl": 350, "alcoolica": false}
+                {"nome": "Cerveja lote", "preco": 12.0, "volumeMl": 600, "alcoolica": true}
+                """;
+        List<Integer> ids = given().contentType(NDJSON).body(body.getBytes(StandardCharsets.UTF_8))
+                .when().post("/bebidas/bulk").then()
+                .statusCode(200)
+                .body("succeeded", is(2))
+                .extract().path("items.id");
+
+        String update = "[{\"id\": " + ids.get(0) + ", \"nome\": \"Guaraná zero\", \"preco\": 6.5, \"volumeMl\": 350, \"alcoolica\": false},"
+                + " {\"id\": 999999, \"nome\": \"Inexistente\", \"preco\": 1, \"volumeMl\": 350, \"alcoolica\": false}]";
+        given().contentType(ContentType.JSON).body(update)
+                .when().post("/bebidas/bulk/update").then()
+                .statusCode(200)
+                .body("items[0].status", is(200))
+                .body("items[1].status", is(404));
+        given().when().get("/bebidas/" + ids.get(0)).then().statusCode(200).body("nome", is("Guaraná zero"));
+
+        given().contentType(ContentType.JSON).body(List.of(ids.get(0), ids.get(1), 999999))
+                .when().post("/bebidas/bulk/delete").then()
+                .statusCode(200)
+                .body("succeeded", is(2))
+                .body("items[2].status", is(404));
+        given().when().get("/bebidas/" + ids.get(1)).then().statusCode(404);
+    }
+
+    @Test
+    void constraintsAreReportedPerItem() {
+        long[] chefs = QuarkusTransaction.requiringNew().call(() -> {
+            Chef a = new Chef("Chef Lote A", "Cozinha mineira", 8);
+            a.persist();
+            Chef b = new Chef("Chef Lote B", "Cozinha paraense", 5);
+            b.persist();
+            return new long[]{a.id, b.id};
+        });
+        List<Map<String, Object>> pratos = List.of(
+                prato("Tutu de feijão", Map.of("id", chefs[0])),
+                // Chef único por prato: o segundo item com o mesmo chef não pode passar
+                prato("Feijão tropeiro", Map.of("id", chefs[0])),
+                prato("Prato sem chef existente", Map.of("id", 999_999)),
+                prato("Pão de queijo", null));
+        List<Integer> ids = given().contentType(ContentType.JSON).body(pratos)
+                .when().post("/pratos/bulk").then()
+                .statusCode(200)
+                .body("succeeded", is(2))
+                .body("items[0].status", is(201))
+                .body("items[1].status", is(409))
+                .body("items[2].status", is(422))
+                .body("items[3].status", is(201))
+                .extract().path("items.id");
+
+        // O chef A já é de um prato gravado
+        given().contentType(ContentType.JSON).body(List.of(prato("Pamonha", Map.of("id", chefs[0]))))
+                .when().post("/pratos/bulk").then()
+                .statusCode(200)
+                .body("items[0].status", is(409));
+
+        // Versão por item, como o If-Match do PUT individual
+        Map<String, Object> stale = new HashMap<>(prato("Pão de queijo recheado", Map.of("id", chefs[1])));
+        stale.put("id", ids.get(3));
+        stale.put("versao", 7);
+        Map<String, Object> current = new HashMap<>(stale);
+        current.put("versao", 0);
+        given().contentType(ContentType.JSON).body(List.of(stale))
+                .when().post("/pratos/bulk/update").then()
+                .statusCode(200)
+                .body("items[0].status", is(412));
+        given().contentType(ContentType.JSON).body(List.of(current))
+                .when().post("/pratos/bulk/update").then()
+                .statusCode(200)
+                .body("items[0].status", is(200));
+
+        // Prato num pedido: a exclusão violaria a chave estrangeira de pedido_prato
+        QuarkusTransaction.requiringNew().run(() -> {
+            Pedido pedido = new Pedido("Lote", 3);
+            pedido.pratos.add(Prato.findById(ids.get(0).longValue()));
+            pedido.persist();
+        });
+        given().contentType(ContentType.JSON).body(List.of(ids.get(0), ids.get(3)))
+                .when().post("/pratos/bulk/delete").then()
+                .statusCode(200)
+                .body("items[0].status", is(409))
+                .body("items[1].status", is(204));
+    }
+
+    @Test
+    void invalidBodyPointsAtTheItem() {
+        given().contentType(NDJSON)
+                .body("{\"nome\": \"Mate\", \"preco\": 5, \"volumeMl\": 300, \"alcoolica\": false}\n{\"nome\": \"Chá\", \"preco\": \"caro\"}\n"
+                        .getBytes(StandardCharsets.UTF_8))
+                .when().post("/bebidas/bulk").then()
+                .statusCode(400)
+                .body(containsString("item 1"))
+                .body(not(containsString("com.fasterxml")));
+    }
+
+    private static Map<String, Object> prato(String nome, Map<String, Object> chef) {
+        Map<String, Object> prato = new HashMap<>(Map.of("nome", nome, "descricao", "Prato carregado em lote", "tempoPreparoMinutos", 30));
+        if (chef != null) {
+            prato.put("chefResponsavel", chef);
+        }
+        return prato;
+    }
+}
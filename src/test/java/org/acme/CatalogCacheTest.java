@@ -0,0 +1,132 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Idas ao banco por request com o cache de segundo nível e o cache de consultas:
+ * a segunda leitura do mesmo recurso não deve executar SQL, e qualquer escrita
+ * precisa aparecer na leitura seguinte.
+ */
+@QuarkusTest
+class CatalogCacheTest {
+
+    private static final int REPEAT = 20;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Inject
+    DataSource dataSource;
+
+    @Inject
+    CatalogCacheExpiry cacheExpiry;
+
+    @Test
+    void repeatedReadsSkipTheDatabase() {
+        long[] ids = seed();
+        List<String> endpoints = List.of(
+                "/pratos/" + ids[0], "/chefs/" + ids[1], "/bebidas/" + ids[2],
+                "/pratos/search?sort=nome&count=none", "/chefs/search?sort=nome&count=none",
+                "/bebidas/search?sort=preco&count=none");
+
+        for (String endpoint : endpoints) {
+            // As linhas recém-gravadas já entram no cache: a leitura fria precisa dele vazio
+            sessionFactory.getCache().evictAllRegions();
+            long cold = statements(endpoint);
+            long warm = 0;
+            for (int i = 0; i < REPEAT; i++) {
+                warm += statements(endpoint);
+            }
+            assertTrue(cold > 0, endpoint + " não foi ao banco na primeira leitura");
+            assertEquals(0, warm, endpoint + " foi ao banco " + warm + " vezes em " + REPEAT + " leituras repetidas");
+        }
+    }
+
+    @Test
+    void writesInvalidateCachedReads() {
+        long[] ids = seed();
+        String prato = "/pratos/" + ids[0];
+        // Mais recentes primeiro: pratos criados por outras classes de teste não empurram o da semente para fora da página
+        String search = "/pratos/search?sort=id&direction=desc&count=none&size=100";
+        statements(prato);
+        statements(search);
+
+        given().contentType(ContentType.JSON)
+                .body(Map.of("nome", "Moqueca atualizada", "descricao", "Com dendê", "tempoPreparoMinutos", 40))
+                .when().put(prato).then().statusCode(200);
+
+        given().when().get(prato).then().statusCode(200).body("nome", is("Moqueca atualizada"));
+        given().when().get(search).then().statusCode(200).body("pratos.nome", hasItem("Moqueca atualizada"));
+
+        given().when().put(prato + "/chef/" + ids[1]).then().statusCode(200);
+        given().when().get(search).then().statusCode(200).body("pratos.id", hasItem((int) ids[0]));
+
+        given().when().delete(prato).then().statusCode(204);
+        given().when().get(prato).then().statusCode(404);
+        given().when().get(search).then().statusCode(200).body("pratos.id", not(hasItem((int) ids[0])));
+
+        String bebida = "/bebidas/" + ids[2];
+        statements(bebida);
+        given().when().delete(bebida).then().statusCode(204);
+        given().when().get(bebida).then().statusCode(404);
+    }
+
+    @Test
+    void writesFromAnotherReplicaShowUpAfterTheLifespan() throws Exception {
+        long[] ids = seed();
+        String prato = "/pratos/" + ids[0];
+        statements(prato);
+
+        // JDBC direto, como outra réplica: o Hibernate desta instância não fica sabendo
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement update = connection.prepareStatement("update Prato set nome = ? where id = ?")) {
+            update.setString(1, "Moqueca de outra réplica");
+            update.setLong(2, ids[0]);
+            update.executeUpdate();
+        }
+        given().when().get(prato).then().statusCode(200).body("nome", is("Moqueca"));
+
+        cacheExpiry.expire();
+        given().when().get(prato).then().statusCode(200).body("nome", is("Moqueca de outra réplica"));
+    }
+
+    private long statements(String endpoint) {
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        given().when().get(endpoint).then().statusCode(200);
+        return statistics.getPrepareStatementCount();
+    }
+
+    // { prato, chef, bebida }
+    private long[] seed() {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            Chef chef = new Chef("Chef Cache", "Cozinha baiana", 12);
+            chef.persist();
+            Prato prato = new Prato("Moqueca", "Peixe no leite de coco", 45, null);
+            prato.persist();
+            Bebida bebida = new Bebida("Suco de cacau", new BigDecimal("12.50"), 400, false);
+            bebida.persist();
+            return new long[]{prato.id, chef.id, bebida.id};
+        });
+    }
+}
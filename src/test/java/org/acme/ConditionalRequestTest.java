@@ -0,0 +1,101 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * ETag / Last-Modified: o 304 sai só com a consulta da versão, e qualquer escrita muda a versão.
+ */
+@QuarkusTest
+class ConditionalRequestTest {
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Test
+    void pedidoAnswers304FromVersionLookup() {
+        long id = QuarkusTransaction.requiringNew().call(() -> {
+            Pedido pedido = new Pedido("Cozinha", 4);
+            pedido.persist();
+            return pedido.id;
+        });
+        String path = "/pedidos/" + id;
+
+        String etag = given().when().get(path).then()
+                .statusCode(200)
+                .header("Last-Modified", notNullValue())
+                .extract().header("ETag");
+
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        given().header("If-None-Match", etag).when().get(path).then()
+                .statusCode(304)
+                .header("ETag", etag);
+        assertEquals(1, statistics.getPrepareStatementCount(), "o 304 deve consultar só a versão");
+
+        given().contentType(ContentType.JSON)
+                .body(Map.of("nomeCliente", "Cozinha", "numeroMesa", 5, "status", "EM_PREPARO"))
+                .when().put(path).then().statusCode(200);
+
+        String updated = given().header("If-None-Match", etag).when().get(path).then()
+                .statusCode(200)
+                .extract().header("ETag");
+        assertNotEquals(etag, updated);
+    }
+
+    @Test
+    void collectionTagChangesOnInsertAndDelete() {
+        // Fraco: a listagem sai em lotes, cada um na sua transação
+        String etag = given().when().get("/bebidas").then().statusCode(200)
+                .header("ETag", startsWith("W/\""))
+                .extract().header("ETag");
+        given().header("If-None-Match", etag).when().get("/bebidas").then().statusCode(304);
+
+        long id = QuarkusTransaction.requiringNew().call(() -> {
+            Bebida bebida = new Bebida("Água de coco", new BigDecimal("7.00"), 300, false);
+            bebida.persist();
+            return bebida.id;
+        });
+        String inserted = given().header("If-None-Match", etag).when().get("/bebidas").then()
+                .statusCode(200)
+                .extract().header("ETag");
+        assertNotEquals(etag, inserted);
+
+        given().when().delete("/bebidas/" + id).then().statusCode(204);
+        given().header("If-None-Match", inserted).when().get("/bebidas").then().statusCode(200);
+    }
+
+    @Test
+    void collectionTagDependsOnTheFormat() {
+        String json = given().accept("application/json").when().get("/pratos").then()
+                .statusCode(200)
+                .header("Vary", containsString("Accept"))
+                .extract().header("ETag");
+        String ndjson = given().accept(ListStreamer.APPLICATION_NDJSON).when().get("/pratos").then()
+                .statusCode(200)
+                .header("Vary", containsString("Accept"))
+                .extract().header("ETag");
+        assertNotEquals(json, ndjson);
+
+        // O ETag do JSON não serve para validar o NDJSON em cache
+        given().accept(ListStreamer.APPLICATION_NDJSON).header("If-None-Match", json).when().get("/pratos").then()
+                .statusCode(200);
+        given().accept(ListStreamer.APPLICATION_NDJSON).header("If-None-Match", ndjson).when().get("/pratos").then()
+                .statusCode(304);
+    }
+}
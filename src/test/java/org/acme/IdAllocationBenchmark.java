@@ -0,0 +1,158 @@
+package org.acme;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Vazão de inserts conforme a geração de id.
+ *
+ * - pooled-lo: o mapeamento atual (sequence por entidade, bloco reservado em memória)
+ * - sequence: a mesma sequence com allocationSize = 1, uma ida à sequence por insert
+ * - identity: coluna auto-incremento; o id só existe depois do INSERT, o que desliga o batch JDBC
+ *
+ * insertOne equivale a POST /pedidos (uma transação por pedido); insertBatch a um lote de
+ * /pratos/bulk (várias linhas por transação, com batch JDBC). Hibernate puro sobre H2, sem
+ * Quarkus nem HTTP. O main() roda tudo duas vezes: com uma thread numa JVM limitada a um
+ * processador e com uma thread por processador, onde a disputa pela sequence aparece.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdAllocationBenchmark {
+
+    @Param({"pooled-lo", "sequence", "identity"})
+    public String strategy;
+
+    // Linhas por transação em insertBatch (igual a bulk.batch-size)
+    @Param({"50"})
+    public int batch;
+
+    private SessionFactory sessionFactory;
+    private IntFunction<Object> factory;
+
+    @Setup
+    public void setup() {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(Pedido.class)
+                .addAnnotatedClass(Prato.class)
+                .addAnnotatedClass(Chef.class)
+                .addAnnotatedClass(PedidoSequencia.class)
+                .addAnnotatedClass(PedidoIdentity.class)
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:ids;DB_CLOSE_DELAY=-1")
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                .setProperty("hibernate.connection.pool_size", String.valueOf(Runtime.getRuntime().availableProcessors()))
+                .setProperty("hibernate.jdbc.batch_size", "50")
+                .setProperty("hibernate.order_inserts", "true")
+                // O mesmo otimizador que quarkus.hibernate-orm.mapping.id.optimizer.default
+                .setProperty("hibernate.id.optimizer.pooled.preferred", "pooled-lo")
+                .buildSessionFactory();
+
+        factory = switch (strategy) {
+            case "pooled-lo" -> i -> new Pedido("Cliente " + i, 1 + i % 30);
+            case "sequence" -> i -> new PedidoSequencia("Cliente " + i, 1 + i % 30);
+            case "identity" -> i -> new PedidoIdentity("Cliente " + i, 1 + i % 30);
+            default -> throw new IllegalArgumentException(strategy);
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public void insertOne() {
+        sessionFactory.inTransaction(session -> session.persist(factory.apply(0)));
+    }
+
+    @Benchmark
+    public void insertBatch() {
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < batch; i++) {
+                session.persist(factory.apply(i));
+            }
+        });
+    }
+
+    @Entity
+    public static class PedidoSequencia {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedido_sequencia_seq")
+        @SequenceGenerator(name = "pedido_sequencia_seq", sequenceName = "pedido_sequencia_seq", allocationSize = 1)
+        public Long id;
+
+        public String nomeCliente;
+        public int numeroMesa;
+
+        public PedidoSequencia() {
+        }
+
+        PedidoSequencia(String nomeCliente, int numeroMesa) {
+            this.nomeCliente = nomeCliente;
+            this.numeroMesa = numeroMesa;
+        }
+    }
+
+    @Entity
+    public static class PedidoIdentity {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        public Long id;
+
+        public String nomeCliente;
+        public int numeroMesa;
+
+        public PedidoIdentity() {
+        }
+
+        PedidoIdentity(String nomeCliente, int numeroMesa) {
+            this.nomeCliente = nomeCliente;
+            this.numeroMesa = numeroMesa;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        // Um núcleo: a JVM do fork enxerga um único processador
+        new Runner(new OptionsBuilder()
+                .include(IdAllocationBenchmark.class.getSimpleName())
+                .threads(1)
+                .jvmArgsAppend("-XX:ActiveProcessorCount=1")
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+        // Vários núcleos: uma thread por processador inserindo ao mesmo tempo
+        new Runner(new OptionsBuilder()
+                .include(IdAllocationBenchmark.class.getSimpleName())
+                .threads(Runtime.getRuntime().availableProcessors())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
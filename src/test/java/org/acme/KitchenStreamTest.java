@@ -0,0 +1,136 @@
+package org.acme;
+
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * GET /pedidos/eventos: eventos na ordem do commit, filtro por status (inclusive a saída
+ * do status acompanhado) e reenvio do que o painel perdeu ao reconectar com Last-Event-ID.
+ */
+@QuarkusTest
+class KitchenStreamTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @TestHTTPResource("pedidos/eventos")
+    URI eventos;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void statusFilterFollowsTheOrderThroughTheKitchen() throws Exception {
+        try (Stream<String> lines = open(eventos + "?status=EM_PREPARO", null)) {
+            Iterator<String> stream = lines.iterator();
+            int id = criar("Painel", 4);
+            given().when().post("/pedidos/" + id + "/pratos/" + prato()).then().statusCode(200);
+            mudarStatus(id, "EM_PREPARO");
+            mudarStatus(id, "PRONTO_PARA_ENTREGA");
+
+            // CRIADO e PRATO_ADICIONADO são de RECEBIDO: o painel só vê a entrada e a saída do preparo
+            assertEquals(List.of("STATUS_ALTERADO", "STATUS_ALTERADO"), names(stream, 2));
+        }
+    }
+
+    @Test
+    void reconnectReplaysMissedEvents() throws Exception {
+        String lastId;
+        try (Stream<String> lines = open(eventos.toString(), null)) {
+            Iterator<String> stream = lines.iterator();
+            criar("Reconexão", 9);
+            lastId = next(stream).id;
+        }
+
+        int id = criar("Reconexão", 10);
+        mudarStatus(id, "EM_PREPARO");
+
+        try (Stream<String> lines = open(eventos.toString(), lastId)) {
+            assertEquals(List.of("CRIADO", "STATUS_ALTERADO"), names(lines.iterator(), 2));
+        }
+    }
+
+    private Stream<String> open(String uri, String lastEventId) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(uri)).header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        HttpResponse<Stream<String>> response = client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofLines())
+                .get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        assertEquals(200, response.statusCode());
+        return response.body();
+    }
+
+    private static List<String> names(Iterator<String> stream, int count) throws Exception {
+        List<String> names = new ArrayList<>();
+        while (names.size() < count) {
+            names.add(next(stream).name);
+        }
+        return names;
+    }
+
+    // Próximo evento com nome (comentários de ping são ignorados), com prazo para não travar o teste
+    private static Event next(Iterator<String> stream) throws Exception {
+        return CompletableFuture.supplyAsync(() -> {
+            Event event = new Event();
+            while (stream.hasNext()) {
+                String line = stream.next();
+                if (line.isEmpty() && event.name != null) {
+                    return event;
+                }
+                if (line.startsWith("event:")) {
+                    event.name = line.substring(6).trim();
+                } else if (line.startsWith("id:")) {
+                    event.id = line.substring(3).trim();
+                }
+            }
+            throw new AssertionError("stream terminou antes do evento");
+        }).get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+    }
+
+    private static int criar(String nomeCliente, int mesa) {
+        return given().contentType(ContentType.JSON)
+                .body(Map.of("nomeCliente", nomeCliente, "numeroMesa", mesa, "status", "RECEBIDO"))
+                .when().post("/pedidos").then()
+                .statusCode(201)
+                .extract().path("id");
+    }
+
+    private static void mudarStatus(int id, String status) {
+        String nomeCliente = given().when().get("/pedidos/" + id).then().statusCode(200).extract().path("nomeCliente");
+        int mesa = given().when().get("/pedidos/" + id).then().statusCode(200).extract().path("numeroMesa");
+        given().contentType(ContentType.JSON)
+                .body(Map.of("nomeCliente", nomeCliente, "numeroMesa", mesa, "status", status))
+                .when().put("/pedidos/" + id).then().statusCode(200);
+    }
+
+    private static int prato() {
+        return given().contentType(ContentType.JSON)
+                .body(Map.of("nome", "Acarajé", "descricao", "Com vatapá", "tempoPreparoMinutos", 20))
+                .when().post("/pratos").then()
+                .statusCode(201)
+                .extract().path("id");
+    }
+
+    private static final class Event {
+        String name;
+        String id;
+    }
+}
@@ -0,0 +1,58 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Listagens em lotes por keyset, aqui de 3 linhas: todas as linhas, em ordem de id e sem
+ * repetir a da fronteira entre lotes, em JSON e em NDJSON.
+ */
+@QuarkusTest
+@TestProfile(ListStreamerTest.SmallChunks.class)
+class ListStreamerTest {
+
+    // Só neste perfil: com lotes pequenos o número de consultas cresce com as linhas (QueryCountTest)
+    public static class SmallChunks implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("streaming.fetch-size", "3");
+        }
+    }
+
+    @Test
+    void listsEveryRowAcrossChunks() {
+        List<Long> created = QuarkusTransaction.requiringNew().call(() -> {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                Chef chef = new Chef("Chef da listagem " + i, "Cozinha de lote", i);
+                chef.persist();
+                ids.add(chef.id);
+            }
+            return ids;
+        });
+        long total = QuarkusTransaction.requiringNew().call(() -> Chef.count());
+
+        List<Long> json = given().accept("application/json").when().get("/chefs").then()
+                .statusCode(200)
+                .extract().jsonPath().getList("id", Long.class);
+        assertEquals(total, json.size());
+        assertTrue(json.containsAll(created));
+        assertEquals(json.stream().sorted().distinct().toList(), json);
+
+        String ndjson = given().accept(ListStreamer.APPLICATION_NDJSON).when().get("/chefs").then()
+                .statusCode(200)
+                .extract().asString();
+        assertEquals(total, ndjson.lines().count());
+    }
+}
@@ -0,0 +1,102 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import io.restassured.response.ExtractableResponse;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Vários clientes fazem read-modify-write no mesmo pedido ao mesmo tempo (GET, soma 1 à mesa,
+ * PUT com If-Match), repetindo quando recebem 412. Sem o controle de versão alguns incrementos
+ * se perderiam; com ele o total final tem que bater exatamente.
+ */
+@QuarkusTest
+class OptimisticConcurrencyTest {
+
+    private static final int CLIENTS = 8;
+    private static final int INCREMENTS_PER_CLIENT = 15;
+
+    @Test
+    void parallelIncrementsAreNotLost() throws Exception {
+        long id = QuarkusTransaction.requiringNew().call(() -> {
+            Pedido pedido = new Pedido("Mesa concorrida", 1);
+            pedido.persist();
+            return pedido.id;
+        });
+        String path = "/pedidos/" + id;
+        AtomicInteger conflicts = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<?>> clients = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                clients.add(executor.submit(() -> {
+                    for (int i = 0; i < INCREMENTS_PER_CLIENT; i++) {
+                        while (!increment(path)) {
+                            conflicts.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int mesa = given().when().get(path).then().statusCode(200).extract().path("numeroMesa");
+        assertEquals(1 + CLIENTS * INCREMENTS_PER_CLIENT, mesa,
+                "incrementos perdidos (" + conflicts.get() + " conflitos detectados)");
+    }
+
+    @Test
+    void staleIfMatchIsRejected() {
+        long id = QuarkusTransaction.requiringNew().call(() -> {
+            Pedido pedido = new Pedido("Cliente", 3);
+            pedido.persist();
+            return pedido.id;
+        });
+        String path = "/pedidos/" + id;
+        String etag = given().when().get(path).then().statusCode(200).extract().header("ETag");
+
+        put(path, etag, 4).then().statusCode(200);
+        put(path, etag, 5).then().statusCode(412);
+        given().header("If-Match", etag).when().delete(path).then().statusCode(412);
+
+        int mesa = given().when().get(path).then().statusCode(200).extract().path("numeroMesa");
+        assertEquals(4, mesa);
+    }
+
+    // true quando gravou; false em 412 (outro cliente gravou entre o GET e o PUT)
+    private static boolean increment(String path) {
+        ExtractableResponse<Response> current = given().when().get(path).then().statusCode(200).extract();
+        int mesa = current.path("numeroMesa");
+        int status = put(path, current.header("ETag"), mesa + 1).statusCode();
+        if (status != 200 && status != 412) {
+            throw new AssertionError("PUT respondeu " + status);
+        }
+        return status == 200;
+    }
+
+    private static Response put(String path, String etag, int mesa) {
+        return given().contentType(ContentType.JSON)
+                .header("If-Match", etag)
+                .body(Map.of("nomeCliente", "Mesa concorrida", "numeroMesa", mesa, "status", "RECEBIDO"))
+                .when().put(path);
+    }
+}
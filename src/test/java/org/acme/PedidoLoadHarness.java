@@ -0,0 +1,201 @@
+package org.acme;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Carga HTTP contra a aplicação rodando: /pedidos com muitos clientes simultâneos.
+ *
+ * Cada cliente repete insert → update → addPrato → search sem pausa (laço fechado), então a
+ * concorrência é sempre a informada. Imprime requisições/s, p50, p99, máximo e erros por endpoint;
+ * falhas de conexão do pool (acquisition-timeout) aparecem como erro.
+ *
+ * Uso, com a aplicação em outro processo (mvn quarkus:dev ou o jar):
+ *   java -cp target/test-classes org.acme.PedidoLoadHarness [baseUrl] [clientes] [segundos]
+ * Padrão: http://localhost:8080/api/v1, 1000 clientes, 30 s (mais 10 s de aquecimento).
+ * Para comparar configurações, rode de novo variando quarkus.thread-pool.max-threads,
+ * quarkus.datasource.jdbc.max-size ou quarkus.virtual-threads.enabled.
+ */
+public class PedidoLoadHarness {
+
+    private static final String[] STEPS = {"insert", "update", "addPrato", "search"};
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final String baseUrl;
+    private final int clients;
+
+    PedidoLoadHarness(String baseUrl, int clients) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        this.clients = clients;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080/api/v1";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        PedidoLoadHarness harness = new PedidoLoadHarness(baseUrl, clients);
+        long pratoId = harness.seedPrato();
+        harness.run("pedidos", pratoId, Duration.ofSeconds(10));
+        Result result = harness.run("pedidos", pratoId, Duration.ofSeconds(seconds));
+        result.print("pedidos", clients, seconds);
+    }
+
+    private long seedPrato() throws Exception {
+        HttpResponse<String> response = client.send(json("pratos", "POST",
+                        "{\"nome\": \"Prato da carga\", \"descricao\": \"Usado pelo teste de carga\", \"tempoPreparoMinutos\": 15}"),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("POST /pratos respondeu " + response.statusCode() + ": " + response.body());
+        }
+        return id(response.body());
+    }
+
+    private Result run(String path, long pratoId, Duration duration) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        Result result = new Result();
+        List<CompletableFuture<Void>> running = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            Client state = new Client(c, result);
+            running.add(loop(state, path, pratoId, deadline));
+        }
+        CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+        result.elapsedNanos = duration.toNanos();
+        return result;
+    }
+
+    private CompletableFuture<Void> loop(Client state, String path, long pratoId, long deadline) {
+        if (System.nanoTime() >= deadline) {
+            state.merge();
+            return CompletableFuture.completedFuture(null);
+        }
+        int mesa = 1 + state.iteration++ % 30;
+        return call(state, 0, json(path, "POST", pedido("Carga " + state.index, mesa)))
+                .thenCompose(created -> {
+                    if (created == null) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    long id = id(created);
+                    return call(state, 1, json(path + "/" + id, "PUT", pedido("Carga " + state.index, mesa + 1)))
+                            .thenCompose(ignored -> call(state, 2, json(path + "/" + id + "/pratos/" + pratoId, "POST", "")))
+                            .thenCompose(ignored -> call(state, 3, HttpRequest.newBuilder(uri(path + "/search?q=carga&size=10&count=none")).GET().build()));
+                })
+                .thenCompose(ignored -> loop(state, path, pratoId, deadline));
+    }
+
+    // Corpo da resposta em 2xx; null (e um erro contado) nos demais casos
+    private CompletableFuture<String> call(Client state, int step, HttpRequest request) {
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, failure) -> {
+                    state.record(step, System.nanoTime() - start);
+                    if (failure != null || response.statusCode() / 100 != 2) {
+                        state.result.errors[step].incrementAndGet();
+                        return null;
+                    }
+                    return response.body();
+                });
+    }
+
+    private HttpRequest json(String path, String method, String body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .method(method, body.isEmpty() ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private static String pedido(String nomeCliente, int mesa) {
+        return "{\"nomeCliente\": \"" + nomeCliente + "\", \"numeroMesa\": " + mesa + ", \"status\": \"RECEBIDO\"}";
+    }
+
+    private static long id(String body) {
+        Matcher matcher = ID.matcher(body);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Resposta sem id: " + body);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static final class Client {
+        final int index;
+        final Result result;
+        final long[][] latencies = new long[STEPS.length][1024];
+        final int[] counts = new int[STEPS.length];
+        int iteration;
+
+        Client(int index, Result result) {
+            this.index = index;
+            this.result = result;
+        }
+
+        // Um cliente tem no máximo uma requisição em andamento: sem disputa entre threads
+        void record(int step, long nanos) {
+            if (counts[step] == latencies[step].length) {
+                latencies[step] = Arrays.copyOf(latencies[step], counts[step] * 2);
+            }
+            latencies[step][counts[step]++] = nanos;
+        }
+
+        void merge() {
+            synchronized (result) {
+                for (int step = 0; step < STEPS.length; step++) {
+                    result.latencies.get(step).add(Arrays.copyOf(latencies[step], counts[step]));
+                }
+            }
+        }
+    }
+
+    private static final class Result {
+        final List<List<long[]>> latencies = new ArrayList<>();
+        final AtomicLong[] errors = new AtomicLong[STEPS.length];
+        long elapsedNanos;
+
+        Result() {
+            for (int step = 0; step < STEPS.length; step++) {
+                latencies.add(new ArrayList<>());
+                errors[step] = new AtomicLong();
+            }
+        }
+
+        void print(String path, int clients, int seconds) {
+            System.out.printf(Locale.ROOT, "%n/%s - %d clientes, %d s%n", path, clients, seconds);
+            System.out.printf(Locale.ROOT, "%-10s %10s %10s %10s %10s %8s%n", "endpoint", "req/s", "p50 ms", "p99 ms", "max ms", "erros");
+            long total = 0;
+            for (int step = 0; step < STEPS.length; step++) {
+                long[] all = latencies.get(step).stream().flatMapToLong(Arrays::stream).sorted().toArray();
+                total += all.length;
+                System.out.printf(Locale.ROOT, "%-10s %10.0f %10.2f %10.2f %10.2f %8d%n", STEPS[step],
+                        all.length / (elapsedNanos / 1e9), percentile(all, 0.50), percentile(all, 0.99),
+                        all.length == 0 ? 0 : all[all.length - 1] / 1e6, errors[step].get());
+            }
+            System.out.printf(Locale.ROOT, "%-10s %10.0f%n", "total", total / (elapsedNanos / 1e9));
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * POST/DELETE /pedidos/{id}/pratos: o lote inteiro numa transação, com o mesmo número de
+ * statements para 1 ou 20 pratos, e nada aplicado quando um item falha.
+ */
+@QuarkusTest
+class PedidoPratosBatchTest {
+
+    // Pedido lido com bloqueio, INSERT do lote, a coleção e o UPDATE da versão; folga para a conferência dos pratos
+    private static final long MAX_STATEMENTS = 5;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Test
+    void addsManyPratosWithConstantStatements() {
+        long pedido = pedido();
+        List<Long> pratos = pratos(20);
+        String path = "/pedidos/" + pedido + "/pratos";
+
+        given().contentType(ContentType.JSON).body(pratos.subList(0, 1))
+                .when().post(path).then()
+                .statusCode(200)
+                .body("pratos", hasSize(1));
+
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        given().contentType(ContentType.JSON).body(pratos)
+                .when().post(path).then()
+                .statusCode(200)
+                .header("ETag", "\"2\"")
+                .body("pratos", hasSize(20))
+                .body("pratos[0].id", is(pratos.get(0).intValue()));
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= MAX_STATEMENTS, "o lote fez " + statements + " statements (máximo " + MAX_STATEMENTS + ")");
+
+        // Repetir o lote não duplica nada nem gera versão nova
+        given().contentType(ContentType.JSON).body(List.of(pratos.get(0), pratos.get(0)))
+                .when().post(path).then()
+                .statusCode(200)
+                .header("ETag", "\"2\"")
+                .body("pratos", hasSize(20));
+        given().contentType(ContentType.JSON).header("If-Match", "\"1\"").body(pratos.subList(0, 1))
+                .when().post(path).then()
+                .statusCode(412);
+    }
+
+    @Test
+    void unknownPratoRejectsTheWholeBatch() {
+        long pedido = pedido();
+        List<Long> pratos = new ArrayList<>(pratos(2));
+        pratos.add(999_999L);
+        String path = "/pedidos/" + pedido + "/pratos";
+
+        given().contentType(ContentType.JSON).body(pratos)
+                .when().post(path).then()
+                .statusCode(404);
+        given().contentType(ContentType.JSON).body(List.of())
+                .when().post(path).then()
+                .statusCode(400);
+        given().contentType(ContentType.JSON).body(pratos.subList(0, 1))
+                .when().post("/pedidos/999999/pratos").then()
+                .statusCode(404);
+
+        given().when().get("/pedidos/" + pedido).then()
+                .statusCode(200)
+                .header("ETag", "\"0\"");
+    }
+
+    @Test
+    void removesPratosAtomically() {
+        long pedido = pedido();
+        List<Long> pratos = pratos(3);
+        String path = "/pedidos/" + pedido + "/pratos";
+        given().contentType(ContentType.JSON).body(pratos.subList(0, 2))
+                .when().post(path).then().statusCode(200);
+
+        // O terceiro não está no pedido: o primeiro também não pode sair
+        given().queryParam("pratoId", pratos.get(0), pratos.get(2))
+                .when().delete(path).then()
+                .statusCode(404);
+        assertEquals(2, pratosNoPedido(pedido));
+
+        given().queryParam("pratoId", pratos.get(0))
+                .when().delete(path).then()
+                .statusCode(200)
+                .body("pratos.id", contains(pratos.get(1).intValue()));
+        given().when().delete(path).then().statusCode(400);
+    }
+
+    @Test
+    void staleIfMatchIsRejected() {
+        long pedido = pedido();
+        List<Long> pratos = pratos(2);
+        String path = "/pedidos/" + pedido + "/pratos";
+
+        given().contentType(ContentType.JSON).header("If-Match", "\"0\"").body(pratos.subList(0, 1))
+                .when().post(path).then()
+                .statusCode(200)
+                .header("ETag", "\"1\"");
+        given().contentType(ContentType.JSON).header("If-Match", "\"0\"").body(pratos.subList(1, 2))
+                .when().post(path).then()
+                .statusCode(412)
+                .header("ETag", "\"1\"");
+        given().header("If-Match", "\"0\"").queryParam("pratoId", pratos.get(0))
+                .when().delete(path).then()
+                .statusCode(412);
+
+        assertEquals(1, pratosNoPedido(pedido));
+    }
+
+    private static long pedido() {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            Pedido pedido = new Pedido("Lote", 12);
+            pedido.persist();
+            return pedido.id;
+        });
+    }
+
+    private static int pratosNoPedido(long id) {
+        return QuarkusTransaction.requiringNew().call(() -> Pedido.<Pedido>findById(id).pratos.size());
+    }
+
+    private static List<Long> pratos(int count) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            List<Long> ids = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Prato prato = new Prato("Prato do lote " + i, "Para o lote", 20 + i, null);
+                prato.persist();
+                ids.add(prato.id);
+            }
+            return ids;
+        });
+    }
+}
@@ -0,0 +1,127 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * PATCH /pedidos/{id}/status: uma instrução por troca, fluxo validado e, entre trocas
+ * simultâneas a partir do mesmo status, só uma vence.
+ */
+@QuarkusTest
+class PedidoStatusTest {
+
+    private static final int CLIENTS = 8;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Test
+    void followsTheKitchenFlowWithOneStatement() {
+        String path = "/pedidos/" + pedido() + "/status";
+
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        patch(path, Map.of("de", "RECEBIDO", "status", "EM_PREPARO")).then().statusCode(204);
+        assertEquals(1, statistics.getPrepareStatementCount(), "a troca deve ser um único UPDATE");
+
+        patch(path, Map.of("status", "PRONTO_PARA_ENTREGA")).then().statusCode(204);
+        patch(path, Map.of("status", "EM_PREPARO")).then().statusCode(409);
+        patch(path, Map.of("de", "PRONTO_PARA_ENTREGA", "status", "CANCELADO")).then().statusCode(422);
+        patch(path, Map.of("status", "RECEBIDO")).then().statusCode(422);
+        patch(path, Map.of("status", "FINALIZADO")).then().statusCode(204);
+
+        given().when().get(path.replace("/status", "")).then().statusCode(200).body("status", is("FINALIZADO"));
+        patch("/pedidos/999999/status", Map.of("status", "CANCELADO")).then().statusCode(404);
+    }
+
+    @Test
+    void ifMatchGuardsTheVersion() {
+        String pedido = "/pedidos/" + pedido();
+        String etag = given().when().get(pedido).then().statusCode(200).extract().header("ETag");
+
+        String updated = given().contentType(ContentType.JSON).header("If-Match", etag)
+                .body(Map.of("status", "EM_PREPARO"))
+                .when().patch(pedido + "/status").then()
+                .statusCode(204)
+                .extract().header("ETag");
+        given().when().get(pedido).then().statusCode(200).header("ETag", updated);
+
+        given().contentType(ContentType.JSON).header("If-Match", etag)
+                .body(Map.of("status", "CANCELADO"))
+                .when().patch(pedido + "/status").then()
+                .statusCode(412)
+                .header("ETag", updated);
+    }
+
+    @Test
+    void putFollowsTheSameFlow() {
+        String pedido = "/pedidos/" + pedido();
+
+        put(pedido, "FINALIZADO").then().statusCode(422);
+        put(pedido, "EM_PREPARO").then().statusCode(200).body("status", is("EM_PREPARO"));
+        put(pedido, "EM_PREPARO").then().statusCode(200);
+        put(pedido, "RECEBIDO").then().statusCode(422);
+
+        given().when().get(pedido).then().statusCode(200).body("status", is("EM_PREPARO"));
+    }
+
+    @Test
+    void concurrentTransitionsHaveASingleWinner() throws Exception {
+        String path = "/pedidos/" + pedido() + "/status";
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                String target = c % 2 == 0 ? "EM_PREPARO" : "CANCELADO";
+                results.add(executor.submit(() -> patch(path, Map.of("de", "RECEBIDO", "status", target)).statusCode()));
+            }
+            int won = 0;
+            for (Future<Integer> result : results) {
+                int status = result.get();
+                if (status == 204) {
+                    won++;
+                } else {
+                    assertEquals(409, status);
+                }
+            }
+            assertEquals(1, won);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Response put(String path, String status) {
+        return given().contentType(ContentType.JSON)
+                .body(Map.of("nomeCliente", "Status", "numeroMesa", 6, "status", status))
+                .when().put(path);
+    }
+
+    private static Response patch(String path, Map<String, String> body) {
+        return given().contentType(ContentType.JSON).body(body).when().patch(path);
+    }
+
+    private static long pedido() {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            Pedido pedido = new Pedido("Status", 6);
+            pedido.persist();
+            return pedido.id;
+        });
+    }
+}
@@ -0,0 +1,145 @@
+package org.acme;
+
+import jakarta.ws.rs.core.UriInfo;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de montar as respostas de leitura a partir de entidades gerenciadas ou de projeções.
+ *
+ * - bebidasEntities / pedidosSearchEntities: como era (carrega as entidades e converte com from())
+ * - bebidasProjection / pedidosSearchProjection: "select new ...Representation(...)", como agora
+ *
+ * Equivalentes a GET /bebidas e a uma página de GET /pedidos/search?nomeCliente=...,
+ * com Hibernate puro sobre H2 (sem Quarkus nem HTTP). Cada operação abre e fecha
+ * a sessão, como um request. Rodar pelo main() para incluir o GCProfiler (bytes
+ * alocados por operação): a diferença vem das entidades, dos snapshots para dirty
+ * checking e do contexto de persistência que a projeção não cria.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProjectionBenchmark {
+
+    private static final String PEDIDOS_FILTER = "lower(nomeCliente) like :nomeCliente order by nomeCliente, id";
+
+    @Param({"100", "1000"})
+    public int rows;
+
+    // Tamanho da página da busca de pedidos
+    @Param({"20"})
+    public int size;
+
+    private SessionFactory sessionFactory;
+    private UriInfo uriInfo;
+
+    @Setup
+    public void setup() {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(Bebida.class)
+                .addAnnotatedClass(Pedido.class)
+                .addAnnotatedClass(Prato.class)
+                .addAnnotatedClass(Chef.class)
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:projection;DB_CLOSE_DELAY=-1")
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                .setProperty("hibernate.jdbc.batch_size", "50")
+                .buildSessionFactory();
+
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < rows; i++) {
+                session.persist(new Bebida("Bebida " + i, BigDecimal.valueOf(5 + i % 20), 350, i % 3 == 0));
+                session.persist(new Pedido((i % 2 == 0 ? "Maria " : "João ") + i, 1 + i % 30));
+            }
+        });
+
+        URI base = URI.create("http://localhost:8080/api/v1/");
+        uriInfo = (UriInfo) Proxy.newProxyInstance(UriInfo.class.getClassLoader(), new Class<?>[]{UriInfo.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getBaseUri")) {
+                        return base;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public List<BebidaRepresentation> bebidasEntities() {
+        try (Session session = sessionFactory.openSession()) {
+            return session.createQuery("from Bebida", Bebida.class).list().stream()
+                    .map(BebidaRepresentation::from)
+                    .toList();
+        }
+    }
+
+    @Benchmark
+    public List<BebidaRepresentation> bebidasProjection() {
+        try (Session session = sessionFactory.openSession()) {
+            return session.createQuery("select new org.acme.BebidaRepresentation(id, nome, preco, volumeMl, alcoolica) from Bebida",
+                    BebidaRepresentation.class).list();
+        }
+    }
+
+    @Benchmark
+    public List<PedidoRepresentation> pedidosSearchEntities() {
+        try (Session session = sessionFactory.openSession()) {
+            return session.createQuery("from Pedido where " + PEDIDOS_FILTER, Pedido.class)
+                    .setParameter("nomeCliente", "%maria%")
+                    .setMaxResults(size + 1)
+                    .list().stream()
+                    .map(p -> PedidoRepresentation.from(p, uriInfo))
+                    .toList();
+        }
+    }
+
+    @Benchmark
+    public List<PedidoRepresentation> pedidosSearchProjection() {
+        try (Session session = sessionFactory.openSession()) {
+            List<PedidoRepresentation> reps = session.createQuery(
+                            "select new org.acme.PedidoRepresentation(id, nomeCliente, numeroMesa, status) from Pedido where " + PEDIDOS_FILTER,
+                            PedidoRepresentation.class)
+                    .setParameter("nomeCliente", "%maria%")
+                    .setMaxResults(size + 1)
+                    .list();
+            reps.forEach(rep -> rep.withLinks(uriInfo));
+            return reps;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProjectionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
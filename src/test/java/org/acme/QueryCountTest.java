@@ -0,0 +1,93 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Conta os statements SQL de cada endpoint de listagem e falha se o número crescer
+ * com a quantidade de linhas (N+1) ou passar de um limite fixo.
+ */
+@QuarkusTest
+class QueryCountTest {
+
+    // count + página (busca) ou a própria listagem; folga de um statement
+    private static final long MAX_STATEMENTS = 3;
+
+    private static final List<String> ENDPOINTS = List.of(
+            "/pratos", "/pratos/search?size=100",
+            "/chefs", "/chefs/search?size=100",
+            "/bebidas", "/bebidas/search?size=100",
+            "/pedidos", "/pedidos/search?size=100"
+    );
+
+    // Prefixo das linhas criadas aqui, para removê-las sem tocar nas dos outros testes
+    private static final String SEED = "Contagem ";
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @AfterEach
+    void cleanUp() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            // Pela entidade, para sair também de pedido_prato
+            Pedido.<Pedido>list("nomeCliente like ?1", SEED + "%").forEach(Pedido::delete);
+            Prato.delete("nome like ?1", SEED + "%");
+            Chef.delete("nome like ?1", SEED + "%");
+            Bebida.delete("nome like ?1", SEED + "%");
+        });
+    }
+
+    @Test
+    void listEndpointsIssueConstantNumberOfStatements() {
+        seed(5);
+        Map<String, Long> few = measure();
+        seed(30);
+        Map<String, Long> many = measure();
+
+        for (String endpoint : ENDPOINTS) {
+            assertEquals(few.get(endpoint), many.get(endpoint), endpoint + " faz mais consultas com mais linhas");
+            assertTrue(many.get(endpoint) <= MAX_STATEMENTS,
+                    endpoint + " fez " + many.get(endpoint) + " statements (máximo " + MAX_STATEMENTS + ")");
+        }
+    }
+
+    private Map<String, Long> measure() {
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String endpoint : ENDPOINTS) {
+            statistics.clear();
+            given().when().get(endpoint).then().statusCode(200);
+            counts.put(endpoint, statistics.getPrepareStatementCount());
+        }
+        return counts;
+    }
+
+    private void seed(int rows) {
+        QuarkusTransaction.requiringNew().run(() -> {
+            for (int i = 0; i < rows; i++) {
+                Chef chef = new Chef(SEED + "chef " + i, "Cozinha brasileira", i);
+                chef.persist();
+                Prato prato = new Prato(SEED + "prato " + i, "Descrição do prato " + i, 30, chef);
+                prato.persist();
+                new Bebida(SEED + "bebida " + i, new BigDecimal("9.90"), 350, false).persist();
+                Pedido pedido = new Pedido(SEED + "cliente " + i, i + 1);
+                pedido.pratos.add(prato);
+                pedido.persist();
+            }
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.path.json.JsonPath;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Paginação por cursor ordenada por um campo que não é o id: os links next e prev
+ * percorrem as páginas nos dois sentidos sem pular nem repetir linhas.
+ */
+@QuarkusTest
+class SearchCursorTest {
+
+    @Test
+    void pagesBySortedFieldBothWays() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            // Inseridos fora da ordem do nome, para a ordem do id não coincidir com a pedida
+            for (String letra : List.of("E", "B", "D", "A", "C")) {
+                new Chef("Jurubeba " + letra, "Cozinha do cerrado", 3).persist();
+            }
+        });
+
+        JsonPath first = page("/chefs/search?q=jurubeba&sort=nome&size=2");
+        assertEquals(List.of("Jurubeba A", "Jurubeba B"), first.getList("chefs.nome"));
+        assertNull(first.getString("_links.prev"));
+
+        JsonPath second = page(first.getString("_links.next"));
+        assertEquals(List.of("Jurubeba C", "Jurubeba D"), second.getList("chefs.nome"));
+
+        JsonPath third = page(second.getString("_links.next"));
+        assertEquals(List.of("Jurubeba E"), third.getList("chefs.nome"));
+        assertNull(third.getString("_links.next"));
+
+        JsonPath back = page(third.getString("_links.prev"));
+        assertEquals(List.of("Jurubeba C", "Jurubeba D"), back.getList("chefs.nome"));
+        assertEquals(List.of("Jurubeba A", "Jurubeba B"), page(back.getString("_links.prev")).getList("chefs.nome"));
+    }
+
+    private static JsonPath page(String url) {
+        return given().when().get(url).then().statusCode(200).extract().jsonPath();
+    }
+}
@@ -0,0 +1,134 @@
+package org.acme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tempo para atender uma onda de N conexões simultâneas, com o modelo de thread dos resources.
+ *
+ * - worker: pool fixo de 200 threads (o máximo padrão do worker pool do Quarkus)
+ * - virtual: uma thread virtual por requisição (@RunOnVirtualThread)
+ *
+ * Cada requisição pega uma das 20 conexões H2 (quarkus.datasource.jdbc.max-size), lê um pedido,
+ * devolve a conexão e então escreve a resposta para um cliente lento (clientMillis de espera, o
+ * tempo que a escrita bloqueante segura a thread). Com poucas threads a espera dos clientes
+ * enfileira o resto da onda; com threads virtuais ela se sobrepõe e o limite volta a ser o pool.
+ * Requisições/s = connections / tempo médio por onda.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+
+    private static final int WORKER_THREADS = 200;
+    private static final int POOL_SIZE = 20;
+    private static final int ROWS = 1000;
+
+    @Param({"worker", "virtual"})
+    public String mode;
+
+    @Param({"1000", "5000"})
+    public int connections;
+
+    @Param({"5"})
+    public int clientMillis;
+
+    private ExecutorService executor;
+    private BlockingQueue<Connection> pool;
+
+    @Setup
+    public void setup() throws SQLException {
+        pool = new ArrayBlockingQueue<>(POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            pool.add(DriverManager.getConnection("jdbc:h2:mem:virtual;DB_CLOSE_DELAY=-1"));
+        }
+        try (Statement statement = pool.peek().createStatement()) {
+            statement.execute("create table if not exists pedido (id bigint primary key, nomeCliente varchar(100), numeroMesa int)");
+            statement.execute("delete from pedido");
+            for (int i = 0; i < ROWS; i++) {
+                statement.execute("insert into pedido values (" + i + ", 'Cliente " + i + "', " + (1 + i % 30) + ")");
+            }
+        }
+        executor = "virtual".equals(mode)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(WORKER_THREADS);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        executor.shutdownNow();
+        for (Connection connection : pool) {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public void wave() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            long id = i % ROWS;
+            executor.execute(() -> {
+                try {
+                    request(id);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    private String request(long id) throws SQLException, InterruptedException {
+        String nomeCliente;
+        // take() espera com LockSupport.park: não prende a portadora
+        Connection connection = pool.take();
+        try (PreparedStatement query = connection.prepareStatement("select nomeCliente from pedido where id = ?")) {
+            query.setLong(1, id);
+            try (ResultSet row = query.executeQuery()) {
+                row.next();
+                nomeCliente = row.getString(1);
+            }
+        } finally {
+            pool.add(connection);
+        }
+        Thread.sleep(clientMillis);
+        return nomeCliente;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(VirtualThreadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,71 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Com quarkus.virtual-threads.enabled=true, leituras, escritas transacionais e buscas
+ * (inclusive count=estimate, que passa pelo cache de contagens) não podem prender a portadora:
+ * o PinnedThreadMonitor, com threshold zero neste perfil, não pode contar nenhum evento.
+ */
+@QuarkusTest
+@TestProfile(VirtualThreadsTest.Enabled.class)
+class VirtualThreadsTest {
+
+    public static class Enabled implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("quarkus.virtual-threads.enabled", "true",
+                    "virtual-threads.pinning.threshold", "0ms");
+        }
+    }
+
+    // O RecordingStream entrega os eventos do JFR a cada segundo
+    private static final long JFR_FLUSH_MILLIS = 1500;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Test
+    void endpointsRunWithoutPinning() throws InterruptedException {
+        long pratoId = QuarkusTransaction.requiringNew().call(() -> {
+            Prato prato = new Prato("Bobó", "De camarão", 40, null);
+            prato.persist();
+            return prato.id;
+        });
+
+        int id = given().contentType(ContentType.JSON)
+                .body(Map.of("nomeCliente", "Virtual", "numeroMesa", 2, "status", "RECEBIDO"))
+                .when().post("/pedidos").then()
+                .statusCode(201)
+                .extract().path("id");
+        given().when().post("/pedidos/" + id + "/pratos/" + pratoId).then().statusCode(200);
+        given().contentType(ContentType.JSON)
+                .body(Map.of("nomeCliente", "Virtual", "numeroMesa", 3, "status", "EM_PREPARO"))
+                .when().put("/pedidos/" + id).then()
+                .statusCode(200)
+                .body("numeroMesa", is(3));
+
+        given().when().get("/pedidos/" + id).then().statusCode(200);
+        given().when().get("/pedidos").then().statusCode(200);
+        given().when().get("/pedidos/search?q=virtual&count=estimate").then().statusCode(200);
+        given().when().get("/pratos/" + pratoId).then().statusCode(200);
+        given().when().get("/chefs/search?count=estimate").then().statusCode(200);
+        given().when().get("/bebidas").then().statusCode(200);
+
+        Thread.sleep(JFR_FLUSH_MILLIS);
+        assertEquals(0, registry.counter("virtual_threads.pinned").count());
+    }
+}
@@ -0,0 +1,101 @@
+package org.acme.idempotency;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.acme.Pedido;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Chaves gravadas direto na tabela, como faria outra réplica: nem o near-cache nem o Bloom filter
+ * desta instância as conhecem, e mesmo assim o POST não executa de novo.
+ */
+@QuarkusTest
+class IdempotencyClaimTest {
+
+    private static final Map<String, Object> PEDIDO = Map.of("nomeCliente", "Outra réplica", "numeroMesa", 4, "status", "RECEBIDO");
+
+    @Test
+    void keyStoredByAnotherReplicaIsReplayed() {
+        String key = UUID.randomUUID().toString();
+        insert(key, true, LocalDateTime.now().plusHours(24));
+        long before = pedidos();
+
+        post(key).then()
+                .statusCode(201)
+                .header("X-Idempotent-Replayed", "true")
+                .body("id", is(42));
+        assertEquals(before, pedidos());
+    }
+
+    @Test
+    void keyReservedByAnotherReplicaIsInProgress() {
+        String key = UUID.randomUUID().toString();
+        insert(key, false, LocalDateTime.now().plusMinutes(1));
+        long before = pedidos();
+
+        post(key).then()
+                .statusCode(409)
+                .header("Retry-After", "1");
+        assertEquals(before, pedidos());
+    }
+
+    @Test
+    void abandonedReservationIsTakenOver() {
+        String key = UUID.randomUUID().toString();
+        insert(key, false, LocalDateTime.now().minusSeconds(1));
+
+        int id = post(key).then().statusCode(201).extract().path("id");
+        post(key).then()
+                .statusCode(201)
+                .header("X-Idempotent-Replayed", "true")
+                .body("id", is(id));
+    }
+
+    @Test
+    void failedRequestReleasesTheKey() {
+        String key = UUID.randomUUID().toString();
+        given().contentType(ContentType.JSON).header("Idempotency-Key", key)
+                .body(Map.of("nomeCliente", "X", "numeroMesa", 0, "status", "RECEBIDO"))
+                .when().post("/pedidos").then()
+                .statusCode(400);
+
+        post(key).then().statusCode(201).header("X-Idempotent-Replayed", nullValue());
+    }
+
+    private static Response post(String key) {
+        return given().contentType(ContentType.JSON).header("Idempotency-Key", key).body(PEDIDO)
+                .when().post("/pedidos");
+    }
+
+    private static void insert(String key, boolean completed, LocalDateTime expiresAt) {
+        QuarkusTransaction.requiringNew().run(() -> {
+            IdempotencyKey row = new IdempotencyKey();
+            row.idempotencyKey = key;
+            row.completed = completed;
+            if (completed) {
+                row.statusCode = 201;
+                row.responseBody = "{\"id\":42}".getBytes(StandardCharsets.UTF_8);
+                row.contentType = "application/json";
+            }
+            row.createdAt = LocalDateTime.now();
+            row.expiresAt = expiresAt;
+            row.persist();
+        });
+    }
+
+    private static long pedidos() {
+        return QuarkusTransaction.requiringNew().call(() -> Pedido.count());
+    }
+}
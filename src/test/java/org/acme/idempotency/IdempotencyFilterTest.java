@@ -0,0 +1,27 @@
+package org.acme.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Negociação do replay comprimido: os bytes GZIP gravados só vão como estão quando o cliente aceita gzip
+ */
+class IdempotencyFilterTest {
+
+    @Test
+    void acceptsGzipHonoursQValues() {
+        assertTrue(IdempotencyFilter.acceptsGzip("gzip"));
+        assertTrue(IdempotencyFilter.acceptsGzip("deflate, GZIP;Q=0.5"));
+        assertTrue(IdempotencyFilter.acceptsGzip("br, *"));
+
+        assertFalse(IdempotencyFilter.acceptsGzip(null));
+        assertFalse(IdempotencyFilter.acceptsGzip("deflate, br"));
+        assertFalse(IdempotencyFilter.acceptsGzip("gzip;q=0"));
+        assertFalse(IdempotencyFilter.acceptsGzip("gzip; q=0.0, deflate"));
+        assertFalse(IdempotencyFilter.acceptsGzip("*;q=0"));
+        // gzip explícito prevalece sobre *
+        assertFalse(IdempotencyFilter.acceptsGzip("identity, gzip;q=0, *"));
+    }
+}
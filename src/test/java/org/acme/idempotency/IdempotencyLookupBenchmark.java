@@ -0,0 +1,97 @@
+package org.acme.idempotency;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo da checagem de idempotência de um POST com chave nova (o caso comum),
+ * com e sem o Bloom filter, usando o mesmo H2 em memória da aplicação.
+ *
+ * - database: o que o IdempotencyFilter fazia antes (SELECT por chave a cada POST)
+ * - bloomFilter: o caminho atual, que só vai ao banco em falso positivo
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IdempotencyLookupBenchmark {
+
+    private static final int EXISTING_KEYS = 100_000;
+
+    private Connection connection;
+    private PreparedStatement select;
+    private BloomFilter bloom;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1");
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("create table IdempotencyKey (id bigint primary key, idempotencyKey varchar(255) unique not null, "
+                    + "statusCode int not null, responseBody text not null)");
+        }
+        bloom = new BloomFilter(EXISTING_KEYS * 2L, 0.01);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into IdempotencyKey (id, idempotencyKey, statusCode, responseBody) values (?, ?, 201, '{}')")) {
+            for (int i = 0; i < EXISTING_KEYS; i++) {
+                String key = UUID.randomUUID().toString();
+                insert.setLong(1, i);
+                insert.setString(2, key);
+                insert.addBatch();
+                bloom.put(key);
+            }
+            insert.executeBatch();
+        }
+        select = connection.prepareStatement("select statusCode, responseBody from IdempotencyKey where idempotencyKey = ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public boolean database() throws SQLException {
+        return lookup(UUID.randomUUID().toString());
+    }
+
+    @Benchmark
+    public boolean bloomFilter() throws SQLException {
+        String key = UUID.randomUUID().toString();
+        return bloom.mightContain(key) && lookup(key);
+    }
+
+    private boolean lookup(String key) throws SQLException {
+        select.setString(1, key);
+        try (ResultSet rs = select.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(IdempotencyLookupBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,133 @@
+package org.acme.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Custo de produzir o corpo de um replay idempotente.
+ *
+ * - jacksonRoundTrip: como era (String JSON -> Map genérico -> JSON de novo)
+ * - rawBytes / gzipPassThrough / gunzipStream: corpo gravado em bytes, como agora
+ *
+ * Rodar pelo main() para incluir o GCProfiler (bytes alocados por replay).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IdempotencyReplayBenchmark {
+
+    // Quantidade de pratos no pedido, para variar o tamanho do corpo
+    @Param({"1", "50"})
+    public int pratos;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private String storedJson;
+    private IdempotencyKey plain;
+    private IdempotencyKey compressed;
+
+    @Setup
+    public void setup() throws IOException {
+        Map<String, Object> pedido = new LinkedHashMap<>();
+        pedido.put("id", 42);
+        pedido.put("nomeCliente", "Maria da Silva");
+        pedido.put("numeroMesa", 7);
+        pedido.put("status", "RECEBIDO");
+        List<Map<String, Object>> itens = new ArrayList<>();
+        for (int i = 0; i < pratos; i++) {
+            itens.add(Map.of("id", i, "nome", "Feijoada Completa " + i, "self", "http://localhost:8080/api/v1/pratos/" + i));
+        }
+        pedido.put("pratos", itens);
+        pedido.put("_links", Map.of("self", "http://localhost:8080/api/v1/pedidos/42", "all", "http://localhost:8080/api/v1/pedidos"));
+
+        byte[] body = objectMapper.writeValueAsBytes(pedido);
+        storedJson = new String(body, StandardCharsets.UTF_8);
+
+        plain = new IdempotencyKey();
+        plain.responseBody = body;
+
+        ByteArrayOutputStream gz = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gz)) {
+            out.write(body);
+        }
+        compressed = new IdempotencyKey();
+        compressed.compressed = true;
+        compressed.responseBody = gz.toByteArray();
+    }
+
+    @Benchmark
+    public void jacksonRoundTrip(Blackhole bh) throws IOException {
+        Object tree = objectMapper.readValue(storedJson, Object.class);
+        objectMapper.writeValue(new BlackholeOutputStream(bh), tree);
+    }
+
+    @Benchmark
+    public void rawBytes(Blackhole bh) throws IOException {
+        plain.writeBody(new BlackholeOutputStream(bh));
+    }
+
+    @Benchmark
+    public void gzipPassThrough(Blackhole bh) {
+        bh.consume(compressed.responseBody);
+    }
+
+    @Benchmark
+    public void gunzipStream(Blackhole bh) throws IOException {
+        compressed.writeBody(new BlackholeOutputStream(bh));
+    }
+
+    // Descarta os bytes como um socket faria, sem acumular em memória
+    private static final class BlackholeOutputStream extends OutputStream {
+        private final Blackhole bh;
+
+        BlackholeOutputStream(Blackhole bh) {
+            this.bh = bh;
+        }
+
+        @Override
+        public void write(int b) {
+            bh.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bh.consume(b);
+            bh.consume(len);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(IdempotencyReplayBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
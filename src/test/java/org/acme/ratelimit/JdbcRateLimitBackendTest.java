@@ -0,0 +1,62 @@
+package org.acme.ratelimit;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Backend JDBC: lotes fora de ordem de chave, limite por janela e quais falhas justificam repetir o lote.
+ */
+@QuarkusTest
+class JdbcRateLimitBackendTest {
+
+    @Inject
+    @Named("jdbc")
+    RateLimitBackend backend;
+
+    @Test
+    void grantsUpToTheLimitPerWindow() {
+        List<RateLimitBackend.LeaseGrant> grants = backend.acquire(List.of(
+                new RateLimitBackend.LeaseRequest("teste:b", 1, 6, 10),
+                new RateLimitBackend.LeaseRequest("teste:a", 1, 4, 10)));
+        assertEquals(new RateLimitBackend.LeaseGrant(6, 4), grants.get(0));
+        assertEquals(new RateLimitBackend.LeaseGrant(4, 6), grants.get(1));
+
+        grants = backend.acquire(List.of(
+                new RateLimitBackend.LeaseRequest("teste:a", 1, 10, 10),
+                new RateLimitBackend.LeaseRequest("teste:b", 2, 3, 10)));
+        assertEquals(new RateLimitBackend.LeaseGrant(6, 0), grants.get(0));
+        assertEquals(new RateLimitBackend.LeaseGrant(3, 7), grants.get(1));
+    }
+
+    @Test
+    void onlyDuplicateRowsAreRetried() {
+        QuarkusTransaction.requiringNew().run(() -> lease("teste:duplicada").persist());
+
+        PersistenceException duplicate = assertThrows(PersistenceException.class,
+                () -> QuarkusTransaction.requiringNew().run(() -> {
+                    lease("teste:duplicada").persist();
+                    RateLimitLease.flush();
+                }));
+        assertTrue(JdbcRateLimitBackend.isDuplicateKey(duplicate));
+
+        assertFalse(JdbcRateLimitBackend.isDuplicateKey(new PersistenceException("conexão perdida")));
+    }
+
+    private static RateLimitLease lease(String key) {
+        RateLimitLease lease = new RateLimitLease();
+        lease.leaseKey = key;
+        lease.windowIndex = 1;
+        return lease;
+    }
+}
@@ -0,0 +1,115 @@
+package org.acme.ratelimit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Simula várias réplicas compartilhando o mesmo backend em processo
+ */
+class LeasedRateLimitStateTest {
+
+    private static final int LIMIT = 100;
+    private static final long ONE_HOUR = 3_600_000L;
+
+    private final List<RateLimitLeaseSyncer> syncers = new ArrayList<>();
+
+    @AfterEach
+    void closeSyncers() {
+        syncers.forEach(RateLimitLeaseSyncer::close);
+    }
+
+    @Test
+    void globalLimitHoldsAcrossReplicas() throws InterruptedException {
+        InMemoryRateLimitBackend backend = new InMemoryRateLimitBackend();
+        int replicas = 4;
+        List<LeasedRateLimitState> states = new ArrayList<>();
+        for (int i = 0; i < replicas; i++) {
+            RateLimitLeaseSyncer syncer = new RateLimitLeaseSyncer(backend, 5);
+            syncers.add(syncer);
+            states.add(new LeasedRateLimitState("bebidas:203.0.113.7", LIMIT, 10, ONE_HOUR, syncer));
+        }
+
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 8; t++) {
+            LeasedRateLimitState state = states.get(t % replicas);
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 200; i++) {
+                    if (state.tryAcquire(RateLimitClock.nowMillis()) >= 0) {
+                        allowed.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue(allowed.get() <= LIMIT, "Permitidas " + allowed.get() + " acima do limite global");
+    }
+
+    @Test
+    void exhaustedReplicaStopsCallingBackend() {
+        AtomicInteger calls = new AtomicInteger();
+        RateLimitBackend counting = requests -> {
+            calls.incrementAndGet();
+            return List.of(new RateLimitBackend.LeaseGrant(0, 0));
+        };
+        // Intervalo longo: as renovações só saem no flush() explícito
+        RateLimitLeaseSyncer syncer = new RateLimitLeaseSyncer(counting, ONE_HOUR);
+        syncers.add(syncer);
+        LeasedRateLimitState state = new LeasedRateLimitState("bebidas:203.0.113.7", LIMIT, 10, ONE_HOUR, syncer);
+
+        // Antes da primeira concessão só passa a cota local, e sem ir ao backend
+        for (int i = 0; i < state.localQuota; i++) {
+            assertTrue(state.tryAcquire(RateLimitClock.nowMillis()) >= 0);
+        }
+        assertTrue(state.tryAcquire(RateLimitClock.nowMillis()) < 0);
+        assertEquals(0, calls.get());
+
+        syncer.flush();
+        for (int i = 0; i < 50; i++) {
+            assertTrue(state.tryAcquire(RateLimitClock.nowMillis()) < 0);
+        }
+        syncer.flush();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void backendFailureNeverGrantsAFullLease() {
+        AtomicInteger calls = new AtomicInteger();
+        RateLimitBackend failing = requests -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("banco fora do ar");
+        };
+        RateLimitLeaseSyncer syncer = new RateLimitLeaseSyncer(failing, ONE_HOUR);
+        syncers.add(syncer);
+        LeasedRateLimitState state = new LeasedRateLimitState("bebidas:203.0.113.7", LIMIT, 10, ONE_HOUR, syncer);
+
+        int allowed = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 10; i++) {
+                if (state.tryAcquire(RateLimitClock.nowMillis()) >= 0) {
+                    allowed++;
+                }
+            }
+            syncer.flush();
+        }
+        assertEquals(10, calls.get());
+        assertEquals(state.localQuota, allowed);
+    }
+}
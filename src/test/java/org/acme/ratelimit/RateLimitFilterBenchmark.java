@@ -0,0 +1,92 @@
+package org.acme.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede a decisão do RateLimitFilter por requisição, com os mesmos métodos que o filtro chama:
+ * resolução da política, identificação do cliente, busca do estado, tryAcquire e os headers
+ * X-RateLimit-* em texto. Os contextos do JAX-RS ficam de fora; o que eles custam é do container.
+ * O GCProfiler reporta gc.alloc.rate.norm, ou seja, bytes alocados por requisição.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RateLimitFilterBenchmark {
+
+    private RateLimitPolicies policies;
+    private RateLimitStore store;
+
+    @Setup
+    public void setup() {
+        policies = new RateLimitPolicies();
+        policies.register("/bebidas", List.of(), new RateLimitPolicy("bebidas", 0, RateLimitAlgorithm.SLIDING_WINDOW,
+                SlidingWindowCounterState.MAX_LIMIT, SlidingWindowCounterState.MAX_LIMIT, 1000, RateLimitConfig.KeySource.IP, null));
+        policies.register("/pedidos/*/pratos", List.of("POST"), new RateLimitPolicy("pedido-pratos", 1, RateLimitAlgorithm.TOKEN_BUCKET,
+                1000, 1000, 1000, RateLimitConfig.KeySource.IP, null));
+
+        store = new RateLimitStore();
+        store.policies = policies;
+        store.registry = new SimpleMeterRegistry();
+        store.init(1000);
+    }
+
+    @Benchmark
+    public long singleAddress() {
+        return decide("/bebidas/42", "203.0.113.7", null);
+    }
+
+    @Benchmark
+    public long proxyChain() {
+        return decide("/bebidas/42", "203.0.113.7, 10.0.0.1, 10.0.0.2", null);
+    }
+
+    @Benchmark
+    public long realIpFallback() {
+        return decide("/bebidas/42", null, "203.0.113.7");
+    }
+
+    @Benchmark
+    public long wildcardRoute() {
+        return decide("/pedidos/42/pratos/7", "203.0.113.7", null);
+    }
+
+    // O caminho de RateLimitFilter.filter() nas duas fases, sem os contextos
+    private long decide(String path, String forwarded, String realIp) {
+        RateLimitPolicy policy = policies.resolve("POST", path);
+        RateLimitState state = store.getOrCreate(policy, RateLimitFilter.clientIdentifier(forwarded, realIp));
+        long now = RateLimitClock.nowMillis();
+        long result = state.tryAcquire(now);
+        String remaining = Long.toString(result);
+        String reset = Long.toString(RateLimitFilter.resetEpochSecond(state, now));
+        return policy.limitHeader.length() + remaining.length() + reset.length();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RateLimitFilterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
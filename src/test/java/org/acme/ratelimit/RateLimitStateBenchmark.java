@@ -0,0 +1,81 @@
+package org.acme.ratelimit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede a vazão dos algoritmos de rate limit com 1..N threads disputando o mesmo cliente
+ * (pior caso de contenção) e cada thread com o seu próprio cliente.
+ *
+ * Executar pelo main() com o classpath de teste; roda com 1, 2, 4... até o número de núcleos.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimitStateBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedClient {
+        @Param({"TOKEN_BUCKET", "SLIDING_WINDOW"})
+        public RateLimitAlgorithm algorithm;
+
+        public RateLimitState state;
+
+        @Setup
+        public void setup() {
+            // Limite alto para que a maioria das chamadas siga o caminho permitido, que é o que faz CAS
+            state = algorithm.newState(SlidingWindowCounterState.MAX_LIMIT, SlidingWindowCounterState.MAX_LIMIT, 1000, RateLimitClock.nowMillis());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OwnClient {
+        @Param({"TOKEN_BUCKET", "SLIDING_WINDOW"})
+        public RateLimitAlgorithm algorithm;
+
+        public RateLimitState state;
+
+        @Setup
+        public void setup() {
+            state = algorithm.newState(SlidingWindowCounterState.MAX_LIMIT, SlidingWindowCounterState.MAX_LIMIT, 1000, RateLimitClock.nowMillis());
+        }
+    }
+
+    @Benchmark
+    public long sharedClient(SharedClient client) {
+        return client.state.tryAcquire(RateLimitClock.nowMillis());
+    }
+
+    @Benchmark
+    public long ownClient(OwnClient client) {
+        return client.state.tryAcquire(RateLimitClock.nowMillis());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            Options options = new OptionsBuilder()
+                    .include(RateLimitStateBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
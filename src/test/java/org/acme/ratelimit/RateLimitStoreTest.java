@@ -0,0 +1,113 @@
+package org.acme.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tabelas por política: tamanho limitado, expiração de clientes ociosos (com o ticker do
+ * Caffeine controlado à mão) e a limpeza periódica dos estados que já voltaram ao inicial.
+ */
+class RateLimitStoreTest {
+
+    private static final int MAX_ENTRIES = 100;
+
+    // 10 por segundo: o estado volta ao inicial em duas janelas, então expira após 2 s parado
+    private final RateLimitPolicy bebidas = new RateLimitPolicy("bebidas", 0, RateLimitAlgorithm.SLIDING_WINDOW,
+            10, 10, 1000, RateLimitConfig.KeySource.IP, null);
+    private final RateLimitPolicy pedidos = new RateLimitPolicy("pedidos", 1, RateLimitAlgorithm.TOKEN_BUCKET,
+            10, 10, 1000, RateLimitConfig.KeySource.IP, null);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private RateLimitStore store;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitPolicies policies = new RateLimitPolicies();
+        policies.register("/bebidas", List.of(), bebidas);
+        policies.register("/pedidos", List.of(), pedidos);
+
+        store = new RateLimitStore();
+        store.policies = policies;
+        store.registry = registry;
+        store.ticker = nanos::get;
+        store.init(MAX_ENTRIES);
+    }
+
+    @Test
+    void eachPolicyTableStaysBounded() {
+        RateLimitState kept = acquire(pedidos, "203.0.113.1");
+        for (int i = 0; i < 1000; i++) {
+            acquire(bebidas, "198.51.100." + i);
+        }
+        store.cleanup(0);
+
+        // max-entries dividido entre as duas políticas; a outra tabela não perde nada
+        assertEquals(MAX_ENTRIES / 2 + 1, store.size());
+        assertSame(kept, store.getOrCreate(pedidos, "203.0.113.1"));
+        assertEquals(1000 - MAX_ENTRIES / 2, registry.counter("ratelimit.store.evictions").count());
+    }
+
+    @Test
+    void idleClientsExpire() {
+        RateLimitState state = acquire(bebidas, "203.0.113.7");
+        acquire(bebidas, "203.0.113.8");
+        // Como a limpeza periódica: o Caffeine registra as inserções antes das leituras
+        store.cleanup(0);
+
+        advance(RateLimitStore.idleAfterMillis(bebidas) - 1);
+        // Acessar renova o prazo só deste cliente
+        assertSame(state, store.getOrCreate(bebidas, "203.0.113.7"));
+        advance(2);
+        store.cleanup(0);
+
+        assertEquals(1, store.size());
+        assertEquals(1, registry.counter("ratelimit.store.expirations").count());
+        assertSame(state, store.getOrCreate(bebidas, "203.0.113.7"));
+
+        advance(RateLimitStore.idleAfterMillis(bebidas) + 1);
+        assertNotSame(state, store.getOrCreate(bebidas, "203.0.113.7"));
+    }
+
+    @Test
+    void cleanupRemovesStatesBackToInitialWithinTheBudget() {
+        for (int i = 0; i < 5; i++) {
+            store.getOrCreate(bebidas, "198.51.100." + i);
+        }
+        RateLimitState busy = acquire(pedidos, "203.0.113.1");
+
+        assertEquals(3, store.cleanup(3));
+        assertEquals(2, store.cleanup(10));
+        assertEquals(0, store.cleanup(10));
+        assertEquals(1, store.size());
+        assertSame(busy, store.getOrCreate(pedidos, "203.0.113.1"));
+    }
+
+    @Test
+    void longClientKeysShareOneEntry() {
+        String prefix = "x".repeat(RateLimitStore.MAX_KEY_LENGTH);
+        RateLimitState state = store.getOrCreate(bebidas, prefix + "a");
+        assertSame(state, store.getOrCreate(bebidas, prefix + "b"));
+        assertEquals(1, store.size());
+    }
+
+    private RateLimitState acquire(RateLimitPolicy policy, String client) {
+        RateLimitState state = store.getOrCreate(policy, client);
+        assertTrue(state.tryAcquire(RateLimitClock.nowMillis()) >= 0);
+        return state;
+    }
+
+    private void advance(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,85 @@
+package org.acme.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Rotas sobrepostas: prefixo mais longo, literal antes do curinga (com volta ao curinga
+ * quando o literal não fecha o segmento) e filtro por método caindo para o prefixo mais curto.
+ */
+class RoutePolicyMatcherTest {
+
+    private final RoutePolicyMatcher matcher = new RoutePolicyMatcher();
+
+    RoutePolicyMatcherTest() {
+        add("/", null, "global");
+        add("/pedidos", null, "pedidos");
+        add("/pedidos/search", null, "search");
+        add("/pedidos/*", "DELETE", "pedido-delete");
+        add("/pedidos/*/pratos", "POST", "pratos-post");
+        add("/bebidas", "GET", "bebidas-get");
+        add("/bebidas/", null, "bebidas-any");
+    }
+
+    @ParameterizedTest(name = "{0} {1} -> {2}")
+    @CsvSource({
+            "GET,    /pedidos,                   pedidos",
+            "GET,    /pedidos/42,                pedidos",
+            "DELETE, /pedidos/42,                pedido-delete",
+            "POST,   /pedidos/42/pratos,         pratos-post",
+            "POST,   /pedidos/42/pratos/7,       pratos-post",
+            // Curinga casa mas o método não: fica a rota mais curta que aceita DELETE
+            "DELETE, /pedidos/42/pratos,         pedido-delete",
+            "GET,    /pedidos/42/pratos,         pedidos",
+            // Literal e curinga no mesmo segmento: o literal vence
+            "GET,    /pedidos/search,            search",
+            "POST,   /pedidos/search/pratos,     search",
+            // O literal não fecha o segmento: volta para o curinga
+            "POST,   /pedidos/searching/pratos,  pratos-post",
+            "GET,    /pedidos/searching,         pedidos",
+            // Só conta prefixo em fronteira de segmento
+            "GET,    /pedidosx,                  global",
+            "GET,    /bebidas,                   bebidas-get",
+            "POST,   /bebidas,                   bebidas-any",
+            "GET,    /bebidas/7,                 bebidas-get",
+            "GET,    /chefs,                     global",
+            "GET,    /pratos/çã,                 global",
+    })
+    void resolvesTheMostSpecificPolicy(String method, String path, String expected) {
+        assertEquals(expected, matcher.resolve(method, path).name);
+    }
+
+    @Test
+    void uncoveredPathHasNoPolicy() {
+        RoutePolicyMatcher scoped = new RoutePolicyMatcher();
+        scoped.add("/pedidos/*/pratos", "POST", policy("pratos-post"));
+
+        assertNull(scoped.resolve("POST", "/pedidos"));
+        assertNull(scoped.resolve("POST", "/pedidos//pratos"));
+        assertNull(scoped.resolve("GET", "/pedidos/42/pratos"));
+        assertEquals("pratos-post", scoped.resolve("POST", "/pedidos/42/pratos").name);
+    }
+
+    @Test
+    void rejectsDuplicatesAndNonAsciiRoutes() {
+        assertThrows(IllegalArgumentException.class, () -> add("/pedidos/", null, "outra"));
+        assertThrows(IllegalArgumentException.class, () -> add("/pedidos/*/pratos", "POST", "outra"));
+        assertThrows(IllegalArgumentException.class, () -> add("/cardápio", null, "outra"));
+        // Mesmo caminho, outro método: não é duplicata
+        add("/pedidos/*/pratos", "DELETE", "pratos-delete");
+        assertEquals("pratos-delete", matcher.resolve("DELETE", "/pedidos/42/pratos").name);
+    }
+
+    private void add(String pattern, String method, String name) {
+        matcher.add(pattern, method, policy(name));
+    }
+
+    private static RateLimitPolicy policy(String name) {
+        return new RateLimitPolicy(name, 0, RateLimitAlgorithm.SLIDING_WINDOW, 10, 10, 1000, RateLimitConfig.KeySource.IP, null);
+    }
+}
@@ -0,0 +1,75 @@
+package org.acme.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Janela deslizante empacotada em [24 bits: janela][20 bits: anterior][20 bits: atual],
+ * com o relógio passado à mão a partir do início de uma janela
+ */
+class SlidingWindowCounterStateTest {
+
+    private static final long WINDOW = 1000;
+    private static final long T0 = 1_000_000L;
+
+    @Test
+    void grantsTheLimitWithinAWindow() {
+        SlidingWindowCounterState state = new SlidingWindowCounterState(10, WINDOW, T0);
+        for (int remaining = 9; remaining >= 0; remaining--) {
+            assertEquals(remaining, state.tryAcquire(T0 + 100));
+        }
+        // Só a janela seguinte libera: a atual sozinha já chegou ao limite
+        assertEquals(-900, state.tryAcquire(T0 + 100));
+        assertEquals(900, state.millisUntilReset(T0 + 100));
+        assertFalse(state.isIdle(T0 + 100));
+    }
+
+    @Test
+    void previousWindowIsWeightedByWhatIsLeftOfIt() {
+        SlidingWindowCounterState state = new SlidingWindowCounterState(10, WINDOW, T0);
+        fill(state, T0, 10);
+
+        // Metade da janela seguinte: a anterior ainda pesa 10 * 0,5 = 5
+        long half = T0 + WINDOW + WINDOW / 2;
+        assertEquals(4, state.tryAcquire(half));
+        fill(state, half, 4);
+        // Estimativa 5 + 5: a próxima vaga abre quando a anterior pesar menos de 5, logo depois da metade
+        assertEquals(-1, state.tryAcquire(half));
+
+        // Duas janelas à frente, tudo zerado
+        assertTrue(state.isIdle(T0 + 3 * WINDOW));
+        assertEquals(9, state.tryAcquire(T0 + 3 * WINDOW));
+    }
+
+    @Test
+    void countFieldsHoldTheMaximumLimit() {
+        int max = SlidingWindowCounterState.MAX_LIMIT;
+        SlidingWindowCounterState state = new SlidingWindowCounterState(max, WINDOW, T0);
+        fill(state, T0, max);
+        assertTrue(state.tryAcquire(T0) < 0);
+
+        // A contagem cheia vira "anterior" intacta, sem invadir o índice da janela: no início
+        // da janela seguinte ela ainda pesa tudo e nada é liberado
+        assertTrue(state.tryAcquire(T0 + WINDOW) < 0);
+        assertTrue(state.tryAcquire(T0 + 2 * WINDOW - 1) >= 0);
+
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowCounterState(max + 1, WINDOW, T0));
+    }
+
+    @Test
+    void concurrentCallersNeverGetMoreThanTheLimit() throws InterruptedException {
+        int limit = 10_000;
+        SlidingWindowCounterState state = new SlidingWindowCounterState(limit, 3_600_000L, T0);
+        assertEquals(limit, TokenBucketStateTest.acquireConcurrently(state, 8, 5_000));
+    }
+
+    private static void fill(RateLimitState state, long now, int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(state.tryAcquire(now) >= 0);
+        }
+    }
+}
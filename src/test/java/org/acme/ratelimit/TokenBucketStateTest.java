@@ -0,0 +1,103 @@
+package org.acme.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Token bucket empacotado em [42 bits: último refill][22 bits: tokens], com o relógio passado à mão
+ */
+class TokenBucketStateTest {
+
+    private static final long T0 = 1_000_000L;
+
+    @Test
+    void grantsUpToCapacityThenAsksToWaitForOneToken() {
+        // 10 por segundo, rajada de 5: um token a cada 100 ms
+        TokenBucketState state = new TokenBucketState(10, 5, 1000, T0);
+        for (int remaining = 4; remaining >= 0; remaining--) {
+            assertEquals(remaining, state.tryAcquire(T0));
+        }
+        assertEquals(-100, state.tryAcquire(T0));
+        assertEquals(-40, state.tryAcquire(T0 + 60));
+        assertFalse(state.isIdle(T0));
+    }
+
+    @Test
+    void refillKeepsTheFractionBetweenCalls() {
+        TokenBucketState state = new TokenBucketState(10, 5, 1000, T0);
+        drain(state, T0);
+
+        // 250 ms: dois tokens inteiros; os 50 ms restantes contam para o próximo
+        assertEquals(1, state.tryAcquire(T0 + 250));
+        assertEquals(0, state.tryAcquire(T0 + 250));
+        assertEquals(-50, state.tryAcquire(T0 + 250));
+        assertEquals(0, state.tryAcquire(T0 + 300));
+
+        // Uma janela inteira enche o balde, sem passar da capacidade
+        assertTrue(state.isIdle(T0 + 1300));
+        assertEquals(0, state.millisUntilReset(T0 + 1300));
+        assertEquals(4, state.tryAcquire(T0 + 1300));
+        assertEquals(100, state.millisUntilReset(T0 + 1300));
+    }
+
+    @Test
+    void tokenFieldHoldsTheMaximumCapacity() {
+        int max = TokenBucketState.MAX_CAPACITY;
+        TokenBucketState state = new TokenBucketState(max, max, 1000, T0);
+
+        assertEquals(max - 1, state.tryAcquire(T0));
+        assertEquals(max - 1, drain(state, T0));
+        assertTrue(state.tryAcquire(T0) < 0);
+        // O relógio nos bits altos não foi tocado pela contagem: uma janela depois o balde está cheio
+        assertEquals(max - 1, state.tryAcquire(T0 + 1000));
+
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketState(10, max + 1, 1000, T0));
+    }
+
+    @Test
+    void concurrentCallersNeverGetMoreThanTheCapacity() throws InterruptedException {
+        int capacity = 10_000;
+        TokenBucketState state = new TokenBucketState(capacity, capacity, 3_600_000L, T0);
+        assertEquals(capacity, acquireConcurrently(state, 8, 5_000));
+    }
+
+    // Consome tudo o que houver; devolve quantos foram concedidos
+    private static int drain(RateLimitState state, long now) {
+        int granted = 0;
+        while (state.tryAcquire(now) >= 0) {
+            granted++;
+        }
+        return granted;
+    }
+
+    static int acquireConcurrently(RateLimitState state, int threads, int callsPerThread) throws InterruptedException {
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < callsPerThread; i++) {
+                    if (state.tryAcquire(T0) >= 0) {
+                        allowed.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        return allowed.get();
+    }
+}
@@ -0,0 +1,125 @@
+package org.acme.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latência da busca textual conforme o cardápio cresce.
+ *
+ * - likeScan: equivalente em memória ao "lower(nome) like '%x%'" (varre todos os registros)
+ * - exact / prefix / typo: o {@link FullTextIndex}, com o termo inteiro, o começo dele e um erro de digitação
+ *
+ * Cada prato tem palavras comuns (frango, arroz...) e um código próprio, como o nome
+ * de um prato da casa; as buscas procuram códigos, então o número de resultados
+ * não cresce com o cardápio e a latência do índice deve ficar estável. A busca
+ * com erro de digitação percorre no máximo {@link FullTextIndex#MAX_NGRAM_CANDIDATES}
+ * termos, mas fica mais lenta em vocabulários enormes por falta de cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FullTextIndexBenchmark {
+
+    private static final String[] WORDS = {
+            "Frango", "Arroz", "Feijão", "Açaí", "Moqueca", "Peixe", "Camarão", "Picanha", "Farofa", "Salada",
+            "Tigela", "Grelhado", "Assado", "Mandioca", "Queijo", "Pão", "Limão", "Maracujá", "Coco", "Tapioca"
+    };
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private FullTextIndex index;
+    private String[] folded;
+    private String[] codes;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom seed = new SplittableRandom(42);
+        index = new FullTextIndex();
+        folded = new String[rows];
+        codes = new String[1024];
+        for (int i = 0; i < rows; i++) {
+            String code = code(i);
+            String nome = WORDS[seed.nextInt(WORDS.length)] + " " + code;
+            String descricao = WORDS[seed.nextInt(WORDS.length)] + " com " + WORDS[seed.nextInt(WORDS.length)];
+            index.put(i, List.of(new FullTextIndex.Field(nome, 3f), new FullTextIndex.Field(descricao, 1f)));
+            folded[i] = TextNormalizer.fold(nome + " " + descricao);
+            if (i % (rows / codes.length) == 0 && i / (rows / codes.length) < codes.length) {
+                codes[i / (rows / codes.length)] = code;
+            }
+        }
+        random = new SplittableRandom(7);
+    }
+
+    @Benchmark
+    public int likeScan() {
+        String term = nextCode();
+        int found = 0;
+        for (String text : folded) {
+            if (text.contains(term)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public List<FullTextIndex.Hit> exact() {
+        return index.search(nextCode(), 20);
+    }
+
+    @Benchmark
+    public List<FullTextIndex.Hit> prefix() {
+        return index.search(nextCode().substring(0, 5), 20);
+    }
+
+    @Benchmark
+    public List<FullTextIndex.Hit> typo() {
+        String code = nextCode();
+        // Troca a última letra
+        return index.search(code.substring(0, code.length() - 1) + (code.charAt(code.length() - 1) == 'a' ? 'b' : 'a'), 20);
+    }
+
+    private String nextCode() {
+        return codes[random.nextInt(codes.length)];
+    }
+
+    // Código pronunciável e único por prato ("bacodi", "bacofu"...)
+    private static String code(int n) {
+        String consonants = "bcdfgjklmnprstvz";
+        String vowels = "aeiou";
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append(consonants.charAt(n % consonants.length()));
+            n /= consonants.length();
+            sb.append(vowels.charAt(n % vowels.length()));
+            n /= vowels.length();
+        } while (n > 0 || sb.length() < 6);
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FullTextIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,41 @@
+package org.acme.search;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.acme.SearchCursor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.hasSize;
+
+/**
+ * Escritas pela API passam pelo SearchIndexListener: o registro aparece na busca por q= logo
+ * depois do commit e some quando é excluído, sem esperar a sincronização periódica.
+ */
+@QuarkusTest
+class SearchIndexListenerTest {
+
+    @Test
+    void writesThroughTheApiAreSearchable() {
+        int id = given().contentType(ContentType.JSON)
+                .body(Map.of("nome", "Chef Xiquexique", "especialidade", "Cozinha sertaneja", "anosDeExperiencia", 12))
+                .when().post("/chefs").then()
+                .statusCode(201)
+                .extract().path("id");
+
+        given().queryParam("q", "xiquexique").queryParam("sort", SearchCursor.RELEVANCE)
+                .when().get("/chefs/search").then()
+                .statusCode(200)
+                .body("chefs", hasSize(1))
+                .body("chefs[0].id", is(id));
+
+        given().when().delete("/chefs/" + id).then().statusCode(204);
+        given().queryParam("q", "xiquexique").queryParam("sort", SearchCursor.RELEVANCE)
+                .when().get("/chefs/search").then()
+                .statusCode(200)
+                .body("chefs", hasSize(0));
+    }
+}
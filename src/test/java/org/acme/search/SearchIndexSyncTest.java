@@ -0,0 +1,49 @@
+package org.acme.search;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.acme.Prato;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Escritas feitas por SQL direto, como as de outra réplica, não passam pelo SearchIndexListener:
+ * só chegam ao índice pela sincronização periódica.
+ */
+@QuarkusTest
+class SearchIndexSyncTest {
+
+    @Inject
+    SearchIndex searchIndex;
+
+    @Inject
+    EntityManager em;
+
+    @Test
+    void picksUpChangesMadeElsewhere() {
+        long id = QuarkusTransaction.requiringNew().call(() -> {
+            Prato prato = new Prato("Escondidinho", "De carne seca", 40, null);
+            prato.persist();
+            return prato.id;
+        });
+        QuarkusTransaction.requiringNew().run(() -> em
+                .createNativeQuery("update Prato set nome = 'Quibebe de abóbora', atualizadoEm = current_timestamp where id = :id")
+                .setParameter("id", id)
+                .executeUpdate());
+        assertFalse(searchIndex.ranked(Prato.class, "quibebe").contains(id));
+
+        searchIndex.sync();
+        assertTrue(searchIndex.ranked(Prato.class, "quibebe").contains(id));
+
+        QuarkusTransaction.requiringNew().run(() -> em
+                .createNativeQuery("delete from Prato where id = :id")
+                .setParameter("id", id)
+                .executeUpdate());
+        searchIndex.prune();
+        assertFalse(searchIndex.ranked(Prato.class, "quibebe").contains(id));
+    }
+}